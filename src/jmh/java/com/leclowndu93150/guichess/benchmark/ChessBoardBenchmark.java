@@ -0,0 +1,92 @@
+package com.leclowndu93150.guichess.benchmark;
+
+import com.leclowndu93150.guichess.chess.board.ChessMove;
+import com.leclowndu93150.guichess.chess.pieces.PieceColor;
+import com.leclowndu93150.guichess.game.core.ChessBoard;
+import com.leclowndu93150.guichess.game.core.IntMoveList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks for the ChessBoard rules engine on the perft reference positions.
+ * Run with {@code ./gradlew jmh}; no Minecraft server is started.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessBoardBenchmark {
+
+    @Param({Perft.INITIAL, Perft.KIWIPETE, Perft.ENDGAME, Perft.MIDDLEGAME})
+    public String fen;
+
+    private ChessBoard board;
+    private ChessMove firstMove;
+    private final IntMoveList moves = new IntMoveList();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        board = new ChessBoard(fen);
+        firstMove = board.getLegalMoves().get(0);
+    }
+
+    @Benchmark
+    public List<ChessMove> getLegalMoves() {
+        return board.getLegalMoves();
+    }
+
+    @Benchmark
+    public int getLegalMovesPacked() {
+        board.getLegalMoves(moves);
+        return moves.size();
+    }
+
+    /**
+     * Full makeMove including history and game-state bookkeeping, so it needs a fresh board each call.
+     */
+    @Benchmark
+    public ChessBoard makeMove() {
+        ChessBoard copy = board.copy();
+        copy.makeMove(firstMove);
+        return copy;
+    }
+
+    @Benchmark
+    public ChessBoard copy() {
+        return board.copy();
+    }
+
+    @Benchmark
+    public void makeUncheckedAndUnmake() {
+        board.makeUnchecked(firstMove);
+        board.unmake(firstMove);
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return board.isInCheck(PieceColor.WHITE) | board.isInCheck(PieceColor.BLACK);
+    }
+
+    @Benchmark
+    public String toFEN() {
+        return board.toFEN();
+    }
+
+    @Benchmark
+    public ChessBoard loadFEN() {
+        return new ChessBoard(fen);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public long perft4() {
+        return Perft.perft(board, 4);
+    }
+}
@@ -0,0 +1,111 @@
+package com.leclowndu93150.guichess.benchmark;
+
+import com.leclowndu93150.guichess.game.core.ChessBoard;
+import com.leclowndu93150.guichess.game.core.IntMoveList;
+import com.leclowndu93150.guichess.game.core.PackedMove;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Perft driver: counts the leaf nodes of the legal move tree to verify ChessBoard's move generator.
+ *
+ * Runs standalone without Minecraft, from the jmh source set so it is not shipped in the mod jar.
+ * {@code ./gradlew perft} checks the built-in suite against the published node counts;
+ * {@code ./gradlew perft -Pperft="5 <fen>"} prints a divide for one position.
+ */
+public final class Perft {
+    public static final String INITIAL = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    public static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    public static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    public static final String PROMOTIONS = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    public static final String MIDDLEGAME = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+
+    // FEN followed by the expected node counts for depth 1, 2, 3, ...
+    private static final Object[][] SUITE = {
+            {INITIAL, new long[]{20, 400, 8902, 197281, 4865609}},
+            {KIWIPETE, new long[]{48, 2039, 97862, 4085603}},
+            {ENDGAME, new long[]{14, 191, 2812, 43238, 674624}},
+            {PROMOTIONS, new long[]{6, 264, 9467, 422333}},
+            {MIDDLEGAME, new long[]{44, 1486, 62379, 2103487}},
+    };
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the positions reachable in exactly {@code depth} plies.
+     * The board is played on in place and left as it was.
+     */
+    public static long perft(ChessBoard board, int depth) {
+        IntMoveList[] buffers = new IntMoveList[Math.max(depth, 1) + 1];
+        for (int i = 0; i < buffers.length; i++) buffers[i] = new IntMoveList();
+        return perft(board, depth, buffers);
+    }
+
+    private static long perft(ChessBoard board, int depth, IntMoveList[] buffers) {
+        if (depth == 0) return 1;
+        IntMoveList moves = buffers[depth];
+        board.getLegalMoves(moves);
+        if (depth == 1) return moves.size();
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.makeUnchecked(move);
+            nodes += perft(board, depth - 1, buffers);
+            board.unmake(move);
+        }
+        return nodes;
+    }
+
+    /**
+     * Node count below each root move, keyed by the move in UCI notation.
+     */
+    public static Map<String, Long> divide(ChessBoard board, int depth) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        IntMoveList rootMoves = new IntMoveList();
+        board.getLegalMoves(rootMoves);
+        for (int i = 0; i < rootMoves.size(); i++) {
+            int move = rootMoves.get(i);
+            board.makeUnchecked(move);
+            result.put(PackedMove.toUci(move), perft(board, depth - 1));
+            board.unmake(move);
+        }
+        return result;
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            int depth = Integer.parseInt(args[0]);
+            String fen = args.length > 1 ? String.join(" ", Arrays.copyOfRange(args, 1, args.length)) : INITIAL;
+            long total = 0;
+            for (Map.Entry<String, Long> entry : divide(new ChessBoard(fen), depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                total += entry.getValue();
+            }
+            System.out.println("\nNodes searched: " + total);
+            return;
+        }
+
+        boolean failed = false;
+        for (Object[] entry : SUITE) {
+            String fen = (String) entry[0];
+            long[] expected = (long[]) entry[1];
+            System.out.println(fen);
+            for (int depth = 1; depth <= expected.length; depth++) {
+                long start = System.nanoTime();
+                long nodes = perft(new ChessBoard(fen), depth);
+                long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                boolean ok = nodes == expected[depth - 1];
+                failed |= !ok;
+                System.out.printf("  depth %d: %,d nodes in %d ms%s%n", depth, nodes, elapsedMs,
+                        ok ? "" : "  MISMATCH, expected " + expected[depth - 1]);
+            }
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.leclowndu93150.guichess.benchmark;
+
+import com.leclowndu93150.guichess.engine.integration.AnalysisUpdate;
+import com.leclowndu93150.guichess.engine.integration.UciInfo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Microbenchmarks for parsing Stockfish {@code info} lines, the hand-written tokenizer against
+ * the regex parser it replaced. Run with {@code ./gradlew jmh -Pjmh.includes=UciInfoBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UciInfoBenchmark {
+    private static final String DEEP_MULTI_PV = "info depth 24 seldepth 33 multipv 2 score cp -17 nodes 18734925 nps 1245671 "
+            + "hashfull 412 tbhits 0 time 15040 pv e7e5 g1f3 b8c6 f1b5 a7a6 b5a4 g8f6 e1g1 f8e7 f1e1 b7b5 a4b3 d7d6 c2c3 e8g8 h2h3";
+    private static final String MATE = "info depth 18 seldepth 12 multipv 1 score mate -4 nodes 402112 nps 980761 hashfull 88 "
+            + "tbhits 0 time 410 pv g8h8 d8h4 h7h6 h4h6 g7h6 f6f7";
+    private static final String BOUND = "info depth 21 seldepth 28 multipv 1 score cp 36 lowerbound nodes 5120331 nps 1302110 "
+            + "hashfull 201 tbhits 0 time 3932 pv d2d4";
+    // Progress lines without a score are the most common and are discarded
+    private static final String CURRMOVE = "info depth 24 currmove d2d4 currmovenumber 3";
+
+    private static final Pattern DEPTH_PATTERN = Pattern.compile("\\sdepth\\s+(\\d+)");
+    private static final Pattern MULTI_PV_PATTERN = Pattern.compile("\\smultipv\\s+(\\d+)");
+    private static final Pattern SCORE_PATTERN = Pattern.compile("\\sscore\\s+(cp|mate)\\s+([+-]?\\d+)");
+    private static final Pattern NODES_PATTERN = Pattern.compile("\\snodes\\s+(\\d+)");
+    private static final Pattern NPS_PATTERN = Pattern.compile("\\snps\\s+(\\d+)");
+    private static final Pattern PV_PATTERN = Pattern.compile("\\spv\\s+(.+)$");
+
+    @Param({DEEP_MULTI_PV, MATE, BOUND, CURRMOVE})
+    public String line;
+
+    private final UciInfo info = new UciInfo();
+    private final AnalysisUpdate update = new AnalysisUpdate();
+
+    /**
+     * What a search's reader thread does per line without a listener: parse in place, refill its update.
+     */
+    @Benchmark
+    public AnalysisUpdate tokenizerReused() {
+        if (info.parse(line)) {
+            update.set(info);
+        }
+        return update;
+    }
+
+    @Benchmark
+    public AnalysisUpdate tokenizerFresh() {
+        return AnalysisUpdate.parse(line);
+    }
+
+    @Benchmark
+    public AnalysisUpdate regex() {
+        return parseWithRegex(line);
+    }
+
+    /**
+     * The previous AnalysisUpdate.parse, kept as the baseline.
+     */
+    private static AnalysisUpdate parseWithRegex(String line) {
+        Matcher scoreMatcher = SCORE_PATTERN.matcher(line);
+        Matcher pvMatcher = PV_PATTERN.matcher(line);
+        Matcher depthMatcher = DEPTH_PATTERN.matcher(line);
+        if (!scoreMatcher.find() || !pvMatcher.find() || !depthMatcher.find()) {
+            return null;
+        }
+
+        AnalysisUpdate update = new AnalysisUpdate();
+        update.depth = Integer.parseInt(depthMatcher.group(1));
+        update.principalVariation = pvMatcher.group(1).trim();
+
+        int score = Integer.parseInt(scoreMatcher.group(2));
+        if (scoreMatcher.group(1).equals("mate")) {
+            update.isMate = true;
+            update.mateIn = score;
+            update.centipawns = score > 0 ? 10000 : -10000;
+            update.evaluation = "Mate in " + Math.abs(score);
+        } else {
+            update.centipawns = score;
+            update.evaluation = String.format("%.2f", score / 100.0);
+        }
+
+        Matcher multiPvMatcher = MULTI_PV_PATTERN.matcher(line);
+        if (multiPvMatcher.find()) {
+            update.multiPv = Integer.parseInt(multiPvMatcher.group(1));
+        }
+        Matcher nodesMatcher = NODES_PATTERN.matcher(line);
+        if (nodesMatcher.find()) {
+            update.nodes = Long.parseLong(nodesMatcher.group(1));
+        }
+        Matcher npsMatcher = NPS_PATTERN.matcher(line);
+        if (npsMatcher.find()) {
+            update.nodesPerSecond = Long.parseLong(npsMatcher.group(1));
+        }
+        return update;
+    }
+}
@@ -2,6 +2,8 @@ package com.leclowndu93150.guichess;
 
 import com.leclowndu93150.guichess.command.ChessCommands;
 import com.leclowndu93150.guichess.data.PlayerDataAttachment;
+import com.leclowndu93150.guichess.engine.analysis.AnalysisJobManager;
+import com.leclowndu93150.guichess.engine.book.OpeningBook;
 import com.leclowndu93150.guichess.engine.integration.StockfishEngineManager;
 import com.leclowndu93150.guichess.events.PlayerEventHandler;
 import com.leclowndu93150.guichess.game.core.GameManager;
@@ -29,7 +31,9 @@ import net.neoforged.neoforge.event.server.ServerStoppingEvent;
 import net.neoforged.neoforge.network.event.RegisterConfigurationTasksEvent;
 import org.slf4j.Logger;
 
+import java.nio.file.Path;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 
 @Mod(GUIChess.MODID)
@@ -37,6 +41,7 @@ public class GUIChess {
 
     public static final String MODID = "guichess";
     private static final Logger LOGGER = LogUtils.getLogger();
+    private static final boolean PERSIST_EVALUATION_CACHE = Boolean.parseBoolean(System.getProperty("chess.evalcache.persist", "true"));
 
     public GUIChess(IEventBus modEventBus, ModContainer modContainer) {
         PlayerDataAttachment.ATTACHMENT_TYPES.register(modEventBus);
@@ -67,6 +72,24 @@ public class GUIChess {
         GameManager.getInstance().initialize(server);
         LOGGER.info("GUIChess initialized with server");
         
+        if (PERSIST_EVALUATION_CACHE) {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    StockfishEngineManager.getInstance().getEvaluationCache().load(getEvaluationCacheFile());
+                } catch (Exception e) {
+                    LOGGER.warn("Failed to load evaluation cache: {}", e.getMessage());
+                }
+            });
+        }
+        
+        CompletableFuture.runAsync(() -> {
+            try {
+                OpeningBook.getInstance().load(Path.of("config", "guichess"));
+            } catch (Exception e) {
+                LOGGER.warn("Failed to load opening book: {}", e.getMessage());
+            }
+        });
+        
         StockfishEngineManager.getInstance().waitUntilReady().thenAccept(ready -> {
             if (ready) {
                 LOGGER.info("Stockfish engine initialized successfully");
@@ -82,8 +105,20 @@ public class GUIChess {
     @SubscribeEvent
     public void onServerStopping(ServerStoppingEvent event) {
         GameManager.getInstance().shutdown();
+        AnalysisJobManager.getInstance().shutdown();
+        if (PERSIST_EVALUATION_CACHE && GameManager.getInstance().getDataDirectory() != null) {
+            try {
+                StockfishEngineManager.getInstance().getEvaluationCache().save(getEvaluationCacheFile());
+            } catch (Exception e) {
+                LOGGER.warn("Failed to save evaluation cache: {}", e.getMessage());
+            }
+        }
         StockfishEngineManager.getInstance().shutdown();
     }
+    
+    private static Path getEvaluationCacheFile() {
+        return GameManager.getInstance().getDataDirectory().resolve("evaluation_cache.bin");
+    }
 
     @SubscribeEvent
     public void onRegisterCommands(RegisterCommandsEvent event) {
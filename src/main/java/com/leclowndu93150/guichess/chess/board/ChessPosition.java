@@ -11,6 +11,15 @@ import net.minecraft.nbt.CompoundTag;
  * - Index mapping: a1=0, h8=63
  */
 public class ChessPosition {
+    // Shared instances for the 64 on-board squares, see of() and ofIndex()
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for (int i = 0; i < 64; i++) {
+            SQUARES[i] = new ChessPosition(i % 8, i / 8);
+        }
+    }
+
     public final int file; // 0-7 (a-h)
     public final int rank; // 0-7 (1-8)
 
@@ -28,8 +37,25 @@ public class ChessPosition {
         return rank * 8 + file;
     }
 
+    /**
+     * Returns the shared instance for a square. Off-board coordinates still get a
+     * fresh (invalid) position so callers can keep using isValid().
+     */
+    public static ChessPosition of(int file, int rank) {
+        if (file < 0 || file > 7 || rank < 0 || rank > 7) return new ChessPosition(file, rank);
+        return SQUARES[rank * 8 + file];
+    }
+
+    /**
+     * Returns the shared instance for a square index (a1=0, h8=63).
+     */
+    public static ChessPosition ofIndex(int index) {
+        return SQUARES[index];
+    }
+
     public static ChessPosition fromIndex(int index) {
-        return new ChessPosition(index % 8, index / 8);
+        if (index < 0 || index >= 64) return new ChessPosition(index % 8, index / 8);
+        return SQUARES[index];
     }
 
     public String toNotation() {
@@ -59,6 +85,6 @@ public class ChessPosition {
     }
 
     public static ChessPosition fromNBT(CompoundTag tag) {
-        return new ChessPosition(tag.getInt("file"), tag.getInt("rank"));
+        return of(tag.getInt("file"), tag.getInt("rank"));
     }
 }
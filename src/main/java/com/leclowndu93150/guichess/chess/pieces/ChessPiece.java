@@ -23,6 +23,9 @@ public enum ChessPiece {
     BLACK_KNIGHT(1014, "black_knight", "♞", Component.literal("§8Black Knight")),
     BLACK_PAWN(1015, "black_pawn", "♟", Component.literal("§8Black Pawn"));
 
+    private static final ChessPiece[] PIECES = values();
+    private static final PieceType[] TYPES = PieceType.values();
+
     private final int modelData;
     private final String modelName;
     private final String symbol;
@@ -44,7 +47,7 @@ public enum ChessPiece {
     }
 
     public PieceType getType() {
-        return PieceType.values()[this.ordinal() % 6];
+        return TYPES[this.ordinal() % 6];
     }
 
     /**
@@ -52,7 +55,7 @@ public enum ChessPiece {
      */
     public static ChessPiece fromColorAndType(PieceColor color, PieceType type) {
         int offset = color == PieceColor.WHITE ? 0 : 6;
-        return values()[offset + type.ordinal()];
+        return PIECES[offset + type.ordinal()];
     }
 
     public int getModelData() {
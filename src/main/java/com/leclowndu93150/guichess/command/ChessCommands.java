@@ -9,7 +9,7 @@ import com.leclowndu93150.guichess.util.time.TimeControl;
 import com.leclowndu93150.guichess.data.models.GameHistory;
 import com.leclowndu93150.guichess.data.storage.MatchHistoryManager;
 import com.leclowndu93150.guichess.data.models.PlayerData;
-import com.leclowndu93150.guichess.engine.integration.StockfishEngineManager;
+import com.leclowndu93150.guichess.engine.analysis.AnalysisJobManager;
 import com.leclowndu93150.guichess.gui.game.ChessGUI;
 import com.leclowndu93150.guichess.gui.challenge.ChallengeFlowGUI;
 import com.leclowndu93150.guichess.gui.challenge.ChallengeAcceptGUI;
@@ -573,7 +573,7 @@ public class ChessCommands {
         }
 
 
-        StockfishEngineManager.getInstance().requestHint(game.getBoard().toFEN(), hint -> {
+        AnalysisJobManager.getInstance().requestHint(game.getBoard().toFEN(), hint -> {
             player.sendSystemMessage(Component.literal("§bHint: " + hint));
         });
 
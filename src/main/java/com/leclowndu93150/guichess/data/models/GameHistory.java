@@ -99,6 +99,7 @@ public class GameHistory {
         public boolean isInaccuracy; // Populated during analysis
         public boolean isBrilliant; // Populated during analysis
         public boolean isGood; // Populated during analysis
+        public boolean isBook; // Populated during analysis
 
         public MoveRecord(ChessMove move, String moveNotation, String fenBefore, String fenAfter,
                          int whiteTimeLeft, int blackTimeLeft, int moveTimeMs,
@@ -147,6 +148,7 @@ public class GameHistory {
             tag.putBoolean("isInaccuracy", isInaccuracy);
             tag.putBoolean("isBrilliant", isBrilliant);
             tag.putBoolean("isGood", isGood);
+            tag.putBoolean("isBook", isBook);
             
             return tag;
         }
@@ -182,6 +184,7 @@ public class GameHistory {
             record.isInaccuracy = tag.getBoolean("isInaccuracy");
             record.isBrilliant = tag.getBoolean("isBrilliant");
             record.isGood = tag.getBoolean("isGood");
+            record.isBook = tag.getBoolean("isBook");
             
             return record;
         }
@@ -276,6 +279,17 @@ public class GameHistory {
         return moves.size();
     }
 
+    /**
+     * Whether a computer review has stored an evaluation for every move.
+     */
+    public boolean isAnalyzed() {
+        if (moves.isEmpty()) return false;
+        for (MoveRecord move : moves) {
+            if (move.stockfishEvaluation == null) return false;
+        }
+        return true;
+    }
+
     public String getDuration() {
         long seconds = java.time.Duration.between(startTime, endTime).getSeconds();
         long minutes = seconds / 60;
@@ -0,0 +1,321 @@
+package com.leclowndu93150.guichess.engine.analysis;
+
+import com.leclowndu93150.guichess.chess.board.ChessMove;
+import com.leclowndu93150.guichess.data.models.GameHistory;
+import com.leclowndu93150.guichess.data.storage.MatchHistoryManager;
+import com.leclowndu93150.guichess.engine.integration.EnginePriority;
+import com.leclowndu93150.guichess.engine.integration.EngineRequest;
+import com.leclowndu93150.guichess.engine.integration.StockfishEngineManager;
+import com.leclowndu93150.guichess.engine.integration.StockfishIntegration;
+import com.leclowndu93150.guichess.game.core.GameManager;
+import net.minecraft.server.MinecraftServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Server-side queue in front of the engine for hints, bot moves and game reviews.
+ *
+ * Work is handed to {@link StockfishEngineManager} in {@link EnginePriority} order. Urgent work goes
+ * straight through to the engine's scheduler, while game reviews never occupy more searches than the
+ * engine can run in parallel, so the rest of a long review stays here where it can still be cancelled.
+ * Reviews are queued as small batches, which the engine runs back to back on its workers.
+ * Cancelling a returned future before its turn removes it from the queue; afterwards it is passed on to the
+ * engine as the request's {@link EngineRequest#withCancellation cancellation}, which drops or stops the search.
+ */
+public class AnalysisJobManager {
+    private static AnalysisJobManager instance;
+
+    private final StockfishEngineManager engine;
+    // Hands engine results to callers off the dispatching thread; cache hits complete immediately
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "Chess-Analysis");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object lock = new Object();
+    private final PriorityQueue<QueuedAnalysis<?>> queue = new PriorityQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private int reviewsInFlight = 0;
+
+    private final Map<UUID, GameReviewJob> reviews = new ConcurrentHashMap<>();
+
+    private AnalysisJobManager() {
+        this.engine = StockfishEngineManager.getInstance();
+    }
+
+    public static AnalysisJobManager getInstance() {
+        if (instance == null) {
+            synchronized (AnalysisJobManager.class) {
+                if (instance == null) {
+                    instance = new AnalysisJobManager();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Queues one position at the request's priority. The future always completes normally unless
+     * it is cancelled; engine failures arrive as results with an error.
+     */
+    public CompletableFuture<StockfishIntegration.AnalysisResult> analyze(String fen, EngineRequest request) {
+        return enqueue(new SingleAnalysis(fen, request, sequence.getAndIncrement()));
+    }
+
+    /**
+     * Queues several positions with the same limits as one unit, searched with
+     * {@link StockfishEngineManager#evaluateBatch}. Like {@link #analyze}, failures arrive as results with an error.
+     * @param onResult receives each result with its index as soon as it is ready, exactly once, may be null
+     */
+    public CompletableFuture<List<StockfishIntegration.AnalysisResult>> analyzeBatch(List<String> fens, EngineRequest request,
+            BiConsumer<Integer, StockfishIntegration.AnalysisResult> onResult) {
+        return enqueue(new BatchAnalysis(fens, request, onResult, sequence.getAndIncrement()));
+    }
+
+    private <T> CompletableFuture<T> enqueue(QueuedAnalysis<T> task) {
+        synchronized (lock) {
+            queue.add(task);
+        }
+        dispatch();
+        return task.future;
+    }
+
+    /**
+     * Hint for a player in a live game, ahead of every other queued search.
+     */
+    public void requestHint(String fen, Consumer<String> callback) {
+        analyze(fen, engine.getDefaultRequest().withPriority(EnginePriority.LIVE_HINT))
+                .thenApply(StockfishIntegration::formatHint)
+                .thenAccept(callback)
+                .exceptionally(throwable -> {
+                    callback.accept("Error: " + throwable.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Reviews a saved game and stores the results in its move records and match history file.
+     * Returns the running job if this game is already being reviewed.
+     */
+    public GameReviewJob reviewGame(GameHistory gameHistory) {
+        return reviews.computeIfAbsent(gameHistory.gameId, gameId -> {
+            List<ChessMove> moves = new ArrayList<>();
+            for (GameHistory.MoveRecord record : gameHistory.moves) {
+                moves.add(record.move);
+            }
+
+            GameReviewJob job = new GameReviewJob(gameId, moves);
+            job.whenAnalysed().thenAccept(done -> storeReview(done, gameHistory));
+            job.getCompletion().whenComplete((done, throwable) -> reviews.remove(gameId, job));
+            job.start(this);
+            return job;
+        });
+    }
+
+    /**
+     * Reviews a list of moves from the standard starting position without storing anything.
+     */
+    public GameReviewJob reviewMoves(UUID gameId, List<ChessMove> moves) {
+        GameReviewJob job = new GameReviewJob(gameId, moves);
+        job.whenAnalysed().thenAccept(GameReviewJob::finish);
+        job.start(this);
+        return job;
+    }
+
+    /**
+     * Cancels every queued search and review. Searches already running finish on their own.
+     */
+    public void shutdown() {
+        for (GameReviewJob job : reviews.values()) {
+            job.cancel();
+        }
+        reviews.clear();
+
+        List<QueuedAnalysis<?>> dropped;
+        synchronized (lock) {
+            dropped = new ArrayList<>(queue);
+            queue.clear();
+        }
+        for (QueuedAnalysis<?> task : dropped) {
+            task.future.cancel(false);
+        }
+    }
+
+    public int getQueuedCount() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Move records belong to the server thread, so results are written back there.
+     */
+    private void storeReview(GameReviewJob job, GameHistory gameHistory) {
+        MinecraftServer server = GameManager.getInstance().getServer();
+        if (server == null) {
+            job.applyTo(gameHistory);
+            job.finish();
+            return;
+        }
+
+        server.execute(() -> {
+            job.applyTo(gameHistory);
+            MatchHistoryManager matchHistoryManager = GameManager.getInstance().getMatchHistoryManager();
+            if (matchHistoryManager != null) {
+                matchHistoryManager.saveGameHistory(gameHistory);
+            }
+            job.finish();
+        });
+    }
+
+    /**
+     * Starts queued work, most urgent first; reviews are held back once they fill every engine worker.
+     */
+    private void dispatch() {
+        while (true) {
+            QueuedAnalysis<?> task;
+            int searches;
+            synchronized (lock) {
+                while (!queue.isEmpty() && queue.peek().future.isDone()) {
+                    queue.poll();
+                }
+                task = queue.peek();
+                if (task == null) return;
+                int parallelism = engine.getParallelism();
+                searches = task.searches(parallelism);
+                if (task.isReview() && reviewsInFlight > 0 && reviewsInFlight + searches > parallelism) return;
+                queue.poll();
+                if (task.isReview()) {
+                    reviewsInFlight += searches;
+                }
+            }
+            start(task, searches);
+        }
+    }
+
+    private <T> void start(QueuedAnalysis<T> task, int searches) {
+        task.search(engine).whenCompleteAsync((result, throwable) -> {
+            if (task.isReview()) {
+                synchronized (lock) {
+                    reviewsInFlight -= searches;
+                }
+            }
+            // Start the next search before running this caller's continuation
+            dispatch();
+            task.future.complete(throwable != null ? task.failed(throwable) : result);
+        }, executor);
+    }
+
+    private abstract static class QueuedAnalysis<T> implements Comparable<QueuedAnalysis<?>> {
+        final EngineRequest request;
+        final long sequence;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        QueuedAnalysis(EngineRequest request, long sequence) {
+            this.request = request;
+            this.sequence = sequence;
+        }
+
+        /**
+         * How many engine searches this occupies while it runs.
+         */
+        abstract int searches(int parallelism);
+
+        abstract CompletableFuture<T> search(StockfishEngineManager engine);
+
+        abstract T failed(Throwable throwable);
+
+        boolean isReview() {
+            return request.getPriority() == EnginePriority.GAME_REVIEW;
+        }
+
+        @Override
+        public int compareTo(QueuedAnalysis<?> other) {
+            int byPriority = request.getPriority().compareTo(other.request.getPriority());
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class SingleAnalysis extends QueuedAnalysis<StockfishIntegration.AnalysisResult> {
+        final String fen;
+
+        SingleAnalysis(String fen, EngineRequest request, long sequence) {
+            super(request, sequence);
+            this.fen = fen;
+        }
+
+        @Override
+        int searches(int parallelism) {
+            return 1;
+        }
+
+        @Override
+        CompletableFuture<StockfishIntegration.AnalysisResult> search(StockfishEngineManager engine) {
+            return engine.analyzePosition(fen, request.withCancellation(future));
+        }
+
+        @Override
+        StockfishIntegration.AnalysisResult failed(Throwable throwable) {
+            return new StockfishIntegration.AnalysisResult("Analysis failed: " + throwable.getMessage());
+        }
+    }
+
+    private static final class BatchAnalysis extends QueuedAnalysis<List<StockfishIntegration.AnalysisResult>> {
+        final List<String> fens;
+        final BiConsumer<Integer, StockfishIntegration.AnalysisResult> onResult;
+        // Positions already handed to onResult, so a failed batch only reports the rest
+        private final boolean[] reported;
+
+        BatchAnalysis(List<String> fens, EngineRequest request, BiConsumer<Integer, StockfishIntegration.AnalysisResult> onResult,
+                      long sequence) {
+            super(request, sequence);
+            this.fens = fens;
+            this.onResult = onResult;
+            this.reported = new boolean[fens.size()];
+        }
+
+        @Override
+        int searches(int parallelism) {
+            // The engine runs a batch on at most one lane per worker
+            return Math.max(1, Math.min(parallelism, fens.size()));
+        }
+
+        @Override
+        CompletableFuture<List<StockfishIntegration.AnalysisResult>> search(StockfishEngineManager engine) {
+            return engine.evaluateBatch(fens, request.withCancellation(future), this::report);
+        }
+
+        @Override
+        List<StockfishIntegration.AnalysisResult> failed(Throwable throwable) {
+            List<StockfishIntegration.AnalysisResult> results = new ArrayList<>(fens.size());
+            for (int i = 0; i < fens.size(); i++) {
+                StockfishIntegration.AnalysisResult result = new StockfishIntegration.AnalysisResult("Analysis failed: " + throwable.getMessage());
+                report(i, result);
+                results.add(result);
+            }
+            return results;
+        }
+
+        private void report(int index, StockfishIntegration.AnalysisResult result) {
+            synchronized (reported) {
+                if (reported[index]) return;
+                reported[index] = true;
+            }
+            if (onResult != null) {
+                onResult.accept(index, result);
+            }
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.leclowndu93150.guichess.engine.analysis;
+
+import com.leclowndu93150.guichess.chess.board.ChessMove;
+import com.leclowndu93150.guichess.data.models.GameHistory;
+import com.leclowndu93150.guichess.engine.book.OpeningBook;
+import com.leclowndu93150.guichess.engine.integration.EnginePriority;
+import com.leclowndu93150.guichess.engine.integration.EngineRequest;
+import com.leclowndu93150.guichess.engine.integration.StockfishIntegration;
+import com.leclowndu93150.guichess.game.core.ChessBoard;
+import com.leclowndu93150.guichess.game.core.PackedMove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Background review of one game, run by {@link AnalysisJobManager} at {@link EnginePriority#GAME_REVIEW}.
+ *
+ * Each of the N+1 positions is searched exactly once; a move's centipawn loss comes from the
+ * scores of the positions before and after it. The job keeps running when nobody is watching it.
+ * Opening moves found in the {@link OpeningBook} are marked as book moves, and positions with
+ * only book moves around them are not searched at all.
+ */
+public class GameReviewJob {
+    static final EngineRequest REVIEW_ANALYSIS = EngineRequest.defaults().withMultiPv(1).withPriority(EnginePriority.GAME_REVIEW);
+    private static final int MATE_SCORE = 10000;
+    // Positions sent to the engine together; cancelling the review stops a started batch between positions
+    private static final int BATCH_SIZE = 8;
+
+    private final UUID gameId;
+    private final List<String> positions = new ArrayList<>();
+    private final StockfishIntegration.AnalysisResult[] results;
+    private final boolean[] book;
+    private final List<CompletableFuture<List<StockfishIntegration.AnalysisResult>>> pending = new ArrayList<>();
+
+    private final AtomicInteger completedPositions = new AtomicInteger();
+    private final CompletableFuture<GameReviewJob> analysed = new CompletableFuture<>();
+    private final CompletableFuture<GameReviewJob> completion = new CompletableFuture<>();
+    private final List<Consumer<GameReviewJob>> progressListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled = false;
+
+    GameReviewJob(UUID gameId, List<ChessMove> moves) {
+        this.gameId = gameId;
+        this.book = new boolean[moves.size()];
+        ChessBoard board = new ChessBoard();
+        positions.add(board.toFEN());
+        boolean inBook = true;
+        for (int i = 0; i < moves.size(); i++) {
+            ChessMove move = moves.get(i);
+            // Only the opening counts; transposing back into the book later is not a book move
+            inBook = inBook && OpeningBook.getInstance().contains(board, PackedMove.fromChessMove(move));
+            book[i] = inBook;
+            board.makeMove(move);
+            positions.add(board.toFEN());
+        }
+        this.results = new StockfishIntegration.AnalysisResult[positions.size()];
+    }
+
+    /**
+     * Queues every position that needs a search; they reach the engine only when no more urgent work is waiting.
+     */
+    void start(AnalysisJobManager jobs) {
+        for (int i = 0; i < positions.size(); i++) {
+            if (!needsSearch(i)) {
+                results[i] = new StockfishIntegration.AnalysisResult();
+                completedPositions.incrementAndGet();
+            }
+        }
+        if (completedPositions.get() == positions.size()) {
+            // Completed off this thread, since callers register the job while start runs
+            CompletableFuture.runAsync(() -> analysed.complete(this));
+            return;
+        }
+
+        List<Integer> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < positions.size(); i++) {
+            if (!needsSearch(i)) continue;
+            batch.add(i);
+            if (batch.size() == BATCH_SIZE) {
+                queueBatch(jobs, batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            queueBatch(jobs, batch);
+        }
+    }
+
+    private void queueBatch(AnalysisJobManager jobs, List<Integer> indices) {
+        List<String> fens = new ArrayList<>(indices.size());
+        for (int index : indices) {
+            fens.add(positions.get(index));
+        }
+        pending.add(jobs.analyzeBatch(fens, REVIEW_ANALYSIS,
+                (position, result) -> onPositionAnalyzed(indices.get(position), result)));
+    }
+
+    /**
+     * A position is searched unless every move next to it is a book move.
+     */
+    private boolean needsSearch(int positionIndex) {
+        return positionIndex < book.length && !book[positionIndex]
+                || positionIndex > 0 && !book[positionIndex - 1];
+    }
+
+    private void onPositionAnalyzed(int index, StockfishIntegration.AnalysisResult result) {
+        if (cancelled) return;
+        results[index] = result;
+
+        int completed = completedPositions.incrementAndGet();
+        for (Consumer<GameReviewJob> listener : progressListeners) {
+            try {
+                listener.accept(this);
+            } catch (RuntimeException e) {
+                System.err.println("[GUIChess] Review progress listener failed: " + e.getMessage());
+            }
+        }
+        if (completed == positions.size()) {
+            analysed.complete(this);
+        }
+    }
+
+    /**
+     * Completes once every position has a result, before anything is written back.
+     */
+    CompletableFuture<GameReviewJob> whenAnalysed() {
+        return analysed;
+    }
+
+    /**
+     * Marks the review as finished and its results as applied.
+     */
+    void finish() {
+        completion.complete(this);
+    }
+
+    /**
+     * Completes after every position is analysed and, for a saved game, the results are stored in its history.
+     */
+    public CompletableFuture<GameReviewJob> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Drops positions that have not been searched yet. The review never completes afterwards.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (CompletableFuture<List<StockfishIntegration.AnalysisResult>> future : pending) {
+            future.cancel(false);
+        }
+        completion.cancel(false);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    public UUID getGameId() {
+        return gameId;
+    }
+
+    /**
+     * Called on the engine's delivery threads after each analysed position.
+     */
+    public void addProgressListener(Consumer<GameReviewJob> listener) {
+        progressListeners.add(listener);
+    }
+
+    public void removeProgressListener(Consumer<GameReviewJob> listener) {
+        progressListeners.remove(listener);
+    }
+
+    public int getCompletedPositions() {
+        return completedPositions.get();
+    }
+
+    public int getTotalPositions() {
+        return positions.size();
+    }
+
+    public int getProgressPercent() {
+        return (int) (getCompletedPositions() * 100.0 / positions.size());
+    }
+
+    public int getMoveCount() {
+        return positions.size() - 1;
+    }
+
+    public boolean isBookMove(int moveIndex) {
+        return book[moveIndex];
+    }
+
+    /**
+     * Whether the move is a book move or both positions around it were analysed without error.
+     */
+    public boolean hasResult(int moveIndex) {
+        if (book[moveIndex]) return true;
+        StockfishIntegration.AnalysisResult before = results[moveIndex];
+        StockfishIntegration.AnalysisResult after = results[moveIndex + 1];
+        return before != null && after != null && before.error == null && after.error == null;
+    }
+
+    /**
+     * Evaluation of the position before the move, for the side about to play it.
+     */
+    public String getEvaluation(int moveIndex) {
+        if (book[moveIndex]) return "Book";
+        String evaluation = results[moveIndex].evaluation;
+        return evaluation != null ? evaluation : "0.00";
+    }
+
+    /**
+     * Engine's move for the position before the move, or null for a book move.
+     */
+    public String getBestMove(int moveIndex) {
+        if (book[moveIndex]) return null;
+        return results[moveIndex].bestMove;
+    }
+
+    public int getCentipawnLoss(int moveIndex) {
+        if (book[moveIndex]) return 0;
+        // The position after the move is scored for the opponent, so the mover's score there is its negation
+        return Math.max(0, clampScore(results[moveIndex].centipawns) + clampScore(results[moveIndex + 1].centipawns));
+    }
+
+    /**
+     * Move accuracy from 0 to 100, based on how much winning chance the move gave away.
+     */
+    public double getAccuracy(int moveIndex) {
+        if (book[moveIndex]) return 100;
+        double winBefore = winPercent(clampScore(results[moveIndex].centipawns));
+        double winAfter = winPercent(-clampScore(results[moveIndex + 1].centipawns));
+        double accuracy = 103.1668 * Math.exp(-0.04354 * Math.max(0, winBefore - winAfter)) - 3.1669;
+        return Math.max(0, Math.min(100, accuracy));
+    }
+
+    public String getClassification(int moveIndex) {
+        if (book[moveIndex]) return "Book";
+        int centipawnLoss = getCentipawnLoss(moveIndex);
+        if (centipawnLoss <= 10) return "Best";
+        if (centipawnLoss <= 25) return "Good";
+        if (centipawnLoss <= 50) return "Inaccuracy";
+        if (centipawnLoss <= 100) return "Mistake";
+        return "Blunder";
+    }
+
+    /**
+     * Writes evaluations and classifications into the game's move records.
+     * Moves whose positions failed to analyse keep no evaluation, so a later review retries them.
+     */
+    public void applyTo(GameHistory gameHistory) {
+        for (int i = 0; i < gameHistory.moves.size() && i < getMoveCount(); i++) {
+            GameHistory.MoveRecord move = gameHistory.moves.get(i);
+            if (!hasResult(i)) {
+                move.stockfishEvaluation = null;
+                move.bestMove = null;
+                continue;
+            }
+            move.stockfishEvaluation = getEvaluation(i);
+            move.bestMove = getBestMove(i);
+            if (book[i]) {
+                classifyBookMove(move);
+            } else {
+                classifyMove(move, getCentipawnLoss(i));
+            }
+        }
+    }
+
+    /**
+     * Classifies a move based on its centipawn loss and special characteristics.
+     * Uses updated thresholds for Stockfish's normalized evaluation system.
+     *
+     * <p>Classification thresholds adjusted for the new evaluation format where
+     * 1.0 pawn = 50% win probability. Thresholds are more sensitive to reflect
+     * the probabilistic nature of modern engine evaluation.
+     *
+     * @param move the move record to classify
+     * @param centipawnLoss the centipawn loss caused by this move
+     */
+    public static void classifyMove(GameHistory.MoveRecord move, int centipawnLoss) {
+        move.centipawnLoss = centipawnLoss;
+
+        move.isBook = false;
+        move.isBrilliant = false;
+        move.isGood = false;
+        move.isInaccuracy = false;
+        move.isMistake = false;
+        move.isBlunder = false;
+
+        if (move.wasCheckmate) {
+            move.isBrilliant = true;
+            move.centipawnLoss = 0;
+            return;
+        }
+
+        // Brilliant moves: significant improvement or tactical genius
+        if (centipawnLoss < -25 ||
+            (move.wasCapture && centipawnLoss < -10) ||
+            (move.wasPromotion && centipawnLoss <= 0)) {
+            move.isBrilliant = true;
+            return;
+        }
+
+        if (centipawnLoss <= 10) {
+            move.isGood = true; // Best move or near-best
+        } else if (centipawnLoss <= 25) {
+            move.isGood = true; // Good move
+        } else if (centipawnLoss <= 50) {
+            move.isInaccuracy = true; // Minor error (~5% win probability loss)
+        } else if (centipawnLoss <= 100) {
+            move.isMistake = true; // Significant error (~10% win probability loss)
+        } else {
+            move.isBlunder = true; // Major error (>10% win probability loss)
+        }
+    }
+
+    /**
+     * Marks an opening move from the book, which is neither good nor bad and costs nothing.
+     */
+    public static void classifyBookMove(GameHistory.MoveRecord move) {
+        move.centipawnLoss = 0;
+        move.isBook = true;
+        move.isBrilliant = false;
+        move.isGood = false;
+        move.isInaccuracy = false;
+        move.isMistake = false;
+        move.isBlunder = false;
+    }
+
+    /**
+     * Caps tablebase-sized scores at the mate value so one decisive move cannot dwarf the rest.
+     */
+    private static int clampScore(int centipawns) {
+        return Math.max(-MATE_SCORE, Math.min(MATE_SCORE, centipawns));
+    }
+
+    private static double winPercent(int centipawns) {
+        return 50 + 50 * (2 / (1 + Math.exp(-0.00368208 * centipawns)) - 1);
+    }
+}
@@ -2,15 +2,11 @@ package com.leclowndu93150.guichess.engine.analysis;
 
 import com.leclowndu93150.guichess.chess.board.ChessMove;
 import com.leclowndu93150.guichess.engine.integration.StockfishEngineManager;
-import com.leclowndu93150.guichess.engine.integration.StockfishIntegration;
-import com.leclowndu93150.guichess.game.core.ChessBoard;
 import com.leclowndu93150.guichess.game.core.ChessGame;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -25,6 +21,7 @@ public class PositionAnalyzer {
 
     /**
      * Analyzes game accuracy for all moves in the game.
+     * Runs as a background review in the {@link AnalysisJobManager}, behind live hints and bot moves.
      * 
      * @param game the chess game to analyze
      * @param callback callback to receive the analysis result
@@ -35,41 +32,24 @@ public class PositionAnalyzer {
             return;
         }
 
-        CompletableFuture.runAsync(() -> {
+        List<ChessMove> moves = new ArrayList<>(game.getBoard().getMoveHistory());
+        GameReviewJob job = AnalysisJobManager.getInstance().reviewMoves(game.getGameId(), moves);
+        job.getCompletion().thenAccept(review -> {
             GameAnalysis analysis = new GameAnalysis();
             analysis.gameId = game.getGameId();
-            analysis.moves = game.getBoard().getMoveHistory();
-
-            ChessBoard tempBoard = new ChessBoard();
-            for (int i = 0; i < analysis.moves.size(); i++) {
-                ChessMove move = analysis.moves.get(i);
-                String fen = tempBoard.toFEN();
-
-                CompletableFuture<StockfishIntegration.AnalysisResult> future = new CompletableFuture<>();
-                stockfish.analyzePosition(fen, future::complete);
-
-                try {
-                    StockfishIntegration.AnalysisResult result = future.get(5, TimeUnit.SECONDS);
-
-                    MoveAnalysis moveAnalysis = new MoveAnalysis();
-                    moveAnalysis.moveNumber = i + 1;
-                    moveAnalysis.move = move;
-                    moveAnalysis.bestMove = result.bestMove;
-                    moveAnalysis.evaluation = result.evaluation;
-
-                    if (move.toNotation().equals(result.bestMove)) {
-                        moveAnalysis.accuracy = 100.0;
-                        moveAnalysis.classification = "Best";
-                    } else {
-                        moveAnalysis.accuracy = 85.0;
-                        moveAnalysis.classification = "Good";
-                    }
-
-                    analysis.moveAnalyses.add(moveAnalysis);
-                    tempBoard.makeMove(move);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+            analysis.moves = moves;
+
+            for (int i = 0; i < moves.size(); i++) {
+                if (!review.hasResult(i)) continue;
+
+                MoveAnalysis moveAnalysis = new MoveAnalysis();
+                moveAnalysis.moveNumber = i + 1;
+                moveAnalysis.move = moves.get(i);
+                moveAnalysis.bestMove = review.getBestMove(i);
+                moveAnalysis.evaluation = review.getEvaluation(i);
+                moveAnalysis.accuracy = review.getAccuracy(i);
+                moveAnalysis.classification = review.getClassification(i);
+                analysis.moveAnalyses.add(moveAnalysis);
             }
 
             analysis.whiteAccuracy = analysis.moveAnalyses.stream()
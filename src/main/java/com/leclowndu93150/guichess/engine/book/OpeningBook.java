@@ -0,0 +1,293 @@
+package com.leclowndu93150.guichess.engine.book;
+
+import com.leclowndu93150.guichess.chess.pieces.PieceType;
+import com.leclowndu93150.guichess.engine.integration.StockfishIntegration;
+import com.leclowndu93150.guichess.game.core.ChessBoard;
+import com.leclowndu93150.guichess.game.core.IntMoveList;
+import com.leclowndu93150.guichess.game.core.PackedMove;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Opening moves looked up in a book file instead of searched, for bot moves and game reviews.
+ *
+ * The book is {@code book.bin} in the config directory, memory-mapped rather than read onto the heap.
+ * It uses Polyglot's layout: 16-byte big-endian entries of key, move, weight and learn data, sorted by
+ * key, one entry per book move. The keys are {@link ChessBoard#getZobristKey()} rather than Polyglot's
+ * Random64 hashes, so a Polyglot book made for other engines matches no position here.
+ *
+ * {@code book.txt} next to it lists opening lines as UCI moves from the starting position, one line
+ * per row with an optional leading weight, and is compiled into {@code book.bin} whenever it is newer.
+ * A default list is written on first start. Turn the book off with {@code -Dchess.book=false}.
+ */
+public final class OpeningBook {
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("chess.book", "true"));
+    private static final String BOOK_FILE = "book.bin";
+    private static final String SOURCE_FILE = "book.txt";
+    private static final String DEFAULT_SOURCE = "/guichess/book.txt";
+    private static final int ENTRY_BYTES = 16;
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    private static OpeningBook instance;
+
+    // Only replaced by load, and absolute reads leave the buffer unchanged, so lookups need no lock
+    private volatile ByteBuffer entries;
+    private volatile int entryCount = 0;
+
+    private OpeningBook() {
+    }
+
+    public static OpeningBook getInstance() {
+        if (instance == null) {
+            synchronized (OpeningBook.class) {
+                if (instance == null) {
+                    instance = new OpeningBook();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Maps the book in the directory, compiling it from its source list first if that changed.
+     * Until this has run, and if there is no book, every position is out of book.
+     */
+    public void load(Path directory) throws IOException {
+        if (!ENABLED) return;
+        Path book = directory.resolve(BOOK_FILE);
+        Path source = directory.resolve(SOURCE_FILE);
+
+        if (!Files.exists(book) && !Files.exists(source)) {
+            try (InputStream defaults = OpeningBook.class.getResourceAsStream(DEFAULT_SOURCE)) {
+                if (defaults == null) return;
+                Files.createDirectories(directory);
+                Files.copy(defaults, source);
+            }
+        }
+        if (Files.exists(source) && (!Files.exists(book)
+                || Files.getLastModifiedTime(source).compareTo(Files.getLastModifiedTime(book)) > 0)) {
+            compile(source, book);
+        }
+        if (!Files.exists(book)) return;
+
+        try (FileChannel channel = FileChannel.open(book, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Opening book is larger than 2 GB: " + book);
+            }
+            // The mapping stays valid after the channel is closed
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            entries = mapped;
+            entryCount = (int) (size / ENTRY_BYTES);
+        }
+        System.err.println("[GUIChess] Opening book loaded: " + entryCount + " moves from " + book);
+    }
+
+    public boolean isLoaded() {
+        return entryCount > 0;
+    }
+
+    /**
+     * Legal book moves for the position, as packed moves, with their weights. Empty when out of book.
+     */
+    public List<BookMove> getMoves(ChessBoard board) {
+        List<BookMove> moves = new ArrayList<>();
+        // Count first: load publishes the buffer before the count
+        int count = entryCount;
+        ByteBuffer buffer = entries;
+        if (count == 0) return moves;
+
+        long key = board.getZobristKey();
+        int index = firstEntry(buffer, count, key);
+        if (index >= count || buffer.getLong(index * ENTRY_BYTES) != key) return moves;
+
+        IntMoveList legal = new IntMoveList();
+        board.getLegalMoves(legal);
+        for (; index < count && buffer.getLong(index * ENTRY_BYTES) == key; index++) {
+            int bookMove = buffer.getShort(index * ENTRY_BYTES + 8) & 0xFFFF;
+            int weight = buffer.getShort(index * ENTRY_BYTES + 10) & 0xFFFF;
+            // A different position with the same key would offer moves that are not legal here
+            for (int i = 0; i < legal.size(); i++) {
+                if (toBookMove(legal.get(i)) == bookMove) {
+                    moves.add(new BookMove(legal.get(i), weight));
+                    break;
+                }
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Whether the move is in the book for the position, whatever its weight.
+     */
+    public boolean contains(ChessBoard board, int move) {
+        for (BookMove bookMove : getMoves(board)) {
+            if (PackedMove.sameMove(bookMove.move, move)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * A book move picked at random in proportion to its weight, or 0 when out of book.
+     * Moves with weight 0 are in the book but never picked.
+     */
+    public int pickMove(ChessBoard board) {
+        List<BookMove> moves = getMoves(board);
+        int total = 0;
+        for (BookMove move : moves) {
+            total += move.weight;
+        }
+        if (total == 0) return 0;
+
+        int roll = ThreadLocalRandom.current().nextInt(total);
+        for (BookMove move : moves) {
+            roll -= move.weight;
+            if (roll < 0) return move.move;
+        }
+        return 0;
+    }
+
+    /**
+     * {@link #pickMove} as an engine result for bot games, or null when out of book.
+     */
+    public StockfishIntegration.AnalysisResult pickResult(ChessBoard board) {
+        int move = pickMove(board);
+        if (move == 0) return null;
+
+        StockfishIntegration.AnalysisResult result = new StockfishIntegration.AnalysisResult();
+        result.bestMove = PackedMove.toUci(move);
+        result.principalVariation = result.bestMove;
+        result.evaluation = "Book";
+        return result;
+    }
+
+    /**
+     * Writes the book for a list of opening lines. Each row is an optional weight followed by UCI moves
+     * from the starting position; every move along a row adds the row's weight to that book move.
+     * Rows starting with {@code #} are comments, and a row stops at its first illegal move.
+     */
+    public static void compile(Path source, Path target) throws IOException {
+        Map<Long, Map<Integer, Integer>> weights = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            String row;
+            int rowNumber = 0;
+            while ((row = reader.readLine()) != null) {
+                rowNumber++;
+                String[] tokens = row.trim().split("\\s+");
+                if (tokens[0].isEmpty() || tokens[0].startsWith("#")) continue;
+
+                int weight = 1;
+                int first = 0;
+                if (Character.isDigit(tokens[0].charAt(0))) {
+                    weight = Integer.parseInt(tokens[0]);
+                    first = 1;
+                }
+                ChessBoard board = new ChessBoard();
+                IntMoveList legal = new IntMoveList();
+                for (int t = first; t < tokens.length; t++) {
+                    int move = findMove(board, legal, tokens[t]);
+                    if (move == 0) {
+                        System.err.println("[GUIChess] " + source.getFileName() + " row " + rowNumber
+                                + ": illegal move " + tokens[t] + ", rest of the row skipped");
+                        break;
+                    }
+                    weights.computeIfAbsent(board.getZobristKey(), key -> new HashMap<>())
+                            .merge(toBookMove(move), weight, Integer::sum);
+                    board.makeUnchecked(move);
+                }
+            }
+        }
+
+        List<Long> keys = new ArrayList<>(weights.keySet());
+        keys.sort(Long::compareUnsigned);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            for (long key : keys) {
+                List<Map.Entry<Integer, Integer>> moves = new ArrayList<>(weights.get(key).entrySet());
+                // Polyglot lists a position's moves heaviest first
+                moves.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+                for (Map.Entry<Integer, Integer> move : moves) {
+                    out.writeLong(key);
+                    out.writeShort(move.getKey());
+                    out.writeShort(Math.min(MAX_WEIGHT, move.getValue()));
+                    out.writeInt(0);
+                }
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int findMove(ChessBoard board, IntMoveList legal, String uci) {
+        board.getLegalMoves(legal);
+        for (int i = 0; i < legal.size(); i++) {
+            if (PackedMove.toUci(legal.get(i)).equals(uci)) return legal.get(i);
+        }
+        return 0;
+    }
+
+    /**
+     * Lowest index whose key is not below the given one, in Polyglot's unsigned key order.
+     */
+    private static int firstEntry(ByteBuffer buffer, int count, long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(buffer.getLong(middle * ENTRY_BYTES), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Polyglot's move encoding: destination in bits 0-5, origin in 6-11 and promotion piece in 12-14.
+     * Castling is written as the king moving onto its own rook.
+     */
+    private static int toBookMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        if (PackedMove.isCastling(move)) {
+            to = to > from ? to + 1 : to - 2;
+        }
+        PieceType promotion = PackedMove.promotion(move);
+        int promotionCode = promotion == null ? 0 : switch (promotion) {
+            case KNIGHT -> 1;
+            case BISHOP -> 2;
+            case ROOK -> 3;
+            default -> 4;
+        };
+        return to | from << 6 | promotionCode << 12;
+    }
+
+    /**
+     * One book move for a position: a packed move and its relative weight.
+     */
+    public static final class BookMove {
+        public final int move;
+        public final int weight;
+
+        BookMove(int move, int weight) {
+            this.move = move;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.leclowndu93150.guichess.engine.integration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Handle to a streaming search started with
+ * {@link IStockfishEngine#subscribeAnalysis(String, EngineRequest, Consumer)}.
+ * Updates keep arriving until the search finishes or {@link #cancel()} is called.
+ */
+public class AnalysisSubscription {
+    private final CompletableFuture<StockfishIntegration.AnalysisResult> result = new CompletableFuture<>();
+    // Cancelled with the subscription, so a search still queued for the engine is dropped
+    private final CompletableFuture<Void> cancellation = new CompletableFuture<>();
+    private final Consumer<AnalysisUpdate> listener;
+    private volatile boolean cancelled = false;
+    private volatile Runnable stopAction;
+
+    AnalysisSubscription(Consumer<AnalysisUpdate> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Completes with the final result once the search ends, including after a cancel.
+     */
+    public CompletableFuture<StockfishIntegration.AnalysisResult> getResult() {
+        return result;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stops the search and the updates. Safe to call more than once.
+     */
+    public void cancel() {
+        cancelled = true;
+        cancellation.cancel(false);
+        Runnable stop = stopAction;
+        if (stop != null) {
+            stop.run();
+        }
+    }
+
+    /**
+     * For {@link EngineRequest#withCancellation}, so the engine gives up a search that has not started yet.
+     */
+    CompletableFuture<Void> getCancellation() {
+        return cancellation;
+    }
+
+    /**
+     * Called by the engine once the search runs, with the action that stops it.
+     */
+    void onStarted(Runnable stopAction) {
+        this.stopAction = stopAction;
+        if (cancelled) {
+            stopAction.run();
+        }
+    }
+
+    void publish(AnalysisUpdate update) {
+        if (cancelled) return;
+        try {
+            listener.accept(update);
+        } catch (RuntimeException e) {
+            System.err.println("[Stockfish] Analysis listener failed: " + e.getMessage());
+        }
+    }
+
+    void complete(StockfishIntegration.AnalysisResult analysis, Throwable throwable) {
+        if (throwable != null) {
+            result.complete(new StockfishIntegration.AnalysisResult("Analysis failed: " + throwable.getMessage()));
+        } else {
+            result.complete(analysis);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.leclowndu93150.guichess.engine.integration;
+
+/**
+ * One {@code info ... score ... pv} line of a running search.
+ * Scores are from the side to move, like UCI reports them.
+ */
+public class AnalysisUpdate {
+    public int multiPv = 1;
+    public int depth;
+    public int selDepth;
+    public int centipawns;
+    public boolean isMate = false;
+    public int mateIn;
+    public long nodes;
+    public long nodesPerSecond;
+    // Permille of the hash table in use, -1 if not reported
+    public int hashFull = -1;
+    public String principalVariation;
+    public String evaluation;
+
+    /**
+     * First move of the principal variation in UCI notation, or null.
+     */
+    public String getBestMove() {
+        if (principalVariation == null || principalVariation.isEmpty()) return null;
+        int space = principalVariation.indexOf(' ');
+        return space < 0 ? principalVariation : principalVariation.substring(0, space);
+    }
+
+    /**
+     * Parses an info line that carries a score and a PV; returns null for other info lines.
+     * Callers parsing many lines should keep a {@link UciInfo} and use {@link #set} instead.
+     */
+    public static AnalysisUpdate parse(String line) {
+        UciInfo info = new UciInfo();
+        if (!info.parse(line)) return null;
+        AnalysisUpdate update = new AnalysisUpdate();
+        update.set(info);
+        return update;
+    }
+
+    /**
+     * Copies a parsed scored line into this update, replacing all of its fields.
+     */
+    public void set(UciInfo info) {
+        multiPv = info.multiPv;
+        depth = info.depth;
+        selDepth = info.selDepth;
+        nodes = info.nodes;
+        nodesPerSecond = info.nodesPerSecond;
+        hashFull = info.hashFull;
+        principalVariation = info.getPrincipalVariation();
+        isMate = info.isMate;
+        if (info.isMate) {
+            mateIn = info.score;
+            centipawns = info.score > 0 ? 10000 : -10000;
+            evaluation = "Mate in " + Math.abs(info.score);
+        } else {
+            mateIn = 0;
+            centipawns = info.score;
+            evaluation = formatPawns(info.score);
+        }
+    }
+
+    /**
+     * Centipawns as pawns with two decimals, e.g. -0.05. Always uses a dot, unlike String.format.
+     */
+    static String formatPawns(int centipawns) {
+        int magnitude = Math.abs(centipawns);
+        int fraction = magnitude % 100;
+        return (centipawns < 0 ? "-" : "") + magnitude / 100 + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %s (Depth: %d) %s", multiPv,
+                evaluation != null ? evaluation : "?", depth,
+                principalVariation != null ? principalVariation : "");
+    }
+}
@@ -0,0 +1,194 @@
+package com.leclowndu93150.guichess.engine.integration;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Latency and error statistics for one engine backend, and the circuit breaker built on them.
+ *
+ * The breaker opens after {@value #CONSECUTIVE_FAILURES} failures in a row, or when more than half
+ * of the recent calls failed; a call slower than the backend's slow-call limit counts as a failure.
+ * An open backend gets no traffic until its cooldown has passed and a probe succeeds. Each failed
+ * probe doubles the cooldown.
+ */
+final class BackendHealth {
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int WINDOW = 50;
+    private static final int MIN_CALLS = 10;
+    private static final int CONSECUTIVE_FAILURES = 3;
+    private static final double MAX_FAILURE_RATE = 0.5;
+    private static final long BASE_COOLDOWN_MS = 15000;
+    private static final long MAX_COOLDOWN_MS = 300000;
+    // Bucket i counts calls that took under 2^i ms; the last bucket takes everything slower
+    private static final int HISTOGRAM_BUCKETS = 17;
+    // Weight of the newest call in the per-class moving averages
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final String name;
+    private final long slowCallMs;
+
+    // The last WINDOW calls, overwritten in a ring
+    private final long[] recentLatency = new long[WINDOW];
+    private final boolean[] recentFailed = new boolean[WINDOW];
+    private int recentCount = 0;
+    private int recentNext = 0;
+
+    private final long[] histogram = new long[HISTOGRAM_BUCKETS];
+    private final Map<EnginePriority, Double> averageLatency = new EnumMap<>(EnginePriority.class);
+    private long calls = 0;
+    private long failures = 0;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long cooldownMs = BASE_COOLDOWN_MS;
+    private long openUntil = 0;
+
+    /**
+     * @param slowCallMs calls slower than this count as failures, 0 to never count slowness
+     */
+    BackendHealth(String name, long slowCallMs) {
+        this.name = name;
+        this.slowCallMs = slowCallMs;
+    }
+
+    /**
+     * Whether regular traffic may be routed to this backend.
+     */
+    synchronized boolean allowsRequests() {
+        return state == State.CLOSED;
+    }
+
+    /**
+     * Moves an open breaker whose cooldown has passed to half-open, for exactly one probe.
+     * @return whether the caller should probe now
+     */
+    synchronized boolean startProbe(long now) {
+        if (state != State.OPEN || now < openUntil) return false;
+        state = State.HALF_OPEN;
+        return true;
+    }
+
+    /**
+     * Closes the breaker after a probe that answered in time, otherwise reopens it for longer.
+     */
+    synchronized void finishProbe(boolean succeeded, long latencyMs) {
+        if (state != State.HALF_OPEN) return;
+        if (succeeded && !isSlow(latencyMs)) {
+            System.err.println("[Stockfish] " + name + " engine recovered, routing to it again");
+            close();
+        } else {
+            cooldownMs = Math.min(MAX_COOLDOWN_MS, cooldownMs * 2);
+            open(succeeded ? "probe took " + latencyMs + "ms" : "probe failed");
+        }
+    }
+
+    /**
+     * Opens or closes the breaker from an availability check, such as the one at startup.
+     */
+    synchronized void reset(boolean available) {
+        if (available) {
+            close();
+        } else if (state == State.CLOSED) {
+            open("unavailable");
+        }
+    }
+
+    void recordSuccess(EnginePriority priority, long latencyMs) {
+        record(priority, latencyMs, isSlow(latencyMs));
+    }
+
+    void recordFailure(EnginePriority priority, long latencyMs) {
+        record(priority, latencyMs, true);
+    }
+
+    private synchronized void record(EnginePriority priority, long latencyMs, boolean failed) {
+        calls++;
+        if (failed) failures++;
+        histogram[bucket(latencyMs)]++;
+        Double average = averageLatency.get(priority);
+        averageLatency.put(priority, average == null ? latencyMs
+                : average + LATENCY_SMOOTHING * (latencyMs - average));
+
+        recentLatency[recentNext] = latencyMs;
+        recentFailed[recentNext] = failed;
+        recentNext = (recentNext + 1) % WINDOW;
+        recentCount = Math.min(WINDOW, recentCount + 1);
+
+        // Calls that were already running when the breaker opened do not move it
+        if (state != State.CLOSED) return;
+        consecutiveFailures = failed ? consecutiveFailures + 1 : 0;
+        if (consecutiveFailures >= CONSECUTIVE_FAILURES) {
+            open(consecutiveFailures + " failures in a row");
+        } else if (recentCount >= MIN_CALLS && getRecentFailureRate() > MAX_FAILURE_RATE) {
+            open(String.format("%.0f%% of recent calls failed", getRecentFailureRate() * 100));
+        }
+    }
+
+    /**
+     * Smoothed latency of this backend for one class of request, or NaN before its first call.
+     */
+    synchronized double getAverageLatency(EnginePriority priority) {
+        Double average = averageLatency.get(priority);
+        return average != null ? average : Double.NaN;
+    }
+
+    synchronized double getRecentFailureRate() {
+        if (recentCount == 0) return 0.0;
+        int failed = 0;
+        for (int i = 0; i < recentCount; i++) {
+            if (recentFailed[i]) failed++;
+        }
+        return (double) failed / recentCount;
+    }
+
+    /**
+     * Latency percentile over the recent calls, in milliseconds.
+     */
+    synchronized long getRecentLatency(double percentile) {
+        if (recentCount == 0) return 0;
+        long[] sorted = Arrays.copyOf(recentLatency, recentCount);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(recentCount - 1, Math.floor(percentile * recentCount))];
+    }
+
+    /**
+     * Breaker state, recent percentiles and the non-empty latency buckets since startup.
+     */
+    synchronized String describe() {
+        StringBuilder description = new StringBuilder(String.format(
+                "%s, %d calls, %d failed, p50 %dms, p90 %dms, %.0f%% recent errors",
+                state, calls, failures, getRecentLatency(0.5), getRecentLatency(0.9), getRecentFailureRate() * 100));
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            if (histogram[i] == 0) continue;
+            description.append(i == HISTOGRAM_BUCKETS - 1 ? " | slower: " : " | <" + (1L << i) + "ms: ").append(histogram[i]);
+        }
+        return description.toString();
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + cooldownMs;
+        System.err.println("[Stockfish] " + name + " engine circuit opened (" + reason + "), next probe in "
+                + cooldownMs / 1000 + "s");
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        cooldownMs = BASE_COOLDOWN_MS;
+        // Failures from before the outage should not reopen the breaker straight away
+        recentCount = 0;
+        recentNext = 0;
+    }
+
+    private boolean isSlow(long latencyMs) {
+        return slowCallMs > 0 && latencyMs > slowCallMs;
+    }
+
+    private static int bucket(long latencyMs) {
+        int bucket = 64 - Long.numberOfLeadingZeros(Math.max(0, latencyMs));
+        return Math.min(HISTOGRAM_BUCKETS - 1, bucket);
+    }
+}
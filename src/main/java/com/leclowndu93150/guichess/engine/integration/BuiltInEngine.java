@@ -0,0 +1,209 @@
+package com.leclowndu93150.guichess.engine.integration;
+
+import com.leclowndu93150.guichess.engine.search.RootSplitSearch;
+import com.leclowndu93150.guichess.engine.search.Search;
+import com.leclowndu93150.guichess.engine.search.TranspositionTable;
+import com.leclowndu93150.guichess.game.core.ChessBoard;
+import com.leclowndu93150.guichess.game.core.PackedMove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Plays bot moves with the in-JVM {@link Search} instead of Stockfish.
+ *
+ * Bots below {@link #MAX_ELO} always play here; the search depth grows with the target Elo and the
+ * random margin between root moves shrinks with it. Stronger bots use Stockfish, and fall back to
+ * a full-strength search here when no Stockfish backend can answer. Change the cut-off with
+ * {@code -Dchess.bot.builtin.maxelo=<elo>}, 0 to send every bot to Stockfish.
+ *
+ * Hints and board analysis split the root with {@link RootSplitSearch} to use every core. They run
+ * here when no Stockfish backend can answer, or always with {@code -Dchess.analysis.builtin=true}.
+ */
+final class BuiltInEngine {
+    static final int MAX_ELO = Integer.getInteger("chess.bot.builtin.maxelo", 2100);
+    private static final int MAX_BOT_DEPTH = 6;
+    // Used when a full-strength fallback request has no time limit of its own
+    private static final int FALLBACK_MOVE_TIME_MS = 1000;
+    static final boolean PREFERRED_FOR_ANALYSIS = Boolean.getBoolean("chess.analysis.builtin");
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)), runnable -> {
+                Thread thread = new Thread(runnable, "Chess-Search");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Whether the request should be served here rather than by Stockfish: a bot move weak enough,
+     * or analysis when the built-in engine is preferred for it.
+     */
+    boolean handles(EngineRequest request) {
+        if (isAnalysis(request)) return PREFERRED_FOR_ANALYSIS;
+        return request.getTargetElo() > 0 && request.getTargetElo() < MAX_ELO;
+    }
+
+    /**
+     * Whether the request may be served here when no Stockfish backend can answer it.
+     */
+    boolean canStandIn(EngineRequest request) {
+        return request.getPriority() == EnginePriority.BOT_MOVE || isAnalysis(request);
+    }
+
+    /**
+     * Hints and live analysis, which a player is waiting on, get every core; bot moves get one thread each.
+     */
+    private static boolean isAnalysis(EngineRequest request) {
+        return request.getPriority() == EnginePriority.LIVE_HINT || request.getPriority() == EnginePriority.LIVE_ANALYSIS;
+    }
+
+    /**
+     * Searches on the built-in engine's threads. Never completes exceptionally.
+     */
+    CompletableFuture<StockfishIntegration.AnalysisResult> analyze(String fen, EngineRequest request) {
+        return CompletableFuture.supplyAsync(() -> {
+                    EngineRequest fitted = request.fitToDeadline(System.currentTimeMillis());
+                    return isAnalysis(fitted) ? searchLines(fen, fitted, null) : search(fen, fitted);
+                }, executor)
+                .exceptionally(throwable -> new StockfishIntegration.AnalysisResult("Built-in search failed: " + throwable.getMessage()));
+    }
+
+    /**
+     * Streams the ranked lines of a root-split search after every iteration.
+     */
+    AnalysisSubscription subscribe(String fen, EngineRequest request, Consumer<AnalysisUpdate> listener) {
+        AnalysisSubscription subscription = new AnalysisSubscription(listener);
+        CompletableFuture.supplyAsync(() -> searchLines(fen, request, subscription), executor)
+                .whenComplete(subscription::complete);
+        return subscription;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private StockfishIntegration.AnalysisResult search(String fen, EngineRequest request) {
+        ChessBoard board;
+        try {
+            board = new ChessBoard(fen);
+        } catch (IllegalArgumentException e) {
+            return new StockfishIntegration.AnalysisResult("Invalid position: " + e.getMessage());
+        }
+
+        // Every game searches into the one shared table, so memory stays fixed however many are running
+        Search search = new Search(board, TranspositionTable.getShared());
+        int depth = request.getDepth();
+        int moveTime = request.getMoveTimeMs() > 0 ? request.getMoveTimeMs() : FALLBACK_MOVE_TIME_MS;
+        int elo = request.getTargetElo();
+        if (handles(request)) {
+            depth = Math.min(depth, depthFor(elo));
+            search.setNoise(noiseFor(elo), ThreadLocalRandom.current().nextLong());
+        }
+
+        Search.Result result = search.run(depth, moveTime, request.getNodes());
+        if (result.bestMove == 0) {
+            return new StockfishIntegration.AnalysisResult("No legal moves");
+        }
+        return toAnalysisResult(List.of(toUpdate(1, result.score, result.isMate(), result.mateIn(), result.depth,
+                result.nodes, result.elapsedMs, result.principalVariation)));
+    }
+
+    /**
+     * Ranks the root moves on the shared root search pool, publishing each iteration's lines if subscribed.
+     */
+    private StockfishIntegration.AnalysisResult searchLines(String fen, EngineRequest request, AnalysisSubscription subscription) {
+        ChessBoard board;
+        try {
+            board = new ChessBoard(fen);
+        } catch (IllegalArgumentException e) {
+            return new StockfishIntegration.AnalysisResult("Invalid position: " + e.getMessage());
+        }
+
+        RootSplitSearch search = new RootSplitSearch(board, TranspositionTable.getShared());
+        if (subscription != null) {
+            subscription.onStarted(search::cancel);
+        }
+        int lines = request.getMultiPv();
+        int moveTime = request.getMoveTimeMs() > 0 ? request.getMoveTimeMs() : FALLBACK_MOVE_TIME_MS;
+        List<RootSplitSearch.Line> ranking = search.run(request.getDepth(), moveTime, lines, subscription == null ? null
+                : iteration -> toUpdates(iteration, lines).forEach(subscription::publish));
+        if (ranking.isEmpty()) {
+            return new StockfishIntegration.AnalysisResult("No legal moves");
+        }
+        return toAnalysisResult(toUpdates(ranking, lines));
+    }
+
+    /**
+     * 1 ply at 400, one more every 400 Elo.
+     */
+    private static int depthFor(int elo) {
+        return Math.max(1, Math.min(MAX_BOT_DEPTH, 1 + (elo - 200) / 400));
+    }
+
+    /**
+     * Up to 4.5 pawns at 400 Elo, down to half a pawn at 2000.
+     */
+    private static int noiseFor(int elo) {
+        return Math.max(0, (2200 - elo) / 4);
+    }
+
+    private static List<AnalysisUpdate> toUpdates(List<RootSplitSearch.Line> ranking, int lines) {
+        List<AnalysisUpdate> updates = new ArrayList<>();
+        for (int i = 0; i < Math.min(lines, ranking.size()); i++) {
+            RootSplitSearch.Line line = ranking.get(i);
+            updates.add(toUpdate(i + 1, line.score, line.isMate(), line.mateIn(), line.depth, line.nodes,
+                    line.elapsedMs, line.principalVariation));
+        }
+        return updates;
+    }
+
+    private static AnalysisUpdate toUpdate(int multiPv, int score, boolean isMate, int mateIn, int depth, long nodes,
+                                           long elapsedMs, int[] principalVariation) {
+        StringBuilder line = new StringBuilder();
+        for (int move : principalVariation) {
+            if (!line.isEmpty()) line.append(' ');
+            line.append(PackedMove.toUci(move));
+        }
+
+        AnalysisUpdate update = new AnalysisUpdate();
+        update.multiPv = multiPv;
+        update.depth = depth;
+        update.nodes = nodes;
+        update.nodesPerSecond = nodes * 1000 / Math.max(1, elapsedMs);
+        update.principalVariation = line.toString();
+        if (isMate) {
+            update.isMate = true;
+            update.mateIn = mateIn;
+            update.centipawns = score > 0 ? 10000 : -10000;
+            update.evaluation = "Mate in " + Math.abs(mateIn);
+        } else {
+            update.centipawns = score;
+            update.evaluation = AnalysisUpdate.formatPawns(score);
+        }
+        return update;
+    }
+
+    /**
+     * @param updates best line first, never empty
+     */
+    private static StockfishIntegration.AnalysisResult toAnalysisResult(List<AnalysisUpdate> updates) {
+        AnalysisUpdate best = updates.get(0);
+        StockfishIntegration.AnalysisResult analysis = new StockfishIntegration.AnalysisResult();
+        analysis.bestMove = best.getBestMove();
+        analysis.evaluation = best.evaluation;
+        analysis.principalVariation = best.principalVariation;
+        analysis.depth = best.depth;
+        analysis.nodes = best.nodes;
+        analysis.nodesPerSecond = best.nodesPerSecond;
+        analysis.isMate = best.isMate;
+        analysis.mateIn = best.mateIn;
+        analysis.centipawns = best.centipawns;
+        analysis.variations.addAll(updates);
+        return analysis;
+    }
+}
@@ -0,0 +1,24 @@
+package com.leclowndu93150.guichess.engine.integration;
+
+/**
+ * Order in which engine work is served, most urgent first.
+ */
+public enum EnginePriority {
+    /** A player in a live game is waiting for a hint. */
+    LIVE_HINT,
+    /** A bot needs its next move. */
+    BOT_MOVE,
+    /** Streaming analysis of a practice board or a spectated game. */
+    LIVE_ANALYSIS,
+    /** A bot preparing answers to its opponent's likely replies; wasted if the opponent plays something else. */
+    PONDER,
+    /** Post-game review; runs only when nothing more urgent is waiting. */
+    GAME_REVIEW;
+
+    /**
+     * Long-running work that more urgent requests may stop and send back to the queue.
+     */
+    public boolean isPreemptible() {
+        return this == LIVE_ANALYSIS || this == PONDER || this == GAME_REVIEW;
+    }
+}
@@ -0,0 +1,237 @@
+package com.leclowndu93150.guichess.engine.integration;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Search limits, strength settings and scheduling for a single engine call.
+ * Immutable, so one instance can be shared between games; the {@code with} methods return copies.
+ */
+public final class EngineRequest {
+    public static final int DEFAULT_DEPTH = 15;
+    public static final int DEFAULT_MOVE_TIME_MS = 1000;
+    public static final int MAX_SKILL_LEVEL = 20;
+    public static final int DEFAULT_MULTI_PV = 3;
+    // Kept free before a deadline for sending the move back, and the shortest search worth starting
+    private static final long DEADLINE_MARGIN_MS = 100;
+    private static final int MIN_MOVE_TIME_MS = 50;
+
+    private final int depth;
+    private final int moveTimeMs;
+    private final int skillLevel;
+    private final int multiPv;
+    private final long nodes;
+    private final EnginePriority priority;
+    private final long deadline;
+    private final int targetElo;
+    // Cancelled by the caller once it no longer wants the result, null if it never gives up
+    private final CompletableFuture<?> cancellation;
+
+    private EngineRequest(int depth, int moveTimeMs, int skillLevel, int multiPv, long nodes,
+                          EnginePriority priority, long deadline, int targetElo, CompletableFuture<?> cancellation) {
+        this.depth = Math.max(1, Math.min(30, depth));
+        this.moveTimeMs = Math.max(0, Math.min(60000, moveTimeMs));
+        this.skillLevel = Math.max(-20, Math.min(MAX_SKILL_LEVEL, skillLevel));
+        this.multiPv = Math.max(1, Math.min(10, multiPv));
+        this.nodes = Math.max(0, nodes);
+        this.priority = priority;
+        this.deadline = Math.max(0, deadline);
+        this.targetElo = Math.max(0, targetElo);
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Full strength, {@link #DEFAULT_DEPTH} plies within {@link #DEFAULT_MOVE_TIME_MS}, at hint priority.
+     */
+    public static EngineRequest defaults() {
+        return new EngineRequest(DEFAULT_DEPTH, DEFAULT_MOVE_TIME_MS, MAX_SKILL_LEVEL, DEFAULT_MULTI_PV, 0,
+                EnginePriority.LIVE_HINT, 0, 0, null);
+    }
+
+    /**
+     * Settings for a bot playing at roughly the given Elo.
+     */
+    public static EngineRequest forElo(int targetElo) {
+        int skill;
+        int depth;
+        int moveTime;
+
+        if (targetElo < 400) {
+            skill = -9;
+            depth = 5;
+            moveTime = 1000;
+        } else if (targetElo < 650) {
+            skill = -5;
+            depth = 5;
+            moveTime = 1000;
+        } else if (targetElo < 950) {
+            skill = -1;
+            depth = 5;
+            moveTime = 1000;
+        } else if (targetElo < 1300) {
+            skill = 3;
+            depth = 5;
+            moveTime = 1000;
+        } else if (targetElo < 1700) {
+            skill = 7;
+            depth = 5;
+            moveTime = 1000;
+        } else if (targetElo < 2100) {
+            skill = 11;
+            depth = 8;
+            moveTime = 1500;
+        } else if (targetElo < 2550) {
+            skill = 15;
+            depth = 13;
+            moveTime = 2000;
+        } else {
+            skill = 20;
+            depth = 22;
+            moveTime = 3000;
+        }
+
+        // Bots only need the best line
+        return new EngineRequest(depth, moveTime, skill, 1, 0, EnginePriority.BOT_MOVE, 0, targetElo, null);
+    }
+
+    public EngineRequest withDepth(int depth) {
+        return new EngineRequest(depth, moveTimeMs, skillLevel, multiPv, nodes, priority, deadline, targetElo, cancellation);
+    }
+
+    /**
+     * @param moveTimeMs search time limit, 0 for depth-limited only
+     */
+    public EngineRequest withMoveTime(int moveTimeMs) {
+        return new EngineRequest(depth, moveTimeMs, skillLevel, multiPv, nodes, priority, deadline, targetElo, cancellation);
+    }
+
+    /**
+     * @param skillLevel -20 to 20, higher is stronger
+     */
+    public EngineRequest withSkillLevel(int skillLevel) {
+        return new EngineRequest(depth, moveTimeMs, skillLevel, multiPv, nodes, priority, deadline, targetElo, cancellation);
+    }
+
+    public EngineRequest withMultiPv(int multiPv) {
+        return new EngineRequest(depth, moveTimeMs, skillLevel, multiPv, nodes, priority, deadline, targetElo, cancellation);
+    }
+
+    /**
+     * @param nodes node limit, 0 for none
+     */
+    public EngineRequest withNodes(long nodes) {
+        return new EngineRequest(depth, moveTimeMs, skillLevel, multiPv, nodes, priority, deadline, targetElo, cancellation);
+    }
+
+    public EngineRequest withPriority(EnginePriority priority) {
+        return new EngineRequest(depth, moveTimeMs, skillLevel, multiPv, nodes, priority, deadline, targetElo, cancellation);
+    }
+
+    /**
+     * A search cut short by its deadline is still cached, under the depth it reached.
+     *
+     * @param deadline wall-clock time in milliseconds by which the result is needed, 0 for none
+     */
+    public EngineRequest withDeadline(long deadline) {
+        return new EngineRequest(depth, moveTimeMs, skillLevel, multiPv, nodes, priority, deadline, targetElo, cancellation);
+    }
+
+    /**
+     * Deadline {@code budgetMs} from now, for callers that know how long they can wait.
+     */
+    public EngineRequest withDeadlineIn(long budgetMs) {
+        return withDeadline(System.currentTimeMillis() + Math.max(0, budgetMs));
+    }
+
+    /**
+     * Ties the request to a caller's future: once that future is cancelled, a search still waiting for
+     * a process is dropped and a running one is stopped, and neither is searched again after a preemption.
+     */
+    public EngineRequest withCancellation(CompletableFuture<?> cancellation) {
+        return new EngineRequest(depth, moveTimeMs, skillLevel, multiPv, nodes, priority, deadline, targetElo, cancellation);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getMoveTimeMs() {
+        return moveTimeMs;
+    }
+
+    public int getSkillLevel() {
+        return skillLevel;
+    }
+
+    public int getMultiPv() {
+        return multiPv;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public EnginePriority getPriority() {
+        return priority;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public boolean hasDeadline() {
+        return deadline > 0;
+    }
+
+    public boolean isCancelled() {
+        return cancellation != null && cancellation.isCancelled();
+    }
+
+    /**
+     * Runs the action once the caller cancels; at once if it already has.
+     */
+    void onCancel(Runnable action) {
+        if (cancellation == null) return;
+        cancellation.whenComplete((result, throwable) -> {
+            if (cancellation.isCancelled()) action.run();
+        });
+    }
+
+    /**
+     * The Elo passed to {@link #forElo}, or 0 for a request not made for a bot.
+     */
+    public int getTargetElo() {
+        return targetElo;
+    }
+
+    /**
+     * The limits to search with when starting at {@code now}: the move time is cut so the
+     * result arrives before the deadline, however long the request waited in the queue.
+     */
+    EngineRequest fitToDeadline(long now) {
+        if (deadline == 0) return this;
+        long remaining = deadline - now - DEADLINE_MARGIN_MS;
+        if (moveTimeMs > 0 && moveTimeMs <= remaining) return this;
+        return withMoveTime((int) Math.max(MIN_MOVE_TIME_MS, Math.min(Integer.MAX_VALUE, remaining)));
+    }
+
+    /**
+     * UCI {@code go} command for these limits.
+     */
+    public String toGoCommand() {
+        StringBuilder command = new StringBuilder("go depth ").append(depth);
+        if (moveTimeMs > 0) {
+            command.append(" movetime ").append(moveTimeMs);
+        }
+        if (nodes > 0) {
+            command.append(" nodes ").append(nodes);
+        }
+        return command.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toGoCommand() + " (skill " + skillLevel + (targetElo > 0 ? ", elo " + targetElo : "")
+                + ", multipv " + multiPv + ", " + priority
+                + (deadline > 0 ? ", deadline in " + (deadline - System.currentTimeMillis()) + "ms" : "") + ")";
+    }
+}
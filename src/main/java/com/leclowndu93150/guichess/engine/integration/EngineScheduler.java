@@ -0,0 +1,147 @@
+package com.leclowndu93150.guichess.engine.integration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Decides which waiting request gets the next free Stockfish process, and which running search
+ * makes way for a more urgent one.
+ *
+ * Waiting requests are ordered by {@link EnginePriority}, then by deadline, then by arrival.
+ * When every process is busy, a request may stop one running search of a lower, preemptible
+ * class; {@link StockfishPool} then queues that search again instead of returning its partial result.
+ * Not thread-safe: the pool only calls it while holding its own lock.
+ */
+final class EngineScheduler {
+    private final PriorityQueue<Waiter> waiting = new PriorityQueue<>();
+    private final List<Lease> running = new ArrayList<>();
+    private long nextTicket = 0;
+
+    /**
+     * Arrival order for a new request; a preempted request keeps its ticket when it is queued again.
+     */
+    long nextTicket() {
+        return nextTicket++;
+    }
+
+    CompletableFuture<StockfishProcess> enqueue(EngineRequest request, long ticket) {
+        Waiter waiter = new Waiter(request, ticket);
+        waiting.add(waiter);
+        return waiter.future;
+    }
+
+    /**
+     * The most urgent waiter that has not given up, or null.
+     */
+    CompletableFuture<StockfishProcess> poll() {
+        Waiter next;
+        do {
+            next = waiting.poll();
+        } while (next != null && next.future.isDone());
+        return next != null ? next.future : null;
+    }
+
+    /**
+     * Whether a request of the given priority or a more urgent one is waiting for a process.
+     */
+    boolean hasWaiting(EnginePriority priority) {
+        while (!waiting.isEmpty() && waiting.peek().future.isDone()) {
+            waiting.poll();
+        }
+        return !waiting.isEmpty() && waiting.peek().request.getPriority().compareTo(priority) <= 0;
+    }
+
+    List<CompletableFuture<StockfishProcess>> drain() {
+        List<CompletableFuture<StockfishProcess>> futures = new ArrayList<>();
+        for (Waiter waiter : waiting) {
+            futures.add(waiter.future);
+        }
+        waiting.clear();
+        return futures;
+    }
+
+    Lease start(StockfishProcess worker, EngineRequest request) {
+        Lease lease = new Lease(worker, request.getPriority());
+        running.add(lease);
+        return lease;
+    }
+
+    /**
+     * @return whether the lease's search was stopped, so its result is partial
+     */
+    boolean finish(Lease lease) {
+        running.remove(lease);
+        return lease.stopped;
+    }
+
+    /**
+     * Stops the search of a lease that still holds its process. Once a lease is finished its process
+     * may already run another request's search, which must not receive this stop.
+     */
+    void stop(Lease lease) {
+        if (running.contains(lease) && lease.worker.stopSearch()) {
+            lease.stopped = true;
+        }
+    }
+
+    /**
+     * Picks the running search to stop for an incoming request, or null if none may be stopped.
+     * Prefers the least urgent class and, within it, the search that started last and so loses the least work.
+     */
+    Lease selectPreemption(EngineRequest request) {
+        Lease victim = null;
+        for (Lease lease : running) {
+            if (lease.preempted || !lease.priority.isPreemptible()) continue;
+            if (lease.priority.compareTo(request.getPriority()) <= 0) continue;
+            if (victim == null || lease.priority.compareTo(victim.priority) > 0
+                    || (lease.priority == victim.priority && lease.startedAt >= victim.startedAt)) {
+                victim = lease;
+            }
+        }
+        if (victim != null) {
+            victim.preempted = true;
+        }
+        return victim;
+    }
+
+    /**
+     * A process handed to one request, from acquisition until release.
+     */
+    static final class Lease {
+        final StockfishProcess worker;
+        final EnginePriority priority;
+        final long startedAt = System.nanoTime();
+        boolean preempted = false;
+        // Set once a stop reached a running search; a search that finished first keeps its full result
+        boolean stopped = false;
+
+        Lease(StockfishProcess worker, EnginePriority priority) {
+            this.worker = worker;
+            this.priority = priority;
+        }
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+        final EngineRequest request;
+        final long ticket;
+        final CompletableFuture<StockfishProcess> future = new CompletableFuture<>();
+
+        Waiter(EngineRequest request, long ticket) {
+            this.request = request;
+            this.ticket = ticket;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int byPriority = request.getPriority().compareTo(other.request.getPriority());
+            if (byPriority != 0) return byPriority;
+            // Earliest deadline first; requests without one wait behind those that have one
+            long deadline = request.hasDeadline() ? request.getDeadline() : Long.MAX_VALUE;
+            long otherDeadline = other.request.hasDeadline() ? other.request.getDeadline() : Long.MAX_VALUE;
+            if (deadline != otherDeadline) return Long.compare(deadline, otherDeadline);
+            return Long.compare(ticket, other.ticket);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.leclowndu93150.guichess.engine.integration;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bounded cache of full-strength engine results, shared by hints, bot moves and game reviews.
+ *
+ * Entries are keyed by the position part of the FEN (placement, side to move, castling and
+ * en passant, without the move clocks), so the same opening position reached in different
+ * games hits. A cached result answers any request for the same or a shallower depth and
+ * the same or fewer MultiPV lines. Results of time- and deadline-limited searches are cached too,
+ * under the depth they actually reached. The cache is split into independently locked LRU segments
+ * so concurrent lookups rarely contend.
+ */
+public class EvaluationCache {
+    private static final int SEGMENTS = 16;
+    // Version 1 files recorded the requested depth rather than the depth reached
+    private static final int FILE_VERSION = 2;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int capacity;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public EvaluationCache(int capacity) {
+        this.capacity = Math.max(SEGMENTS, capacity);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(this.capacity / SEGMENTS);
+        }
+    }
+
+    /**
+     * Strips the halfmove and fullmove clocks, which do not change the evaluation.
+     */
+    public static String normalizeFen(String fen) {
+        String[] parts = fen.trim().split("\\s+");
+        if (parts.length <= 4) return String.join(" ", parts);
+        return parts[0] + " " + parts[1] + " " + parts[2] + " " + parts[3];
+    }
+
+    /**
+     * Only unrestricted searches are cached; skill-limited and node-limited results are deliberately weaker.
+     */
+    public static boolean isCacheable(EngineRequest request) {
+        return request.getSkillLevel() == EngineRequest.MAX_SKILL_LEVEL && request.getNodes() == 0;
+    }
+
+    /**
+     * Returns a copy of a cached result that satisfies the request, or null.
+     */
+    public StockfishIntegration.AnalysisResult get(String fen, EngineRequest request) {
+        if (!isCacheable(request)) return null;
+        String key = normalizeFen(fen);
+        Entry entry = segmentFor(key).get(key);
+        if (entry != null && entry.depth >= request.getDepth() && entry.multiPv >= request.getMultiPv()) {
+            hits.increment();
+            return copy(entry.result);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Stores a successful result unless the cached one is deeper, or as deep with more MultiPV lines.
+     * Entries are keyed on the depth the search reached, which is less than requested when it ran out of time.
+     */
+    public void put(String fen, EngineRequest request, StockfishIntegration.AnalysisResult result) {
+        if (!isCacheable(request)) return;
+        if (result == null || result.error != null || result.bestMove == null || result.depth <= 0) return;
+        String key = normalizeFen(fen);
+        segmentFor(key).put(key, new Entry(result.depth, request.getMultiPv(), copy(result)));
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.map.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long total = getHits() + getMisses();
+        return total == 0 ? 0.0 : (double) getHits() / total;
+    }
+
+    public String getStats() {
+        return String.format("%d/%d entries, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                size(), capacity, getHits(), getMisses(), getHitRate() * 100, evictions.sum());
+    }
+
+    /**
+     * Writes all entries to a gzip file, replacing it atomically.
+     */
+    public void save(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(temp))))) {
+            List<Map.Entry<String, Entry>> entries = new ArrayList<>();
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    entries.addAll(segment.map.entrySet());
+                }
+            }
+            out.writeInt(FILE_VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> entry : entries) {
+                out.writeUTF(entry.getKey());
+                out.writeByte(Math.min(entry.getValue().depth, 0xFF));
+                out.writeByte(entry.getValue().multiPv);
+                writeResult(out, entry.getValue().result);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads entries saved by {@link #save(Path)}. A missing file is not an error.
+     */
+    public void load(Path file) throws IOException {
+        if (!Files.exists(file)) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != FILE_VERSION) {
+                System.err.println("[Stockfish] Ignoring evaluation cache with unknown version: " + file);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                int depth = in.readUnsignedByte();
+                int multiPv = in.readUnsignedByte();
+                StockfishIntegration.AnalysisResult result = readResult(in);
+                segmentFor(key).put(key, new Entry(depth, multiPv, result));
+            }
+        }
+    }
+
+    private Segment segmentFor(String key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static StockfishIntegration.AnalysisResult copy(StockfishIntegration.AnalysisResult source) {
+        StockfishIntegration.AnalysisResult result = new StockfishIntegration.AnalysisResult();
+        result.bestMove = source.bestMove;
+        result.evaluation = source.evaluation;
+        result.principalVariation = source.principalVariation;
+        result.depth = source.depth;
+        result.nodes = source.nodes;
+        result.nodesPerSecond = source.nodesPerSecond;
+        result.isMate = source.isMate;
+        result.mateIn = source.mateIn;
+        result.centipawns = source.centipawns;
+        result.variations = new ArrayList<>(source.variations);
+        return result;
+    }
+
+    private static void writeResult(DataOutputStream out, StockfishIntegration.AnalysisResult result) throws IOException {
+        writeNullable(out, result.bestMove);
+        writeNullable(out, result.evaluation);
+        writeNullable(out, result.principalVariation);
+        out.writeInt(result.depth);
+        out.writeLong(result.nodes);
+        out.writeLong(result.nodesPerSecond);
+        out.writeBoolean(result.isMate);
+        out.writeInt(result.mateIn);
+        out.writeInt(result.centipawns);
+
+        out.writeInt(result.variations.size());
+        for (AnalysisUpdate line : result.variations) {
+            out.writeBoolean(line != null);
+            if (line == null) continue;
+            out.writeInt(line.multiPv);
+            out.writeInt(line.depth);
+            out.writeInt(line.centipawns);
+            out.writeBoolean(line.isMate);
+            out.writeInt(line.mateIn);
+            out.writeLong(line.nodes);
+            out.writeLong(line.nodesPerSecond);
+            writeNullable(out, line.principalVariation);
+            writeNullable(out, line.evaluation);
+        }
+    }
+
+    private static StockfishIntegration.AnalysisResult readResult(DataInputStream in) throws IOException {
+        StockfishIntegration.AnalysisResult result = new StockfishIntegration.AnalysisResult();
+        result.bestMove = readNullable(in);
+        result.evaluation = readNullable(in);
+        result.principalVariation = readNullable(in);
+        result.depth = in.readInt();
+        result.nodes = in.readLong();
+        result.nodesPerSecond = in.readLong();
+        result.isMate = in.readBoolean();
+        result.mateIn = in.readInt();
+        result.centipawns = in.readInt();
+
+        int lines = in.readInt();
+        for (int i = 0; i < lines; i++) {
+            if (!in.readBoolean()) {
+                result.variations.add(null);
+                continue;
+            }
+            AnalysisUpdate line = new AnalysisUpdate();
+            line.multiPv = in.readInt();
+            line.depth = in.readInt();
+            line.centipawns = in.readInt();
+            line.isMate = in.readBoolean();
+            line.mateIn = in.readInt();
+            line.nodes = in.readLong();
+            line.nodesPerSecond = in.readLong();
+            line.principalVariation = readNullable(in);
+            line.evaluation = readNullable(in);
+            result.variations.add(line);
+        }
+        return result;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static final class Entry {
+        final int depth;
+        final int multiPv;
+        final StockfishIntegration.AnalysisResult result;
+
+        Entry(int depth, int multiPv, StockfishIntegration.AnalysisResult result) {
+            this.depth = depth;
+            this.multiPv = multiPv;
+            this.result = result;
+        }
+    }
+
+    private final class Segment {
+        final LinkedHashMap<String, Entry> map;
+
+        Segment(int maxEntries) {
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    if (size() > maxEntries) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized Entry get(String key) {
+            return map.get(key);
+        }
+
+        synchronized void put(String key, Entry entry) {
+            Entry existing = map.get(key);
+            // At equal depth, an entry with fewer MultiPV lines would make wider lookups miss
+            if (existing == null || entry.depth > existing.depth
+                    || entry.depth == existing.depth && entry.multiPv >= existing.multiPv) {
+                map.put(key, entry);
+            }
+        }
+    }
+}
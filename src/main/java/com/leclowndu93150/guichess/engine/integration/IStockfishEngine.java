@@ -1,6 +1,8 @@
 package com.leclowndu93150.guichess.engine.integration;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 /**
@@ -58,19 +60,63 @@ public interface IStockfishEngine {
     void analyzePosition(String fen, Consumer<StockfishIntegration.AnalysisResult> callback);
     
     /**
-     * Sets engine difficulty.
+     * Full analysis with per-call limits, independent of the engine-wide settings.
+     * @param fen position in FEN notation
+     * @param request depth, time, skill and MultiPV for this call only
+     */
+    CompletableFuture<StockfishIntegration.AnalysisResult> analyzePosition(String fen, EngineRequest request);
+    
+    /**
+     * Evaluates position with per-call limits.
+     * @param fen position in FEN notation
+     * @param request depth, time, skill and MultiPV for this call only
+     */
+    CompletableFuture<StockfishIntegration.EvaluationResult> evaluatePosition(String fen, EngineRequest request);
+    
+    /**
+     * Analyses many positions with the same limits, sharing the per-call overhead across the batch.
+     * A position that cannot be analysed gets a result with an error instead of failing the batch.
+     * @param fens positions in FEN notation
+     * @param request limits applied to every position
+     * @param onResult receives each result with its index in {@code fens} as soon as it is ready,
+     *                 before the returned future completes; runs on an engine thread, may be null
+     * @return results in the order of {@code fens}
+     */
+    CompletableFuture<List<StockfishIntegration.AnalysisResult>> evaluateBatch(List<String> fens, EngineRequest request,
+                                                                             BiConsumer<Integer, StockfishIntegration.AnalysisResult> onResult);
+    
+    /**
+     * Analyses many positions with the same limits.
+     * @return results in the order of {@code fens}
+     */
+    default CompletableFuture<List<StockfishIntegration.AnalysisResult>> evaluateBatch(List<String> fens, EngineRequest request) {
+        return evaluateBatch(fens, request, null);
+    }
+    
+    /**
+     * Starts a search that streams every depth/score/PV update, one per MultiPV line,
+     * until it reaches the request's limits or the subscription is cancelled.
+     * The listener runs on an engine thread and should hand work off quickly.
+     * @param fen position in FEN notation
+     * @param request limits for the search; MultiPV above 1 streams several lines per depth
+     * @param listener receives each update
+     */
+    AnalysisSubscription subscribeAnalysis(String fen, EngineRequest request, Consumer<AnalysisUpdate> listener);
+    
+    /**
+     * Sets default engine difficulty for calls without an EngineRequest.
      * @param level -20 to 20, higher is stronger
      */
     void setSkillLevel(int level);
     
     /**
-     * Sets search depth.
+     * Sets default search depth for calls without an EngineRequest.
      * @param depth search depth (10-20)
      */
     void setAnalysisDepth(int depth);
     
     /**
-     * Sets analysis time limit.
+     * Sets default analysis time limit for calls without an EngineRequest.
      * @param timeMs time in milliseconds
      */
     void setAnalysisTime(int timeMs);
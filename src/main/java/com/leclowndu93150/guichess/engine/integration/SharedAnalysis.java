@@ -0,0 +1,71 @@
+package com.leclowndu93150.guichess.engine.integration;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * One streaming search per position and request, shared by everyone watching it, such as the
+ * spectators of a game. Each watcher gets its own {@link AnalysisSubscription}; the search is
+ * stopped when the last of them is cancelled. A watcher joining a running search is sent the
+ * latest update straight away.
+ */
+class SharedAnalysis {
+    private final IStockfishEngine engine;
+    private final Map<String, Search> searches = new HashMap<>();
+
+    SharedAnalysis(IStockfishEngine engine) {
+        this.engine = engine;
+    }
+
+    synchronized AnalysisSubscription subscribe(String fen, EngineRequest request, Consumer<AnalysisUpdate> listener) {
+        String key = EvaluationCache.normalizeFen(fen) + " " + request.toGoCommand()
+                + " skill " + request.getSkillLevel() + " multipv " + request.getMultiPv();
+        Search search = searches.get(key);
+        if (search == null) {
+            search = new Search();
+            // Registered before starting, so a search that ends at once is removed again below
+            searches.put(key, search);
+            search.subscription = engine.subscribeAnalysis(fen, request, search::publish);
+            Search started = search;
+            search.subscription.getResult().whenComplete((result, throwable) -> remove(key, started));
+        }
+
+        AnalysisSubscription watcher = new AnalysisSubscription(listener);
+        search.watchers.add(watcher);
+        Search joined = search;
+        watcher.onStarted(() -> release(key, joined, watcher));
+        search.subscription.getResult().whenComplete(watcher::complete);
+
+        AnalysisUpdate latest = search.latest;
+        if (latest != null) {
+            watcher.publish(latest);
+        }
+        return watcher;
+    }
+
+    private synchronized void release(String key, Search search, AnalysisSubscription watcher) {
+        if (!search.watchers.remove(watcher) || !search.watchers.isEmpty()) return;
+        remove(key, search);
+        search.subscription.cancel();
+    }
+
+    private synchronized void remove(String key, Search search) {
+        searches.remove(key, search);
+    }
+
+    private static final class Search {
+        final List<AnalysisSubscription> watchers = new CopyOnWriteArrayList<>();
+        volatile AnalysisSubscription subscription;
+        volatile AnalysisUpdate latest;
+
+        void publish(AnalysisUpdate update) {
+            latest = update;
+            for (AnalysisSubscription watcher : watchers) {
+                watcher.publish(update);
+            }
+        }
+    }
+}
@@ -1,30 +1,70 @@
 package com.leclowndu93150.guichess.engine.integration;
 
+import com.leclowndu93150.guichess.engine.search.TranspositionTable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 /**
  * Manages Stockfish engine access.
- * Tries web API first, falls back to local binary.
+ * Routes each request to the web API or the local binary, whichever is healthy and faster for
+ * that class of request, and falls back to the other when a call fails. Each backend has a
+ * {@link BackendHealth} circuit breaker; open breakers are probed periodically and closed again
+ * once the backend answers. Full-strength results are memoised in an {@link EvaluationCache}.
+ * Weaker bots play on the {@link BuiltInEngine}, which is also the last resort for every bot move.
  */
 public class StockfishEngineManager implements IStockfishEngine {
     private static StockfishEngineManager instance;
     
     private final StockfishWebIntegration webEngine;
     private final StockfishIntegration binaryEngine;
+    private final BuiltInEngine builtInEngine = new BuiltInEngine();
+    
+    // Requests kept in flight against the web API by batch callers
+    private static final int WEB_PARALLELISM = 2;
+    // Web calls slower than this count as failures; local searches are as slow as their limits
+    private static final long WEB_SLOW_CALL_MS = 5000;
+    private static final long PROBE_INTERVAL_SECONDS = 5;
+    // One request in this many goes to the slower backend so its latency estimate stays current
+    private static final int EXPLORATION_INTERVAL = 20;
+    private static final String PROBE_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final EngineRequest PROBE_REQUEST = EngineRequest.defaults().withDepth(1).withMultiPv(1);
     
     private final AtomicBoolean webAvailable = new AtomicBoolean(false);
     private final AtomicBoolean binaryAvailable = new AtomicBoolean(false);
-    private final AtomicBoolean initialized = new AtomicBoolean(false);
+    private volatile CompletableFuture<Void> ready;
     
-    private volatile IStockfishEngine activeEngine;
+    private final BackendHealth webHealth = new BackendHealth("Web", WEB_SLOW_CALL_MS);
+    private final BackendHealth binaryHealth = new BackendHealth("Local", 0);
+    private final AtomicLongArray routedRequests = new AtomicLongArray(EnginePriority.values().length);
+    private final ScheduledExecutorService prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Stockfish-Probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final EvaluationCache cache = new EvaluationCache(Integer.getInteger("chess.evalcache.size", 20000));
+    private final SharedAnalysis sharedAnalysis = new SharedAnalysis(this);
+    // Used by the calls that take no EngineRequest
+    private volatile EngineRequest defaultRequest = EngineRequest.defaults();
     
     private StockfishEngineManager() {
         this.webEngine = StockfishWebIntegration.getInstance();
         this.binaryEngine = StockfishIntegration.getInstance();
         
         checkEngineAvailability();
+        prober.scheduleWithFixedDelay(this::probeOpenBackends, PROBE_INTERVAL_SECONDS, PROBE_INTERVAL_SECONDS, TimeUnit.SECONDS);
     }
     
     public static StockfishEngineManager getInstance() {
@@ -39,47 +79,99 @@ public class StockfishEngineManager implements IStockfishEngine {
     }
     
     private void checkEngineAvailability() {
-        CompletableFuture.allOf(
-            webEngine.waitUntilReady().thenAccept(webAvailable::set),
-            binaryEngine.waitUntilReady().thenAccept(binaryAvailable::set)
-        ).thenRun(() -> {
-            selectActiveEngine();
-            initialized.set(true);
-        });
+        ready = CompletableFuture.allOf(
+            webEngine.waitUntilReady().thenAccept(available -> {
+                webAvailable.set(available);
+                webHealth.reset(available);
+            }),
+            binaryEngine.waitUntilReady().thenAccept(available -> {
+                binaryAvailable.set(available);
+                binaryHealth.reset(available);
+            })
+        );
     }
     
-    private void selectActiveEngine() {
-        if (webAvailable.get()) {
-            activeEngine = webEngine;
-        } else if (binaryAvailable.get()) {
-            activeEngine = binaryEngine;
-        } else {
-            activeEngine = binaryEngine; // Default fallback even if not ready
+    /**
+     * Picks the backend for a request: a healthy one that can serve it, and the faster one for
+     * this class of request when both can. Until both have been measured the web API is preferred.
+     */
+    private IStockfishEngine route(EngineRequest request) {
+        boolean webUsable = canRoute(webEngine, request);
+        if (webUsable && canRoute(binaryEngine, request)) {
+            EnginePriority priority = request.getPriority();
+            double webLatency = webHealth.getAverageLatency(priority);
+            double binaryLatency = binaryHealth.getAverageLatency(priority);
+            boolean webFaster = Double.isNaN(webLatency) || Double.isNaN(binaryLatency) || webLatency <= binaryLatency;
+            boolean explore = routedRequests.incrementAndGet(priority.ordinal()) % EXPLORATION_INTERVAL == 0;
+            return webFaster != explore ? webEngine : binaryEngine;
+        }
+        if (webUsable) {
+            return webEngine;
         }
+        // With both breakers open the local engine is still the better last resort
+        return binaryEngine;
     }
     
-    private IStockfishEngine getActiveEngine() {
-        if (!initialized.get()) {
-            return binaryEngine; // Use binary as immediate fallback
+    /**
+     * Whether the backend's breaker is closed and it can honour the request.
+     * The web API always plays at full strength and has no node limit.
+     */
+    private boolean canRoute(IStockfishEngine engine, EngineRequest request) {
+        if (engine == webEngine) {
+            return webHealth.allowsRequests()
+                    && request.getSkillLevel() == EngineRequest.MAX_SKILL_LEVEL && request.getNodes() == 0;
         }
-        return activeEngine;
+        return binaryHealth.allowsRequests();
     }
     
-    private CompletableFuture<IStockfishEngine> getActiveEngineAsync() {
-        if (initialized.get()) {
-            return CompletableFuture.completedFuture(activeEngine);
-        }
-        
-        return CompletableFuture.supplyAsync(() -> {
-            while (!initialized.get()) {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return binaryEngine;
+    private BackendHealth healthOf(IStockfishEngine engine) {
+        return engine == webEngine ? webHealth : binaryHealth;
+    }
+    
+    /**
+     * Runs the request on one backend and records its latency and outcome. Never completes exceptionally.
+     */
+    private CompletableFuture<StockfishIntegration.AnalysisResult> analyzeOn(IStockfishEngine engine, String fen, EngineRequest request) {
+        BackendHealth health = healthOf(engine);
+        long started = System.nanoTime();
+        return engine.analyzePosition(fen, request).handle((result, throwable) -> {
+            long latencyMs = (System.nanoTime() - started) / 1_000_000;
+            if (throwable != null) {
+                // A cancelled search says nothing about the backend
+                if (!(throwable instanceof CancellationException)) {
+                    health.recordFailure(request.getPriority(), latencyMs);
                 }
+                return new StockfishIntegration.AnalysisResult("Unable to analyze position: " + throwable.getMessage());
+            }
+            // The web engine reports failures as results rather than exceptions
+            if (result.error != null) {
+                health.recordFailure(request.getPriority(), latencyMs);
+            } else {
+                health.recordSuccess(request.getPriority(), latencyMs);
+            }
+            return result;
+        });
+    }
+    
+    /**
+     * Sends one small search to each backend whose breaker is due for a half-open probe.
+     */
+    private void probeOpenBackends() {
+        long now = System.currentTimeMillis();
+        probe(webEngine, webAvailable, now);
+        probe(binaryEngine, binaryAvailable, now);
+    }
+    
+    private void probe(IStockfishEngine engine, AtomicBoolean available, long now) {
+        BackendHealth health = healthOf(engine);
+        if (!health.startProbe(now)) return;
+        long started = System.nanoTime();
+        engine.analyzePosition(PROBE_FEN, PROBE_REQUEST).whenComplete((result, throwable) -> {
+            boolean succeeded = throwable == null && result.error == null && result.bestMove != null;
+            if (succeeded) {
+                available.set(true);
             }
-            return activeEngine;
+            health.finishProbe(succeeded, (System.nanoTime() - started) / 1_000_000);
         });
     }
     
@@ -90,128 +182,253 @@ public class StockfishEngineManager implements IStockfishEngine {
     
     @Override
     public CompletableFuture<Boolean> waitUntilReady() {
-        if (initialized.get()) {
-            return CompletableFuture.completedFuture(isAvailable());
-        }
-        
-        return CompletableFuture.supplyAsync(() -> {
-            while (!initialized.get()) {
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return false;
-                }
-            }
-            return isAvailable();
-        });
+        return ready.thenApply(v -> isAvailable());
     }
     
     @Override
     public CompletableFuture<String> requestHint(String fen) {
-        return getActiveEngineAsync().thenCompose(engine -> {
-            return engine.requestHint(fen).exceptionally(throwable -> {
-                if (engine == webEngine && binaryAvailable.get()) {
-                    return binaryEngine.requestHint(fen).join();
-                }
-                return "Unable to analyze position: " + throwable.getMessage();
-            });
-        });
+        return analyzePosition(fen).thenApply(StockfishIntegration::formatHint);
     }
     
     @Override
     public void requestHint(String fen, Consumer<String> callback) {
-        getActiveEngineAsync().thenAccept(engine -> {
-            engine.requestHint(fen, result -> {
-                if (result.startsWith("Unable to analyze") && engine == webEngine && binaryAvailable.get()) {
-                    binaryEngine.requestHint(fen, callback);
-                } else {
-                    callback.accept(result);
-                }
-            });
+        requestHint(fen).thenAccept(callback).exceptionally(throwable -> {
+            callback.accept("Error: " + throwable.getMessage());
+            return null;
         });
     }
     
     @Override
     public CompletableFuture<StockfishIntegration.EvaluationResult> evaluatePosition(String fen) {
-        return getActiveEngineAsync().thenCompose(engine -> {
-            return engine.evaluatePosition(fen).exceptionally(throwable -> {
-                if (engine == webEngine && binaryAvailable.get()) {
-                    return binaryEngine.evaluatePosition(fen).join();
-                }
-                return new StockfishIntegration.EvaluationResult("Unable to evaluate position: " + throwable.getMessage());
-            });
-        });
+        return evaluatePosition(fen, defaultRequest);
     }
     
     @Override
     public void evaluatePosition(String fen, Consumer<StockfishIntegration.EvaluationResult> callback) {
-        getActiveEngineAsync().thenAccept(engine -> {
-            engine.evaluatePosition(fen, result -> {
-                if (result.error != null && engine == webEngine && binaryAvailable.get()) {
-                    binaryEngine.evaluatePosition(fen, callback);
-                } else {
-                    callback.accept(result);
-                }
-            });
+        evaluatePosition(fen).thenAccept(callback).exceptionally(throwable -> {
+            callback.accept(new StockfishIntegration.EvaluationResult("Error: " + throwable.getMessage()));
+            return null;
         });
     }
     
     @Override
     public CompletableFuture<StockfishIntegration.AnalysisResult> analyzePosition(String fen) {
-        return getActiveEngineAsync().thenCompose(engine -> {
-            return engine.analyzePosition(fen).exceptionally(throwable -> {
-                if (engine == webEngine && binaryAvailable.get()) {
-                    return binaryEngine.analyzePosition(fen).join();
+        return analyzePosition(fen, defaultRequest);
+    }
+    
+    @Override
+    public void analyzePosition(String fen, Consumer<StockfishIntegration.AnalysisResult> callback) {
+        analyzePosition(fen).thenAccept(callback).exceptionally(throwable -> {
+            callback.accept(new StockfishIntegration.AnalysisResult("Error: " + throwable.getMessage()));
+            return null;
+        });
+    }
+    
+    @Override
+    public CompletableFuture<StockfishIntegration.AnalysisResult> analyzePosition(String fen, EngineRequest request) {
+        if (builtInEngine.handles(request)) {
+            return builtInEngine.analyze(fen, request);
+        }
+        StockfishIntegration.AnalysisResult cached = cache.get(fen, request);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        return ready.thenCompose(v -> {
+            IStockfishEngine engine = route(request);
+            return analyzeOn(engine, fen, request).thenCompose(result -> {
+                IStockfishEngine fallback = engine == webEngine ? binaryEngine : webEngine;
+                if (result.error != null && !request.isCancelled() && canRoute(fallback, request)) {
+                    return analyzeOn(fallback, fen, request);
                 }
-                return new StockfishIntegration.AnalysisResult("Unable to analyze position: " + throwable.getMessage());
+                return CompletableFuture.completedFuture(result);
             });
+        }).thenCompose(result -> {
+            // Bots keep playing, and players keep getting hints, on the built-in engine when no Stockfish backend could answer
+            if (result.error != null && !request.isCancelled() && builtInEngine.canStandIn(request)) {
+                System.err.println("[Stockfish] " + request.getPriority() + " falling back to the built-in engine: " + result.error);
+                return builtInEngine.analyze(fen, request);
+            }
+            cache.put(fen, request, result);
+            return CompletableFuture.completedFuture(result);
         });
     }
     
     @Override
-    public void analyzePosition(String fen, Consumer<StockfishIntegration.AnalysisResult> callback) {
-        getActiveEngineAsync().thenAccept(engine -> {
-            engine.analyzePosition(fen, result -> {
-                if (result.error != null && engine == webEngine && binaryAvailable.get()) {
-                    binaryEngine.analyzePosition(fen, callback);
-                } else {
-                    callback.accept(result);
+    public CompletableFuture<StockfishIntegration.EvaluationResult> evaluatePosition(String fen, EngineRequest request) {
+        return analyzePosition(fen, request).thenApply(StockfishIntegration.EvaluationResult::fromAnalysis);
+    }
+    
+    /**
+     * Answers what it can from the cache and sends each remaining distinct position once, to the
+     * backend {@link #route} picks for the batch. Positions the web API fails on are retried on the
+     * local engine. Batches are routed by the breakers but not measured, as they have no per-call latency.
+     * Requests the built-in engine handles are searched there position by position, as in {@link #analyzePosition}.
+     */
+    @Override
+    public CompletableFuture<List<StockfishIntegration.AnalysisResult>> evaluateBatch(List<String> fens, EngineRequest request,
+            BiConsumer<Integer, StockfishIntegration.AnalysisResult> onResult) {
+        if (builtInEngine.handles(request)) {
+            return evaluateBuiltIn(fens, request, onResult);
+        }
+        List<StockfishIntegration.AnalysisResult> results = new ArrayList<>(fens.size());
+        // Indices of every uncached position, grouped so repeated positions are searched once
+        Map<String, List<Integer>> misses = new LinkedHashMap<>();
+        for (int i = 0; i < fens.size(); i++) {
+            StockfishIntegration.AnalysisResult cached = cache.get(fens.get(i), request);
+            results.add(cached);
+            if (cached != null) {
+                if (onResult != null) onResult.accept(i, cached);
+            } else {
+                misses.computeIfAbsent(EvaluationCache.normalizeFen(fens.get(i)), key -> new ArrayList<>()).add(i);
+            }
+        }
+        if (misses.isEmpty()) {
+            return CompletableFuture.completedFuture(results);
+        }
+        
+        List<List<Integer>> groups = new ArrayList<>(misses.values());
+        List<String> searched = new ArrayList<>(groups.size());
+        for (List<Integer> group : groups) {
+            searched.add(fens.get(group.get(0)));
+        }
+        
+        return ready.thenCompose(v -> {
+            IStockfishEngine engine = route(request);
+            boolean canFallBack = engine == webEngine && canRoute(binaryEngine, request);
+            // Web failures are only reported once the local engine has had its try
+            return engine.evaluateBatch(searched, request, (index, result) -> {
+                if (result.error == null || !canFallBack) publish(onResult, groups.get(index), result);
+            }).thenCompose(batch -> {
+                List<Integer> failed = new ArrayList<>();
+                for (int i = 0; i < batch.size() && canFallBack; i++) {
+                    if (batch.get(i).error != null) failed.add(i);
                 }
+                if (failed.isEmpty()) {
+                    return CompletableFuture.completedFuture(batch);
+                }
+                
+                List<String> retried = new ArrayList<>(failed.size());
+                for (int index : failed) {
+                    retried.add(searched.get(index));
+                }
+                return binaryEngine.evaluateBatch(retried, request,
+                        (index, result) -> publish(onResult, groups.get(failed.get(index)), result)
+                ).thenApply(retries -> {
+                    for (int i = 0; i < failed.size(); i++) {
+                        batch.set(failed.get(i), retries.get(i));
+                    }
+                    return batch;
+                });
             });
+        }).thenApply(batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                cache.put(searched.get(i), request, batch.get(i));
+                for (int index : groups.get(i)) {
+                    results.set(index, batch.get(i));
+                }
+            }
+            return results;
+        });
+    }
+    
+    private CompletableFuture<List<StockfishIntegration.AnalysisResult>> evaluateBuiltIn(List<String> fens, EngineRequest request,
+            BiConsumer<Integer, StockfishIntegration.AnalysisResult> onResult) {
+        List<CompletableFuture<StockfishIntegration.AnalysisResult>> searches = new ArrayList<>(fens.size());
+        for (int i = 0; i < fens.size(); i++) {
+            int index = i;
+            searches.add(builtInEngine.analyze(fens.get(i), request).thenApply(result -> {
+                if (onResult != null) onResult.accept(index, result);
+                return result;
+            }));
+        }
+        return CompletableFuture.allOf(searches.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            List<StockfishIntegration.AnalysisResult> results = new ArrayList<>(searches.size());
+            for (CompletableFuture<StockfishIntegration.AnalysisResult> search : searches) {
+                results.add(search.join());
+            }
+            return results;
         });
     }
     
+    private static void publish(BiConsumer<Integer, StockfishIntegration.AnalysisResult> onResult, List<Integer> indices,
+                                StockfishIntegration.AnalysisResult result) {
+        if (onResult == null) return;
+        for (int index : indices) {
+            onResult.accept(index, result);
+        }
+    }
+    
+    @Override
+    public AnalysisSubscription subscribeAnalysis(String fen, EngineRequest request, Consumer<AnalysisUpdate> listener) {
+        // With both breakers open the board is analysed in-JVM rather than not at all
+        if (builtInEngine.handles(request) || !canRoute(binaryEngine, request) && !canRoute(webEngine, request)) {
+            return builtInEngine.subscribe(fen, request, listener);
+        }
+        // Only the local engine streams; the web API would deliver a single final update
+        if (canRoute(binaryEngine, request)) {
+            return binaryEngine.subscribeAnalysis(fen, request, listener);
+        }
+        return webEngine.subscribeAnalysis(fen, request, listener);
+    }
+    
+    /**
+     * Like {@link #subscribeAnalysis}, but callers watching the same position with the same request
+     * share one search, which stops once every returned subscription has been cancelled.
+     */
+    public AnalysisSubscription subscribeSharedAnalysis(String fen, EngineRequest request, Consumer<AnalysisUpdate> listener) {
+        return sharedAnalysis.subscribe(fen, request, listener);
+    }
+    
     @Override
     public void setSkillLevel(int level) {
-        webEngine.setSkillLevel(level);
-        binaryEngine.setSkillLevel(level);
+        defaultRequest = defaultRequest.withSkillLevel(level);
     }
     
     @Override
     public void setAnalysisDepth(int depth) {
-        webEngine.setAnalysisDepth(depth);
-        binaryEngine.setAnalysisDepth(depth);
+        defaultRequest = defaultRequest.withDepth(depth);
     }
     
     @Override
     public void setAnalysisTime(int timeMs) {
-        webEngine.setAnalysisTime(timeMs);
-        binaryEngine.setAnalysisTime(timeMs);
+        defaultRequest = defaultRequest.withMoveTime(Math.max(100, timeMs));
+    }
+    
+    /**
+     * How many searches the active engine runs at once; batch callers such as game review
+     * keep this many requests in flight instead of queueing every position up front.
+     */
+    public int getParallelism() {
+        if (!binaryHealth.allowsRequests() && webHealth.allowsRequests()) {
+            return WEB_PARALLELISM;
+        }
+        return binaryEngine.getWorkerCount();
+    }
+    
+    /**
+     * Limits used by the calls that take no EngineRequest, as changed by the setters.
+     */
+    public EngineRequest getDefaultRequest() {
+        return defaultRequest;
+    }
+    
+    public EvaluationCache getEvaluationCache() {
+        return cache;
     }
     
     @Override
     public void shutdown() {
+        prober.shutdownNow();
+        builtInEngine.shutdown();
         webEngine.shutdown();
         binaryEngine.shutdown();
-        initialized.set(false);
     }
     
     /**
-     * Forces a recheck of engine availability and updates the active engine.
+     * Forces a recheck of engine availability and resets both breakers from it.
      */
     public void refreshEngineAvailability() {
-        initialized.set(false);
         checkEngineAvailability();
     }
     
@@ -220,17 +437,16 @@ public class StockfishEngineManager implements IStockfishEngine {
      */
     public String getEngineStatus() {
         StringBuilder status = new StringBuilder();
-        status.append("Web Engine: ").append(webAvailable.get() ? "Available" : "Unavailable").append("\n");
-        status.append("Binary Engine: ").append(binaryAvailable.get() ? "Available" : "Unavailable").append("\n");
-        status.append("Active Engine: ");
-        
-        if (activeEngine == webEngine) {
-            status.append("Web");
-        } else if (activeEngine == binaryEngine) {
-            status.append("Binary");
-        } else {
-            status.append("None");
-        }
+        status.append("Web Engine: ").append(webAvailable.get() ? "Available" : "Unavailable")
+                .append(" (").append(webHealth.describe()).append(")\n");
+        status.append("Binary Engine: ").append(binaryAvailable.get() ? "Available" : "Unavailable")
+                .append(" (").append(binaryHealth.describe()).append(")\n");
+        TranspositionTable table = TranspositionTable.getShared();
+        status.append("Built-in Engine: bots below ").append(BuiltInEngine.MAX_ELO).append(" Elo")
+                .append(BuiltInEngine.PREFERRED_FOR_ANALYSIS ? " and all analysis" : "").append(", hash ")
+                .append(table.getSizeBytes() / (1024 * 1024)).append("MB ")
+                .append(table.getUsagePermille() / 10).append("% full\n");
+        status.append("Evaluation Cache: ").append(cache.getStats());
         
         return status.toString();
     }
@@ -6,36 +6,33 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Local Stockfish binary fallback when web API unavailable.
- * Downloads and manages UCI process communication.
+ * Downloads the binary and serves requests from a pool of UCI processes.
+ *
+ * The pool size comes from {@code -Dchess.stockfish.workers} (default: half the cores, 1 to 4).
+ * The 256 MB hash budget is split between the workers.
  */
 public class StockfishIntegration implements IStockfishEngine {
+    private static final int TOTAL_HASH_MB = 256;
+
     private static StockfishIntegration instance;
-    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final CompletableFuture<Void> initializationFuture;
 
-    private Process stockfishProcess;
-    private BufferedWriter stockfishInput;
-    private BufferedReader stockfishOutput;
-    private boolean isReady = false;
-    private boolean isInitialized = false;
+    private volatile StockfishPool pool;
+    private volatile boolean isInitialized = false;
 
-    private int analysisDepth = 15;
-    private int multiPv = 3;
-    private int analysisTime = 1000;
-    private int skillLevel = 20;
+    // Used by the calls that take no EngineRequest
+    private volatile EngineRequest defaultRequest = EngineRequest.defaults();
     private String stockfishPath;
 
-    private static final Pattern BEST_MOVE_PATTERN = Pattern.compile("bestmove\\s+(\\w+)");
-    private static final Pattern INFO_PATTERN = Pattern.compile("info.*depth\\s+(\\d+).*score\\s+cp\\s+([+-]?\\d+).*pv\\s+(.+)");
-    private static final Pattern MATE_PATTERN = Pattern.compile("info.*depth\\s+(\\d+).*score\\s+mate\\s+([+-]?\\d+).*pv\\s+(.+)");
-
     private StockfishIntegration() {
         this.initializationFuture = CompletableFuture.runAsync(this::initializeStockfish, executor)
                 .exceptionally(throwable -> {
@@ -57,10 +54,12 @@ public class StockfishIntegration implements IStockfishEngine {
     private void initializeStockfish() {
         try {
             findStockfishExecutable();
-            startStockfishProcess();
-            configureEngine();
+            int workers = Math.max(1, Integer.getInteger("chess.stockfish.workers",
+                    Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2))));
+            pool = new StockfishPool(stockfishPath, workers, Math.max(16, TOTAL_HASH_MB / workers), EngineRequest.DEFAULT_MULTI_PV);
             isInitialized = true;
         } catch (Exception e) {
+            System.err.println("[Stockfish] Failed to start engine pool: " + e.getMessage());
             isInitialized = false;
         }
     }
@@ -101,68 +100,9 @@ public class StockfishIntegration implements IStockfishEngine {
         }
     }
 
-    private void startStockfishProcess() throws IOException {
-        ProcessBuilder processBuilder = new ProcessBuilder(stockfishPath);
-        processBuilder.redirectErrorStream(true);
-
-        stockfishProcess = processBuilder.start();
-        stockfishInput = new BufferedWriter(new OutputStreamWriter(stockfishProcess.getOutputStream()));
-        stockfishOutput = new BufferedReader(new InputStreamReader(stockfishProcess.getInputStream()));
-
-        sendCommand("uci");
-        waitForResponse("uciok", 5000);
-        isReady = true;
-    }
-
-    private void configureEngine() throws IOException {
-        sendCommand("setoption name Hash value 256");
-        sendCommand("setoption name Threads value 1");
-        sendCommand("setoption name MultiPV value " + multiPv);
-        sendCommand("setoption name Skill Level value " + skillLevel);
-        sendCommand("ucinewgame");
-        sendCommand("isready");
-        waitForResponse("readyok", 5000);
-    }
-
-    private void sendCommand(String command) throws IOException {
-        if (stockfishInput != null) {
-            stockfishInput.write(command);
-            stockfishInput.newLine();
-            stockfishInput.flush();
-        }
-    }
-
-    private boolean waitForResponse(String expectedResponse, long timeoutMs) throws IOException {
-        long startTime = System.currentTimeMillis();
-        String line;
-        while (System.currentTimeMillis() - startTime < timeoutMs) {
-            if (stockfishOutput.ready()) {
-                line = stockfishOutput.readLine();
-                if (line != null && line.trim().equals(expectedResponse)) {
-                    return true;
-                }
-            } else {
-                try {
-                    Thread.sleep(10);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return false;
-                }
-            }
-        }
-        return false;
-    }
-
     public void shutdown() {
-        if (stockfishProcess != null && stockfishProcess.isAlive()) {
-            try {
-                sendCommand("quit");
-                if (!stockfishProcess.waitFor(5, TimeUnit.SECONDS)) {
-                    stockfishProcess.destroyForcibly();
-                }
-            } catch (Exception e) {
-                stockfishProcess.destroyForcibly();
-            }
+        if (pool != null) {
+            pool.shutdown();
         }
 
         if (executor != null && !executor.isShutdown()) {
@@ -179,18 +119,23 @@ public class StockfishIntegration implements IStockfishEngine {
     }
 
     public CompletableFuture<String> requestHint(String fen) {
-        return analyzePosition(fen).thenApply(result -> {
-            String hint;
-            if (result.bestMove != null) {
-                hint = "Best move: " + formatMove(result.bestMove);
-                if (result.evaluation != null) {
-                    hint += " (Eval: " + result.evaluation + ")";
-                }
-            } else {
-                hint = "Unable to analyze position";
+        return analyzePosition(fen).thenApply(StockfishIntegration::formatHint);
+    }
+
+    /**
+     * Hint text shown to players for an analysis result.
+     */
+    public static String formatHint(AnalysisResult result) {
+        String hint;
+        if (result.bestMove != null) {
+            hint = "Best move: " + formatMove(result.bestMove);
+            if (result.evaluation != null) {
+                hint += " (Eval: " + result.evaluation + ")";
             }
-            return hint;
-        });
+        } else {
+            hint = "Unable to analyze position";
+        }
+        return hint;
     }
 
     public void requestHint(String fen, Consumer<String> callback) {
@@ -201,55 +146,12 @@ public class StockfishIntegration implements IStockfishEngine {
     }
 
     public CompletableFuture<EvaluationResult> evaluatePosition(String fen) {
-        if (!isInitialized) {
-            return initializationFuture.thenCompose(v -> evaluatePosition(fen));
-        }
-
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                sendCommand("position fen " + fen);
-                sendCommand("go depth " + analysisDepth);
-
-                AnalysisResult bestResult = null;
-                String line;
-                long startTime = System.currentTimeMillis();
-
-                while (System.currentTimeMillis() - startTime < analysisTime + 2000) {
-                    if (stockfishOutput.ready()) {
-                        line = stockfishOutput.readLine();
-                        if (line == null) break;
-
-                        if (line.startsWith("bestmove")) {
-                            break;
-                        }
-
-                        if (line.startsWith("info") && line.contains("depth") && line.contains("score")) {
-                            AnalysisResult result = parseInfoLine(line);
-                            if (result != null) {
-                                bestResult = result;
-                            }
-                        }
-                    } else {
-                        Thread.sleep(10);
-                    }
-                }
-
-                if (bestResult != null) {
-                    EvaluationResult result = new EvaluationResult();
-                    result.centipawnEvaluation = bestResult.centipawns;
-                    result.evaluationText = bestResult.evaluation;
-                    result.depth = bestResult.depth;
-                    result.isMate = bestResult.isMate;
-                    result.mateIn = bestResult.mateIn;
-                    return result;
-                } else {
-                    return new EvaluationResult("No analysis result");
-                }
+        return evaluatePosition(fen, defaultRequest);
+    }
 
-            } catch (Exception e) {
-                return new EvaluationResult("Analysis failed: " + e.getMessage());
-            }
-        }, executor);
+    @Override
+    public CompletableFuture<EvaluationResult> evaluatePosition(String fen, EngineRequest request) {
+        return analyzePosition(fen, request).thenApply(EvaluationResult::fromAnalysis);
     }
 
     public void evaluatePosition(String fen, Consumer<EvaluationResult> callback) {
@@ -260,52 +162,80 @@ public class StockfishIntegration implements IStockfishEngine {
     }
 
     public CompletableFuture<AnalysisResult> analyzePosition(String fen) {
+        return analyzePosition(fen, defaultRequest);
+    }
+
+    @Override
+    public CompletableFuture<AnalysisResult> analyzePosition(String fen, EngineRequest request) {
         if (!isInitialized) {
-            return initializationFuture.thenCompose(v -> analyzePosition(fen));
+            if (initializationFuture.isDone()) {
+                return CompletableFuture.completedFuture(new AnalysisResult("Stockfish is not available"));
+            }
+            return initializationFuture.thenCompose(v -> analyzePosition(fen, request));
         }
 
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                sendCommand("position fen " + fen);
-                sendCommand("go depth " + analysisDepth);
-
-                AnalysisResult result = new AnalysisResult();
-                String line;
-                long startTime = System.currentTimeMillis();
-
-                while (System.currentTimeMillis() - startTime < analysisTime + 2000) {
-                    if (stockfishOutput.ready()) {
-                        line = stockfishOutput.readLine();
-                        if (line == null) break;
-
-                        Matcher bestMoveMatcher = BEST_MOVE_PATTERN.matcher(line);
-                        if (bestMoveMatcher.find()) {
-                            result.bestMove = bestMoveMatcher.group(1);
-                            break;
-                        }
-
-                        if (line.startsWith("info")) {
-                            AnalysisResult tempResult = parseInfoLine(line);
-                            if (tempResult != null) {
-                                result.evaluation = tempResult.evaluation;
-                                result.depth = tempResult.depth;
-                                result.centipawns = tempResult.centipawns;
-                                result.isMate = tempResult.isMate;
-                                result.mateIn = tempResult.mateIn;
-                            }
-                        }
-                    } else {
-                        Thread.sleep(10);
-                    }
+        CompletableFuture<AnalysisResult> delivered = pool.submit(request, (worker, limits) -> worker.search(fen, limits, null));
+        CompletableFuture<AnalysisResult> result = delivered.exceptionally(throwable -> {
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+            return new AnalysisResult("Analysis failed: " + cause.getMessage());
+        });
+        // Cancelling the returned future gives the search up in the pool
+        result.whenComplete((analysis, throwable) -> {
+            if (result.isCancelled()) delivered.cancel(false);
+        });
+        return result;
+    }
+
+    /**
+     * Pipelines the positions through the pool, keeping every process busy with the batch until it is done.
+     */
+    @Override
+    public CompletableFuture<List<AnalysisResult>> evaluateBatch(List<String> fens, EngineRequest request,
+                                                             BiConsumer<Integer, AnalysisResult> onResult) {
+        if (!isInitialized) {
+            if (initializationFuture.isDone()) {
+                List<AnalysisResult> results = new ArrayList<>();
+                for (int i = 0; i < fens.size(); i++) {
+                    AnalysisResult result = new AnalysisResult("Stockfish is not available");
+                    if (onResult != null) onResult.accept(i, result);
+                    results.add(result);
                 }
+                return CompletableFuture.completedFuture(results);
+            }
+            return initializationFuture.thenCompose(v -> evaluateBatch(fens, request, onResult));
+        }
+        return pool.submitBatch(fens, request, onResult);
+    }
 
-                return result;
-            } catch (Exception e) {
-                AnalysisResult errorResult = new AnalysisResult();
-                errorResult.error = "Analysis failed: " + e.getMessage();
-                return errorResult;
+    @Override
+    public AnalysisSubscription subscribeAnalysis(String fen, EngineRequest request, Consumer<AnalysisUpdate> listener) {
+        AnalysisSubscription subscription = new AnalysisSubscription(listener);
+        if (!isInitialized) {
+            if (initializationFuture.isDone()) {
+                subscription.complete(new AnalysisResult("Stockfish is not available"), null);
+            } else {
+                initializationFuture.thenRun(() -> startSubscription(subscription, fen, request));
             }
-        }, executor);
+            return subscription;
+        }
+        startSubscription(subscription, fen, request);
+        return subscription;
+    }
+
+    private void startSubscription(AnalysisSubscription subscription, String fen, EngineRequest request) {
+        if (!isInitialized) {
+            subscription.complete(new AnalysisResult("Stockfish is not available"), null);
+            return;
+        }
+        pool.submit(request.withCancellation(subscription.getCancellation()), (worker, limits) -> {
+            if (subscription.isCancelled()) {
+                return CompletableFuture.completedFuture(new AnalysisResult("Cancelled"));
+            }
+            CompletableFuture<AnalysisResult> search = worker.search(fen, limits, subscription::publish);
+            subscription.onStarted(() -> worker.stop(search));
+            return search;
+        }).whenComplete(subscription::complete);
     }
 
     public void analyzePosition(String fen, Consumer<AnalysisResult> callback) {
@@ -317,7 +247,7 @@ public class StockfishIntegration implements IStockfishEngine {
         });
     }
 
-    private String formatMove(String move) {
+    private static String formatMove(String move) {
         if (move.length() < 4) return move;
 
         String from = move.substring(0, 2);
@@ -332,52 +262,31 @@ public class StockfishIntegration implements IStockfishEngine {
         return formatted;
     }
 
-    private AnalysisResult parseInfoLine(String line) {
-        Matcher infoMatcher = INFO_PATTERN.matcher(line);
-        Matcher mateMatcher = MATE_PATTERN.matcher(line);
-
-        if (mateMatcher.find()) {
-            AnalysisResult result = new AnalysisResult();
-            result.depth = Integer.parseInt(mateMatcher.group(1));
-            result.mateIn = Integer.parseInt(mateMatcher.group(2));
-            result.isMate = true;
-            result.evaluation = "Mate in " + Math.abs(result.mateIn);
-            result.centipawns = result.mateIn > 0 ? 10000 : -10000;
-            return result;
-        } else if (infoMatcher.find()) {
-            AnalysisResult result = new AnalysisResult();
-            result.depth = Integer.parseInt(infoMatcher.group(1));
-            result.centipawns = Integer.parseInt(infoMatcher.group(2));
-            result.evaluation = String.format("%.2f", result.centipawns / 100.0);
-            return result;
-        }
-
-        return null;
+    /**
+     * Number of searches that can run at the same time, 1 before the pool has started.
+     */
+    public int getWorkerCount() {
+        StockfishPool current = pool;
+        return current != null ? current.size() : 1;
     }
 
     public void setSkillLevel(int level) {
-        this.skillLevel = Math.max(-20, Math.min(20, level));
-        if (isReady) {
-            try {
-                sendCommand("setoption name Skill Level value " + skillLevel);
-            } catch (IOException e) {
-            }
-        }
+        defaultRequest = defaultRequest.withSkillLevel(level);
     }
     
     @Override
     public boolean isAvailable() {
-        return isInitialized && isReady && stockfishProcess != null && stockfishProcess.isAlive();
+        return isInitialized && pool != null && pool.hasLiveWorker();
     }
     
     @Override
     public void setAnalysisDepth(int depth) {
-        this.analysisDepth = Math.max(1, Math.min(30, depth));
+        defaultRequest = defaultRequest.withDepth(depth);
     }
     
     @Override
     public void setAnalysisTime(int timeMs) {
-        this.analysisTime = Math.max(100, Math.min(60000, timeMs));
+        defaultRequest = defaultRequest.withMoveTime(Math.max(100, timeMs));
     }
 
     public static class AnalysisResult {
@@ -385,6 +294,10 @@ public class StockfishIntegration implements IStockfishEngine {
         public String evaluation;
         public String principalVariation;
         public int depth = 0;
+        public long nodes;
+        public long nodesPerSecond;
+        // Latest line per MultiPV index, best first
+        public List<AnalysisUpdate> variations = new ArrayList<>();
         public boolean isMate = false;
         public int mateIn = 0;
         public int centipawns = 0;
@@ -421,6 +334,24 @@ public class StockfishIntegration implements IStockfishEngine {
             this.error = error;
         }
 
+        public static EvaluationResult fromAnalysis(AnalysisResult analysis) {
+            if (analysis.error != null) {
+                return new EvaluationResult(analysis.error);
+            }
+            if (analysis.evaluation == null) {
+                return new EvaluationResult("No analysis result");
+            }
+            EvaluationResult result = new EvaluationResult();
+            result.centipawnEvaluation = analysis.centipawns;
+            result.evaluationText = analysis.evaluation;
+            result.depth = analysis.depth;
+            result.isMate = analysis.isMate;
+            result.mateIn = analysis.mateIn;
+            result.nodesSearched = analysis.nodes;
+            result.nodesPerSecond = analysis.nodesPerSecond;
+            return result;
+        }
+
         public double getPawnAdvantage() {
             return centipawnEvaluation / 100.0;
         }
@@ -0,0 +1,476 @@
+package com.leclowndu93150.guichess.engine.integration;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Fixed set of Stockfish processes shared by all games and GUIs.
+ * Each request leases one process exclusively, so searches never share a UCI stream.
+ * Requests waiting for a process are served by the {@link EngineScheduler}: by priority and deadline,
+ * with long background searches stopped and queued again when urgent work arrives.
+ * Idle processes are pinged periodically and restarted if they stop answering.
+ */
+class StockfishPool {
+    private static final long HEALTH_CHECK_INTERVAL_SECONDS = 30;
+    private static final long PING_TIMEOUT_MS = 2000;
+
+    private final String stockfishPath;
+    private final int hashMb;
+    private final int multiPv;
+    private final int size;
+
+    private final Object lock = new Object();
+    private final Deque<StockfishProcess> idle = new ArrayDeque<>();
+    private final EngineScheduler scheduler = new EngineScheduler();
+    // Running or restarting processes; a failed restart gives its slot back
+    private int liveWorkers = 0;
+    private final AtomicInteger nextId = new AtomicInteger();
+    private volatile boolean shutdown = false;
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService healthChecker;
+
+    StockfishPool(String stockfishPath, int size, int hashMb, int multiPv) throws IOException {
+        this.stockfishPath = stockfishPath;
+        this.size = size;
+        this.hashMb = hashMb;
+        this.multiPv = multiPv;
+        // Restarts and result delivery; the searches themselves complete on the workers' reader threads
+        this.executor = Executors.newCachedThreadPool(daemonThreads("Stockfish-Pool"));
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(daemonThreads("Stockfish-Health"));
+
+        IOException failure = null;
+        for (int i = 0; i < size; i++) {
+            try {
+                idle.add(new StockfishProcess(nextId.getAndIncrement(), stockfishPath, hashMb, multiPv));
+                liveWorkers++;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (liveWorkers == 0) {
+            throw failure != null ? failure : new IOException("No Stockfish workers could be started");
+        }
+
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, HEALTH_CHECK_INTERVAL_SECONDS, HEALTH_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean hasLiveWorker() {
+        synchronized (lock) {
+            return !shutdown && liveWorkers > 0;
+        }
+    }
+
+    /**
+     * Runs a task on a process as soon as the scheduler grants one and returns the process afterwards.
+     * The task receives the request with its move time fitted to the deadline at the moment it starts.
+     * The returned future completes on a pool thread, never on a worker's reader thread,
+     * so callers may block or chain further engine calls from their callbacks.
+     * Cancelling it, or the request's {@link EngineRequest#withCancellation cancellation}, drops a task
+     * still waiting for a process and stops a running search, which is then delivered as it is.
+     */
+    <T> CompletableFuture<T> submit(EngineRequest request, StockfishTask<T> task) {
+        CompletableFuture<T> delivered = new CompletableFuture<>();
+        long ticket;
+        synchronized (lock) {
+            ticket = scheduler.nextTicket();
+        }
+        schedule(request, ticket, task, delivered);
+        return delivered;
+    }
+
+    private <T> void schedule(EngineRequest request, long ticket, StockfishTask<T> task, CompletableFuture<T> delivered) {
+        CompletableFuture<StockfishProcess> acquired = acquire(request, ticket);
+        // A caller that gives up while waiting leaves the queue
+        onGiveUp(request, delivered, () -> acquired.cancel(false));
+        acquired.whenComplete((worker, acquireFailure) -> {
+            if (acquireFailure != null) {
+                deliver(delivered, null, acquireFailure);
+                return;
+            }
+            if (isAbandoned(request, delivered)) {
+                release(worker, true);
+                deliver(delivered, null, new CancellationException("Search cancelled before it started"));
+                return;
+            }
+
+            EngineScheduler.Lease lease;
+            synchronized (lock) {
+                lease = scheduler.start(worker, request);
+            }
+            onGiveUp(request, delivered, () -> {
+                synchronized (lock) {
+                    scheduler.stop(lease);
+                }
+            });
+            CompletableFuture<T> result;
+            try {
+                result = task.run(worker, request.fitToDeadline(System.currentTimeMillis()));
+            } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+            // Preempted before its search was registered, so the stop in acquire found nothing to stop
+            synchronized (lock) {
+                if (lease.preempted) {
+                    scheduler.stop(lease);
+                }
+            }
+
+            result.whenComplete((value, throwable) -> {
+                boolean stopped;
+                synchronized (lock) {
+                    stopped = scheduler.finish(lease);
+                }
+                release(worker, throwable == null);
+                // A stopped search only has a partial result; run it again once the urgent work is served,
+                // unless the caller has given up on it
+                if (stopped && throwable == null && !shutdown && !isAbandoned(request, delivered)) {
+                    schedule(request, ticket, task, delivered);
+                } else {
+                    deliver(delivered, value, throwable);
+                }
+            });
+        });
+    }
+
+    private static boolean isAbandoned(EngineRequest request, CompletableFuture<?> delivered) {
+        return delivered.isDone() || request.isCancelled();
+    }
+
+    private static void onGiveUp(EngineRequest request, CompletableFuture<?> delivered, Runnable action) {
+        delivered.whenComplete((value, throwable) -> {
+            if (delivered.isCancelled()) action.run();
+        });
+        request.onCancel(action);
+    }
+
+    private <T> void deliver(CompletableFuture<T> delivered, T value, Throwable throwable) {
+        Runnable complete = () -> {
+            if (throwable != null) {
+                delivered.completeExceptionally(throwable);
+            } else {
+                delivered.complete(value);
+            }
+        };
+        try {
+            executor.execute(complete);
+        } catch (RejectedExecutionException e) {
+            complete.run();
+        }
+    }
+
+    /**
+     * Searches many positions with the same limits. Up to one lease per process works through the
+     * batch, running positions back to back on its process instead of queueing each one separately.
+     * A lease hands its process back between positions whenever a request at least as urgent is
+     * waiting, and a position whose search was preempted is searched again later, so only full
+     * results are returned.
+     *
+     * @param onResult receives each result with its index, on a worker's reader thread, may be null
+     */
+    CompletableFuture<List<StockfishIntegration.AnalysisResult>> submitBatch(List<String> fens, EngineRequest request,
+                                                                          BiConsumer<Integer, StockfishIntegration.AnalysisResult> onResult) {
+        if (fens.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        Batch batch = new Batch(fens, request, onResult);
+        long ticket;
+        synchronized (lock) {
+            ticket = scheduler.nextTicket();
+        }
+        for (int i = 0; i < Math.min(size, fens.size()); i++) {
+            startLane(batch, ticket);
+        }
+        return batch.done;
+    }
+
+    private void startLane(Batch batch, long ticket) {
+        CompletableFuture<StockfishProcess> acquired = acquire(batch.request, ticket);
+        batch.request.onCancel(() -> acquired.cancel(false));
+        acquired.whenComplete((worker, acquireFailure) -> {
+            if (acquireFailure != null) {
+                // Other lanes may still be searching; they finish their own positions
+                for (int index = batch.claim(); index >= 0; index = batch.claim()) {
+                    finishPosition(batch, index, new StockfishIntegration.AnalysisResult("Analysis failed: " + acquireFailure.getMessage()));
+                }
+                return;
+            }
+            EngineScheduler.Lease lease;
+            synchronized (lock) {
+                lease = scheduler.start(worker, batch.request);
+            }
+            runLane(batch, ticket, worker, lease);
+        });
+    }
+
+    private void runLane(Batch batch, long ticket, StockfishProcess worker, EngineScheduler.Lease lease) {
+        if (batch.request.isCancelled()) {
+            // Positions still being searched by other lanes finish on their own
+            for (int index = batch.claim(); index >= 0; index = batch.claim()) {
+                finishPosition(batch, index, new StockfishIntegration.AnalysisResult("Analysis cancelled"));
+            }
+            endLane(worker, lease, true);
+            return;
+        }
+        int index = batch.claim();
+        if (index < 0) {
+            endLane(worker, lease, true);
+            return;
+        }
+
+        CompletableFuture<StockfishIntegration.AnalysisResult> search =
+                worker.search(batch.fens.get(index), batch.request.fitToDeadline(System.currentTimeMillis()), null);
+        synchronized (lock) {
+            if (lease.preempted) {
+                scheduler.stop(lease);
+            }
+        }
+
+        search.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                finishPosition(batch, index, new StockfishIntegration.AnalysisResult("Analysis failed: " + throwable.getMessage()));
+                endLane(worker, lease, false);
+                startLane(batch, ticket);
+                return;
+            }
+
+            boolean stopped;
+            boolean yield;
+            synchronized (lock) {
+                stopped = lease.stopped;
+                yield = lease.preempted || scheduler.hasWaiting(batch.request.getPriority());
+            }
+            if (stopped && !batch.request.isCancelled()) {
+                batch.retry(index);
+            } else {
+                finishPosition(batch, index, result);
+            }
+
+            if (yield) {
+                // Queue behind whoever is waiting; the scheduler decides who gets the process next
+                endLane(worker, lease, true);
+                startLane(batch, ticket);
+            } else {
+                runLane(batch, ticket, worker, lease);
+            }
+        });
+    }
+
+    private void endLane(StockfishProcess worker, EngineScheduler.Lease lease, boolean healthy) {
+        synchronized (lock) {
+            scheduler.finish(lease);
+        }
+        release(worker, healthy);
+    }
+
+    private void finishPosition(Batch batch, int index, StockfishIntegration.AnalysisResult result) {
+        if (batch.onResult != null) {
+            try {
+                batch.onResult.accept(index, result);
+            } catch (RuntimeException e) {
+                System.err.println("[Stockfish] Batch result listener failed: " + e.getMessage());
+            }
+        }
+        if (batch.complete(index, result)) {
+            deliver(batch.done, new ArrayList<>(Arrays.asList(batch.results)), null);
+        }
+    }
+
+    /**
+     * Leases a process, stopping a less urgent search if none is free.
+     * The caller owns the process until {@link #release(StockfishProcess, boolean)}.
+     */
+    private CompletableFuture<StockfishProcess> acquire(EngineRequest request, long ticket) {
+        CompletableFuture<StockfishProcess> future;
+        synchronized (lock) {
+            if (shutdown) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Stockfish pool is shut down"));
+            }
+            StockfishProcess worker = idle.poll();
+            if (worker != null) {
+                return CompletableFuture.completedFuture(worker);
+            }
+            future = scheduler.enqueue(request, ticket);
+            EngineScheduler.Lease preempted = scheduler.selectPreemption(request);
+            if (preempted != null) {
+                // Sent under the lock, while the victim still holds its process. The engine answers with
+                // a bestmove, which releases the process to the most urgent waiter
+                scheduler.stop(preempted);
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Returns a leased process. Unhealthy ones are replaced by a fresh process in the background.
+     */
+    void release(StockfishProcess worker, boolean healthy) {
+        if (!healthy || !worker.isAlive()) {
+            System.err.println("[Stockfish] Worker " + worker.getId() + " is unresponsive, restarting it");
+            worker.quit();
+            if (!shutdown) {
+                executor.execute(this::restart);
+            }
+            return;
+        }
+        handOver(worker);
+    }
+
+    private void handOver(StockfishProcess worker) {
+        CompletableFuture<StockfishProcess> next;
+        synchronized (lock) {
+            if (shutdown) {
+                worker.quit();
+                return;
+            }
+            next = scheduler.poll();
+            if (next == null) {
+                idle.add(worker);
+                return;
+            }
+        }
+        // The waiter may have been cancelled since it was polled
+        if (!next.complete(worker)) {
+            handOver(worker);
+        }
+    }
+
+    private void restart() {
+        try {
+            handOver(new StockfishProcess(nextId.getAndIncrement(), stockfishPath, hashMb, multiPv));
+        } catch (IOException e) {
+            System.err.println("[Stockfish] Failed to restart worker: " + e.getMessage());
+            synchronized (lock) {
+                liveWorkers--;
+            }
+        }
+    }
+
+    private void checkHealth() {
+        int count;
+        synchronized (lock) {
+            count = idle.size();
+        }
+        for (int i = 0; i < count; i++) {
+            StockfishProcess worker;
+            synchronized (lock) {
+                worker = idle.poll();
+            }
+            if (worker == null) return;
+            boolean healthy;
+            try {
+                worker.ping().get(PING_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                healthy = true;
+            } catch (ExecutionException | TimeoutException e) {
+                healthy = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                release(worker, true);
+                return;
+            }
+            release(worker, healthy);
+        }
+
+        // Workers that failed to restart earlier get another try
+        int missing;
+        synchronized (lock) {
+            missing = shutdown ? 0 : size - liveWorkers;
+            liveWorkers += missing;
+        }
+        for (int i = 0; i < missing; i++) {
+            restart();
+        }
+    }
+
+    void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            for (CompletableFuture<StockfishProcess> waiter : scheduler.drain()) {
+                waiter.completeExceptionally(new IllegalStateException("Stockfish pool is shut down"));
+            }
+            for (StockfishProcess worker : idle) {
+                worker.quit();
+            }
+            idle.clear();
+        }
+        healthChecker.shutdownNow();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Positions of one {@link #submitBatch} call, claimed one at a time by its lanes.
+     */
+    private static final class Batch {
+        final List<String> fens;
+        final EngineRequest request;
+        final BiConsumer<Integer, StockfishIntegration.AnalysisResult> onResult;
+        final StockfishIntegration.AnalysisResult[] results;
+        final CompletableFuture<List<StockfishIntegration.AnalysisResult>> done = new CompletableFuture<>();
+
+        private final AtomicInteger nextIndex = new AtomicInteger();
+        private final ConcurrentLinkedQueue<Integer> retries = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger remaining;
+
+        Batch(List<String> fens, EngineRequest request, BiConsumer<Integer, StockfishIntegration.AnalysisResult> onResult) {
+            this.fens = fens;
+            this.request = request;
+            this.onResult = onResult;
+            this.results = new StockfishIntegration.AnalysisResult[fens.size()];
+            this.remaining = new AtomicInteger(fens.size());
+        }
+
+        /**
+         * The next position to search, preempted ones first, or -1 when none is left to claim.
+         */
+        int claim() {
+            Integer retry = retries.poll();
+            if (retry != null) return retry;
+            int index = nextIndex.getAndIncrement();
+            return index < fens.size() ? index : -1;
+        }
+
+        void retry(int index) {
+            retries.add(index);
+        }
+
+        /**
+         * @return whether this was the last outstanding position
+         */
+        boolean complete(int index, StockfishIntegration.AnalysisResult result) {
+            results[index] = result;
+            return remaining.decrementAndGet() == 0;
+        }
+    }
+
+    @FunctionalInterface
+    interface StockfishTask<T> {
+        CompletableFuture<T> run(StockfishProcess worker, EngineRequest request);
+    }
+}
@@ -0,0 +1,339 @@
+package com.leclowndu93150.guichess.engine.integration;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A single Stockfish UCI process.
+ *
+ * A dedicated reader thread consumes the engine output as it arrives: {@code info} lines are
+ * parsed and forwarded to the running search's listener, {@code bestmove} completes the search future and
+ * {@code readyok} completes pings. Nobody polls the stream.
+ * Searches are not concurrent: {@link StockfishPool} leases the process to one request at a time.
+ */
+class StockfishProcess {
+    private static final Pattern BEST_MOVE_PATTERN = Pattern.compile("bestmove\\s+(\\w+)");
+
+    private static final long DEPTH_ONLY_TIMEOUT_MS = 30000;
+    // How long past its time limit a search may run before it is stopped, and then abandoned
+    private static final long STOP_GRACE_MS = 2000;
+
+    private final int id;
+    private final Process process;
+    private final BufferedWriter input;
+    private final BufferedReader output;
+
+    private final Object lock = new Object();
+    private final CompletableFuture<Void> uciOk = new CompletableFuture<>();
+    private final Queue<CompletableFuture<Void>> pendingPings = new ArrayDeque<>();
+    private Search currentSearch;
+    private IOException failure;
+
+    // Options currently set on this process, so they are only re-sent when a request needs different ones
+    private int skillLevel = EngineRequest.MAX_SKILL_LEVEL;
+    private int multiPv;
+
+    StockfishProcess(int id, String stockfishPath, int hashMb, int multiPv) throws IOException {
+        this.id = id;
+        this.multiPv = multiPv;
+        ProcessBuilder processBuilder = new ProcessBuilder(stockfishPath);
+        processBuilder.redirectErrorStream(true);
+
+        process = processBuilder.start();
+        input = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+        output = new BufferedReader(new InputStreamReader(process.getInputStream()));
+
+        Thread reader = new Thread(this::readLoop, "Stockfish-Reader-" + id);
+        reader.setDaemon(true);
+        reader.start();
+
+        try {
+            sendCommand("uci");
+            uciOk.get(5, TimeUnit.SECONDS);
+
+            sendCommand("setoption name Hash value " + hashMb);
+            sendCommand("setoption name Threads value 1");
+            sendCommand("setoption name MultiPV value " + multiPv);
+            sendCommand("setoption name Skill Level value " + skillLevel);
+            sendCommand("ucinewgame");
+            ping().get(5, TimeUnit.SECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException | IOException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            process.destroyForcibly();
+            throw new IOException("Stockfish worker " + id + " did not complete the UCI handshake", e);
+        }
+    }
+
+    int getId() {
+        return id;
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * Health check: completes when the engine answers isready with readyok.
+     */
+    CompletableFuture<Void> ping() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (lock) {
+            if (failure != null) {
+                return CompletableFuture.failedFuture(failure);
+            }
+            pendingPings.add(future);
+        }
+        try {
+            sendCommand("isready");
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Searches one position within the request's limits.
+     * Completes with the final info line and best move when the engine sends {@code bestmove}.
+     *
+     * @param infoListener receives every scored {@code info} line of this search, may be null
+     */
+    CompletableFuture<StockfishIntegration.AnalysisResult> search(String fen, EngineRequest request, Consumer<AnalysisUpdate> infoListener) {
+        Search search = new Search(infoListener);
+        synchronized (lock) {
+            if (failure != null) {
+                return CompletableFuture.failedFuture(failure);
+            }
+            if (currentSearch != null) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Stockfish worker " + id + " is already searching"));
+            }
+            currentSearch = search;
+        }
+
+        try {
+            applyOptions(request);
+            sendCommand("position fen " + fen);
+            sendCommand(request.toGoCommand());
+        } catch (IOException e) {
+            finishSearch(search, null, e);
+            return search.future;
+        }
+
+        // Depth-only searches have no movetime, so they get a generous cap instead
+        long timeLimitMs = request.getMoveTimeMs() > 0 ? request.getMoveTimeMs() : DEPTH_ONLY_TIMEOUT_MS;
+        CompletableFuture.delayedExecutor(timeLimitMs + STOP_GRACE_MS, TimeUnit.MILLISECONDS).execute(() -> {
+            if (search.future.isDone()) return;
+            // Out of time: the engine still answers stop with a bestmove, which keeps the stream in sync.
+            // Stopped by future, so a search the pool has started on this process since is left running
+            stop(search.future);
+            CompletableFuture.delayedExecutor(STOP_GRACE_MS, TimeUnit.MILLISECONDS).execute(() ->
+                    finishSearch(search, null, new IOException("Stockfish worker " + id + " did not stop its search")));
+        });
+        return search.future;
+    }
+
+    /**
+     * Ends the given search early; the engine still answers with its best move so far.
+     * Does nothing if that search already finished.
+     */
+    void stop(CompletableFuture<StockfishIntegration.AnalysisResult> searchFuture) {
+        // Held across the write so a search that starts meanwhile cannot receive this stop
+        synchronized (lock) {
+            if (currentSearch == null || currentSearch.future != searchFuture) return;
+            try {
+                sendCommand("stop");
+            } catch (IOException ignored) {
+                // A dead process fails the search through the reader thread
+            }
+        }
+    }
+
+    /**
+     * Ends whatever search is running, for the pool's scheduler; the engine still answers with a best move.
+     *
+     * @return whether a search was running and got the stop
+     */
+    boolean stopSearch() {
+        synchronized (lock) {
+            if (currentSearch == null) return false;
+            try {
+                sendCommand("stop");
+            } catch (IOException ignored) {
+                // A dead process fails the search through the reader thread
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Sends only the options that differ from what this process already has.
+     */
+    private void applyOptions(EngineRequest request) throws IOException {
+        if (request.getSkillLevel() != skillLevel) {
+            sendCommand("setoption name Skill Level value " + request.getSkillLevel());
+            skillLevel = request.getSkillLevel();
+        }
+        if (request.getMultiPv() != multiPv) {
+            sendCommand("setoption name MultiPV value " + request.getMultiPv());
+            multiPv = request.getMultiPv();
+        }
+    }
+
+    void quit() {
+        if (!process.isAlive()) return;
+        try {
+            sendCommand("quit");
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (Exception e) {
+            process.destroyForcibly();
+        }
+    }
+
+    private void sendCommand(String command) throws IOException {
+        synchronized (input) {
+            input.write(command);
+            input.newLine();
+            input.flush();
+        }
+    }
+
+    private void readLoop() {
+        try {
+            String line;
+            while ((line = output.readLine()) != null) {
+                handleLine(line.trim());
+            }
+            fail(new IOException("Stockfish worker " + id + " exited"));
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void handleLine(String line) {
+        if (line.startsWith("info")) {
+            Search search = current();
+            if (search != null) {
+                search.onInfo(line);
+            }
+        } else if (line.startsWith("bestmove")) {
+            Search search = current();
+            if (search != null) {
+                Matcher bestMoveMatcher = BEST_MOVE_PATTERN.matcher(line);
+                if (bestMoveMatcher.find() && !bestMoveMatcher.group(1).equals("none")) {
+                    search.result.bestMove = bestMoveMatcher.group(1);
+                }
+                finishSearch(search, search.result, null);
+            }
+        } else if (line.equals("readyok")) {
+            CompletableFuture<Void> ping;
+            synchronized (lock) {
+                ping = pendingPings.poll();
+            }
+            if (ping != null) {
+                ping.complete(null);
+            }
+        } else if (line.equals("uciok")) {
+            uciOk.complete(null);
+        }
+    }
+
+    private Search current() {
+        synchronized (lock) {
+            return currentSearch;
+        }
+    }
+
+    private void finishSearch(Search search, StockfishIntegration.AnalysisResult result, Throwable error) {
+        synchronized (lock) {
+            if (currentSearch == search) {
+                currentSearch = null;
+            }
+        }
+        if (error != null) {
+            search.future.completeExceptionally(error);
+        } else {
+            search.future.complete(result);
+        }
+    }
+
+    private void fail(IOException e) {
+        Search search;
+        CompletableFuture<?>[] pings;
+        synchronized (lock) {
+            failure = e;
+            search = currentSearch;
+            pings = pendingPings.toArray(new CompletableFuture<?>[0]);
+            pendingPings.clear();
+        }
+        uciOk.completeExceptionally(e);
+        if (search != null) {
+            finishSearch(search, null, e);
+        }
+        for (CompletableFuture<?> ping : pings) {
+            ping.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * The search in flight. Its result is only written by the reader thread until the future completes.
+     */
+    private static final class Search {
+        final CompletableFuture<StockfishIntegration.AnalysisResult> future = new CompletableFuture<>();
+        final StockfishIntegration.AnalysisResult result = new StockfishIntegration.AnalysisResult();
+        final Consumer<AnalysisUpdate> infoListener;
+        // Only the reader thread parses, so one parse target serves every line of the search
+        private final UciInfo info = new UciInfo();
+
+        Search(Consumer<AnalysisUpdate> infoListener) {
+            this.infoListener = infoListener;
+        }
+
+        void onInfo(String line) {
+            if (!info.parse(line)) return;
+
+            // Without a listener no one sees an update before the search ends, so each line's is refilled in place
+            int index = info.multiPv - 1;
+            AnalysisUpdate update = infoListener == null && index < result.variations.size()
+                    ? result.variations.get(index) : null;
+            if (update == null) {
+                update = new AnalysisUpdate();
+            }
+            update.set(info);
+
+            // The main line drives the summary; with MultiPV the other lines are kept alongside it
+            if (update.multiPv == 1) {
+                result.evaluation = update.evaluation;
+                result.depth = update.depth;
+                result.centipawns = update.centipawns;
+                result.isMate = update.isMate;
+                result.mateIn = update.mateIn;
+                result.principalVariation = update.principalVariation;
+                result.nodes = update.nodes;
+                result.nodesPerSecond = update.nodesPerSecond;
+            }
+            while (result.variations.size() < update.multiPv) {
+                result.variations.add(null);
+            }
+            result.variations.set(update.multiPv - 1, update);
+
+            if (infoListener != null) {
+                try {
+                    infoListener.accept(update);
+                } catch (RuntimeException e) {
+                    System.err.println("[Stockfish] Info listener failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -4,13 +4,17 @@ import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
-import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 /**
@@ -21,6 +25,8 @@ public class StockfishWebIntegration implements IStockfishEngine {
     private static final String API_URL = "https://chess-api.com/v1";
     private static final int DEFAULT_DEPTH = 12;
     private static final int DEFAULT_THINKING_TIME = 50;
+    // Batch requests kept in flight at once, all over the client's shared connection
+    private static final int BATCH_WINDOW = 2;
     
     private final HttpClient httpClient;
     private final Gson gson;
@@ -52,7 +58,7 @@ public class StockfishWebIntegration implements IStockfishEngine {
                 
                 String hint = "Best move: " + formattedMove;
                 
-                if (response.has("eval")) {
+                if (response.has("eval") && !response.get("eval").isJsonNull()) {
                     double eval = response.get("eval").getAsDouble();
                     hint += " (Eval: " + String.format("%.2f", eval) + ")";
                 }
@@ -65,69 +71,74 @@ public class StockfishWebIntegration implements IStockfishEngine {
     }
     
     private void analyzePositionWithParams(String fen, int depth, int thinkingTime, Consumer<JsonObject> callback) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                JsonObject requestBody = new JsonObject();
-                requestBody.addProperty("fen", fen);
-                requestBody.addProperty("depth", Math.min(depth, 18));
-                requestBody.addProperty("maxThinkingTime", Math.min(thinkingTime, 100));
-                
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(API_URL))
-                        .timeout(Duration.ofSeconds(10))
-                        .header("Content-Type", "application/json")
-                        .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(requestBody)))
-                        .build();
-                
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-                
-                if (response.statusCode() == 200) {
-                    JsonObject jsonResponse = JsonParser.parseString(response.body()).getAsJsonObject();
-                    callback.accept(jsonResponse);
-                } else {
+        sendAnalysisRequest(buildAnalysisRequest(fen, depth, thinkingTime)).thenAccept(callback);
+    }
+    
+    /**
+     * Sends the request without holding a thread while it is in flight.
+     * Completes with null on any HTTP or network error.
+     */
+    private CompletableFuture<JsonObject> sendAnalysisRequest(HttpRequest request) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() == 200) {
+                        return JsonParser.parseString(response.body()).getAsJsonObject();
+                    }
                     System.err.println("[StockfishWeb] HTTP Error " + response.statusCode() + ": " + response.body());
-                    callback.accept(null);
-                }
-                
-            } catch (IOException | InterruptedException e) {
-                System.err.println("[StockfishWeb] Exception: " + e.getMessage());
-                e.printStackTrace();
-                callback.accept(null);
-            }
-        });
+                    return (JsonObject) null;
+                })
+                .exceptionally(throwable -> {
+                    System.err.println("[StockfishWeb] Exception: " + throwable.getMessage());
+                    return null;
+                });
+    }
+    
+    private HttpRequest buildAnalysisRequest(String fen, int depth, int thinkingTime) {
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("fen", fen);
+        requestBody.addProperty("depth", Math.min(depth, 18));
+        requestBody.addProperty("maxThinkingTime", Math.min(thinkingTime, 100));
+        
+        return HttpRequest.newBuilder()
+                .uri(URI.create(API_URL))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(requestBody)))
+                .build();
     }
     
     public void evaluatePosition(String fen, Consumer<StockfishIntegration.EvaluationResult> callback) {
-        analyzePositionWithParams(fen, DEFAULT_DEPTH, DEFAULT_THINKING_TIME, response -> {
-            if (response != null && response.has("eval")) {
-                StockfishIntegration.EvaluationResult result = new StockfishIntegration.EvaluationResult();
-                
-                double evaluation = response.get("eval").getAsDouble();
-                result.centipawnEvaluation = (int) Math.round(evaluation * 100);
-                
-                if (response.has("text")) {
-                    result.evaluationText = response.get("text").getAsString();
-                }
-                
-                if (response.has("depth")) {
-                    result.depth = response.get("depth").getAsInt();
-                }
-                
-                if (response.has("mate")) {
-                    if (!response.get("mate").isJsonNull()) {
-                        result.isMate = true;
-                        result.mateIn = response.get("mate").getAsInt();
-                    }
+        analyzePositionWithParams(fen, DEFAULT_DEPTH, DEFAULT_THINKING_TIME, response -> callback.accept(toEvaluationResult(response)));
+    }
+    
+    private StockfishIntegration.EvaluationResult toEvaluationResult(JsonObject response) {
+        if (response != null && response.has("eval")) {
+            StockfishIntegration.EvaluationResult result = new StockfishIntegration.EvaluationResult();
+            
+            double evaluation = response.get("eval").getAsDouble();
+            result.centipawnEvaluation = (int) Math.round(evaluation * 100);
+            
+            if (response.has("text")) {
+                result.evaluationText = response.get("text").getAsString();
+            }
+            
+            if (response.has("depth")) {
+                result.depth = response.get("depth").getAsInt();
+            }
+            
+            if (response.has("mate")) {
+                if (!response.get("mate").isJsonNull()) {
+                    result.isMate = true;
+                    result.mateIn = response.get("mate").getAsInt();
                 }
-                
-                result.nodesSearched = 0;
-                result.nodesPerSecond = 80_000_000;
-                
-                callback.accept(result);
-            } else {
-                callback.accept(new StockfishIntegration.EvaluationResult("Web service unavailable"));
             }
-        });
+            
+            result.nodesSearched = 0;
+            result.nodesPerSecond = 80_000_000;
+            
+            return result;
+        }
+        return new StockfishIntegration.EvaluationResult("Web service unavailable");
     }
     
     public void checkServiceAvailability(Consumer<Boolean> callback) {
@@ -236,39 +247,143 @@ public class StockfishWebIntegration implements IStockfishEngine {
     @Override
     public CompletableFuture<StockfishIntegration.AnalysisResult> analyzePosition(String fen) {
         CompletableFuture<StockfishIntegration.AnalysisResult> future = new CompletableFuture<>();
-        analyzePositionWithParams(fen, analysisDepth, analysisTime, response -> {
-            if (response != null) {
-                StockfishIntegration.AnalysisResult result = new StockfishIntegration.AnalysisResult();
-                
-                if (response.has("lan")) {
-                    result.bestMove = response.get("lan").getAsString();
-                } else if (response.has("move")) {
-                    result.bestMove = response.get("move").getAsString();
-                }
-                
-                if (response.has("eval")) {
-                    double eval = response.get("eval").getAsDouble();
-                    result.centipawns = (int) Math.round(eval * 100);
-                    result.evaluation = String.format("%.2f", eval);
-                }
-                
-                if (response.has("depth")) {
-                    result.depth = response.get("depth").getAsInt();
-                }
-                
-                if (response.has("mate") && !response.get("mate").isJsonNull()) {
-                    result.isMate = true;
-                    result.mateIn = response.get("mate").getAsInt();
-                }
-                
-                future.complete(result);
-            } else {
-                StockfishIntegration.AnalysisResult errorResult = new StockfishIntegration.AnalysisResult();
-                errorResult.error = "Web service unavailable or no response received";
-                future.complete(errorResult);
+        analyzePositionWithParams(fen, analysisDepth, analysisTime, response -> future.complete(toAnalysisResult(response)));
+        return future;
+    }
+    
+    /**
+     * Skill level and MultiPV are not supported by the web API; only depth and time are sent.
+     */
+    @Override
+    public CompletableFuture<StockfishIntegration.AnalysisResult> analyzePosition(String fen, EngineRequest request) {
+        CompletableFuture<StockfishIntegration.AnalysisResult> future = new CompletableFuture<>();
+        analyzePositionWithParams(fen, request.getDepth(), toThinkingTime(request.getMoveTimeMs()),
+                response -> future.complete(toAnalysisResult(response)));
+        return future;
+    }
+    
+    @Override
+    public CompletableFuture<StockfishIntegration.EvaluationResult> evaluatePosition(String fen, EngineRequest request) {
+        CompletableFuture<StockfishIntegration.EvaluationResult> future = new CompletableFuture<>();
+        analyzePositionWithParams(fen, request.getDepth(), toThinkingTime(request.getMoveTimeMs()),
+                response -> future.complete(toEvaluationResult(response)));
+        return future;
+    }
+    
+    /**
+     * The API takes one position per call, so the batch is streamed through a small window of
+     * asynchronous requests that share one connection instead of holding a thread per position.
+     */
+    @Override
+    public CompletableFuture<List<StockfishIntegration.AnalysisResult>> evaluateBatch(List<String> fens, EngineRequest request,
+            BiConsumer<Integer, StockfishIntegration.AnalysisResult> onResult) {
+        if (fens.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        WebBatch batch = new WebBatch(fens, request, onResult);
+        for (int i = 0; i < Math.min(BATCH_WINDOW, fens.size()); i++) {
+            sendNext(batch);
+        }
+        return batch.done;
+    }
+    
+    private void sendNext(WebBatch batch) {
+        int index = batch.nextIndex.getAndIncrement();
+        if (index >= batch.fens.size()) return;
+        if (batch.request.isCancelled()) {
+            finishPosition(batch, index, new StockfishIntegration.AnalysisResult("Analysis cancelled"));
+            return;
+        }
+        
+        CompletableFuture<JsonObject> response;
+        try {
+            response = sendAnalysisRequest(buildAnalysisRequest(batch.fens.get(index), batch.request.getDepth(),
+                    toThinkingTime(batch.request.getMoveTimeMs())));
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        // Every position is recorded, even on a malformed response, or the batch would never complete
+        response.handle((json, throwable) -> {
+            StockfishIntegration.AnalysisResult result;
+            try {
+                result = throwable == null ? toAnalysisResult(json)
+                        : new StockfishIntegration.AnalysisResult("Web request failed: " + throwable.getMessage());
+            } catch (RuntimeException e) {
+                result = new StockfishIntegration.AnalysisResult("Unreadable web response: " + e.getMessage());
             }
+            finishPosition(batch, index, result);
+            return null;
         });
-        return future;
+    }
+    
+    private void finishPosition(WebBatch batch, int index, StockfishIntegration.AnalysisResult result) {
+        if (batch.onResult != null) {
+            try {
+                batch.onResult.accept(index, result);
+            } catch (RuntimeException e) {
+                System.err.println("[StockfishWeb] Batch result listener failed: " + e.getMessage());
+            }
+        }
+        batch.results[index] = result;
+        if (batch.remaining.decrementAndGet() == 0) {
+            batch.done.complete(new ArrayList<>(Arrays.asList(batch.results)));
+        } else {
+            sendNext(batch);
+        }
+    }
+    
+    /**
+     * The web API answers once, so this publishes a single update with the final result.
+     */
+    @Override
+    public AnalysisSubscription subscribeAnalysis(String fen, EngineRequest request, Consumer<AnalysisUpdate> listener) {
+        AnalysisSubscription subscription = new AnalysisSubscription(listener);
+        analyzePosition(fen, request).whenComplete((result, throwable) -> {
+            if (result != null && result.error == null) {
+                AnalysisUpdate update = new AnalysisUpdate();
+                update.depth = result.depth;
+                update.centipawns = result.centipawns;
+                update.isMate = result.isMate;
+                update.mateIn = result.mateIn;
+                update.evaluation = result.evaluation;
+                update.principalVariation = result.bestMove;
+                subscription.publish(update);
+            }
+            subscription.complete(result, throwable);
+        });
+        return subscription;
+    }
+    
+    private StockfishIntegration.AnalysisResult toAnalysisResult(JsonObject response) {
+        if (response != null) {
+            StockfishIntegration.AnalysisResult result = new StockfishIntegration.AnalysisResult();
+            
+            if (response.has("lan")) {
+                result.bestMove = response.get("lan").getAsString();
+            } else if (response.has("move")) {
+                result.bestMove = response.get("move").getAsString();
+            }
+            
+            if (response.has("eval") && !response.get("eval").isJsonNull()) {
+                double eval = response.get("eval").getAsDouble();
+                result.centipawns = (int) Math.round(eval * 100);
+                result.evaluation = String.format("%.2f", eval);
+            }
+            
+            if (response.has("depth")) {
+                result.depth = response.get("depth").getAsInt();
+            }
+            
+            if (response.has("mate") && !response.get("mate").isJsonNull()) {
+                result.isMate = true;
+                result.mateIn = response.get("mate").getAsInt();
+            }
+            
+            return result;
+        }
+        StockfishIntegration.AnalysisResult errorResult = new StockfishIntegration.AnalysisResult();
+        errorResult.error = "Web service unavailable or no response received";
+        return errorResult;
     }
     
     @Override
@@ -295,11 +410,33 @@ public class StockfishWebIntegration implements IStockfishEngine {
     
     @Override
     public void setAnalysisTime(int timeMs) {
-        this.analysisTime = Math.max(10, Math.min(100, timeMs / 10)); // Convert ms to deciseconds
+        this.analysisTime = toThinkingTime(timeMs);
+    }
+    
+    private static int toThinkingTime(int timeMs) {
+        return Math.max(10, Math.min(100, timeMs / 10)); // Convert ms to deciseconds
     }
     
     @Override
     public void shutdown() {
         // No resources to clean up for web integration
     }
+    
+    private static final class WebBatch {
+        final List<String> fens;
+        final EngineRequest request;
+        final BiConsumer<Integer, StockfishIntegration.AnalysisResult> onResult;
+        final StockfishIntegration.AnalysisResult[] results;
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final AtomicInteger remaining;
+        final CompletableFuture<List<StockfishIntegration.AnalysisResult>> done = new CompletableFuture<>();
+        
+        WebBatch(List<String> fens, EngineRequest request, BiConsumer<Integer, StockfishIntegration.AnalysisResult> onResult) {
+            this.fens = fens;
+            this.request = request;
+            this.onResult = onResult;
+            this.results = new StockfishIntegration.AnalysisResult[fens.size()];
+            this.remaining = new AtomicInteger(fens.size());
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,142 @@
+package com.leclowndu93150.guichess.engine.integration;
+
+/**
+ * Reusable parse target for UCI {@code info} lines.
+ *
+ * {@link #parse} walks the line once, token by token, and fills the fields in place, so a search's
+ * reader thread can keep one instance for every line it receives. Nothing is allocated while
+ * parsing; the principal variation stays in the line until {@link #getPrincipalVariation()} copies it.
+ * Scores are from the side to move, like UCI reports them.
+ */
+public final class UciInfo {
+    public int depth;
+    public int selDepth;
+    public int multiPv;
+    public boolean hasScore;
+    public boolean isMate;
+    // Centipawns, or moves to mate when isMate
+    public int score;
+    public long nodes;
+    public long nodesPerSecond;
+    // Permille of the hash table in use, -1 if the line did not report it
+    public int hashFull;
+
+    private String line;
+    private boolean hasDepth;
+    private int pvStart;
+
+    /**
+     * Parses one engine output line, replacing everything from the previous one.
+     *
+     * @return whether the line is an info line with a depth, a score and a principal variation
+     */
+    public boolean parse(String line) {
+        this.line = line;
+        depth = 0;
+        selDepth = 0;
+        multiPv = 1;
+        hasScore = false;
+        isMate = false;
+        score = 0;
+        nodes = 0;
+        nodesPerSecond = 0;
+        hashFull = -1;
+        hasDepth = false;
+        pvStart = -1;
+
+        int length = line.length();
+        int start = skipSpaces(line, 0);
+        int end = tokenEnd(line, start);
+        if (!isToken(line, start, end, "info")) return false;
+
+        start = skipSpaces(line, end);
+        while (start < length) {
+            end = tokenEnd(line, start);
+            int valueStart = skipSpaces(line, end);
+            int valueEnd = tokenEnd(line, valueStart);
+
+            // Unknown keys and their values are stepped over one token at a time
+            int next = valueStart;
+            if (isToken(line, start, end, "pv")) {
+                if (valueStart < length) pvStart = valueStart;
+                break;
+            } else if (isToken(line, start, end, "string")) {
+                // Free text to the end of the line
+                break;
+            } else if (isToken(line, start, end, "depth")) {
+                depth = (int) parseNumber(line, valueStart, valueEnd);
+                hasDepth = valueStart < valueEnd;
+                next = valueEnd;
+            } else if (isToken(line, start, end, "seldepth")) {
+                selDepth = (int) parseNumber(line, valueStart, valueEnd);
+                next = valueEnd;
+            } else if (isToken(line, start, end, "multipv")) {
+                multiPv = Math.max(1, (int) parseNumber(line, valueStart, valueEnd));
+                next = valueEnd;
+            } else if (isToken(line, start, end, "nodes")) {
+                nodes = parseNumber(line, valueStart, valueEnd);
+                next = valueEnd;
+            } else if (isToken(line, start, end, "nps")) {
+                nodesPerSecond = parseNumber(line, valueStart, valueEnd);
+                next = valueEnd;
+            } else if (isToken(line, start, end, "hashfull")) {
+                hashFull = (int) parseNumber(line, valueStart, valueEnd);
+                next = valueEnd;
+            } else if (isToken(line, start, end, "score")) {
+                int scoreStart = skipSpaces(line, valueEnd);
+                int scoreEnd = tokenEnd(line, scoreStart);
+                boolean mate = isToken(line, valueStart, valueEnd, "mate");
+                if ((mate || isToken(line, valueStart, valueEnd, "cp")) && scoreStart < scoreEnd) {
+                    hasScore = true;
+                    isMate = mate;
+                    score = (int) parseNumber(line, scoreStart, scoreEnd);
+                }
+                next = scoreEnd;
+            }
+            start = skipSpaces(line, next);
+        }
+        return hasDepth && hasScore && pvStart >= 0;
+    }
+
+    /**
+     * The moves after {@code pv} in UCI notation, or null if the line had none. Allocates a new string.
+     */
+    public String getPrincipalVariation() {
+        if (pvStart < 0) return null;
+        int end = line.length();
+        while (end > pvStart && line.charAt(end - 1) <= ' ') end--;
+        return line.substring(pvStart, end);
+    }
+
+    private static int skipSpaces(String line, int index) {
+        while (index < line.length() && line.charAt(index) <= ' ') index++;
+        return index;
+    }
+
+    private static int tokenEnd(String line, int index) {
+        while (index < line.length() && line.charAt(index) > ' ') index++;
+        return index;
+    }
+
+    private static boolean isToken(String line, int start, int end, String token) {
+        return end - start == token.length() && line.regionMatches(start, token, 0, token.length());
+    }
+
+    /**
+     * Optionally signed decimal; stops at the first character that is not a digit.
+     */
+    private static long parseNumber(String line, int start, int end) {
+        boolean negative = false;
+        if (start < end && (line.charAt(start) == '-' || line.charAt(start) == '+')) {
+            negative = line.charAt(start) == '-';
+            start++;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) break;
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,143 @@
+package com.leclowndu93150.guichess.engine.search;
+
+import com.leclowndu93150.guichess.chess.pieces.ChessPiece;
+import com.leclowndu93150.guichess.chess.pieces.PieceColor;
+import com.leclowndu93150.guichess.chess.pieces.PieceType;
+import com.leclowndu93150.guichess.game.core.ChessBoard;
+
+/**
+ * Static evaluation for the built-in search: material plus piece-square tables.
+ *
+ * The tables are the well-known "simplified evaluation function" ones. The king has a middlegame
+ * and an endgame table, blended by how much non-pawn material is left. Scores are in centipawns
+ * from the side to move.
+ */
+public final class Evaluation {
+    // By PieceType ordinal: king, queen, rook, bishop, knight, pawn
+    private static final int[] VALUE = {0, 900, 500, 330, 320, 100};
+    private static final int[] PHASE = {0, 4, 2, 1, 1, 0};
+    private static final int MAX_PHASE = 24;
+    private static final int BISHOP_PAIR = 30;
+
+    // Tables read from White's side, rank 8 first; a White piece on square s uses entry s ^ 56
+    private static final int[][] TABLE = {
+            {
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -20, -30, -30, -40, -40, -30, -30, -20,
+                    -10, -20, -20, -20, -20, -20, -20, -10,
+                     20,  20,   0,   0,   0,   0,  20,  20,
+                     20,  30,  10,   0,   0,  10,  30,  20
+            },
+            {
+                    -20, -10, -10,  -5,  -5, -10, -10, -20,
+                    -10,   0,   0,   0,   0,   0,   0, -10,
+                    -10,   0,   5,   5,   5,   5,   0, -10,
+                     -5,   0,   5,   5,   5,   5,   0,  -5,
+                      0,   0,   5,   5,   5,   5,   0,  -5,
+                    -10,   5,   5,   5,   5,   5,   0, -10,
+                    -10,   0,   5,   0,   0,   0,   0, -10,
+                    -20, -10, -10,  -5,  -5, -10, -10, -20
+            },
+            {
+                      0,   0,   0,   0,   0,   0,   0,   0,
+                      5,  10,  10,  10,  10,  10,  10,   5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                     -5,   0,   0,   0,   0,   0,   0,  -5,
+                      0,   0,   0,   5,   5,   0,   0,   0
+            },
+            {
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10,   0,   0,   0,   0,   0,   0, -10,
+                    -10,   0,   5,  10,  10,   5,   0, -10,
+                    -10,   5,   5,  10,  10,   5,   5, -10,
+                    -10,   0,  10,  10,  10,  10,   0, -10,
+                    -10,  10,  10,  10,  10,  10,  10, -10,
+                    -10,   5,   0,   0,   0,   0,   5, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20
+            },
+            {
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20,   0,   0,   0,   0, -20, -40,
+                    -30,   0,  10,  15,  15,  10,   0, -30,
+                    -30,   5,  15,  20,  20,  15,   5, -30,
+                    -30,   0,  15,  20,  20,  15,   0, -30,
+                    -30,   5,  10,  15,  15,  10,   5, -30,
+                    -40, -20,   0,   5,   5,   0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50
+            },
+            {
+                      0,   0,   0,   0,   0,   0,   0,   0,
+                     50,  50,  50,  50,  50,  50,  50,  50,
+                     10,  10,  20,  30,  30,  20,  10,  10,
+                      5,   5,  10,  25,  25,  10,   5,   5,
+                      0,   0,   0,  20,  20,   0,   0,   0,
+                      5,  -5, -10,   0,   0, -10,  -5,   5,
+                      5,  10,  10, -20, -20,  10,  10,   5,
+                      0,   0,   0,   0,   0,   0,   0,   0
+            }
+    };
+    private static final int[] KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10,   0,   0, -10, -20, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -30,   0,   0,   0,   0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50
+    };
+
+    private Evaluation() {
+    }
+
+    /**
+     * Centipawn value of a piece type; the king has none.
+     */
+    public static int value(PieceType type) {
+        return VALUE[type.ordinal()];
+    }
+
+    /**
+     * Score of the position for the side to move.
+     */
+    public static int evaluate(ChessBoard board) {
+        int score = 0;
+        int phase = 0;
+        int kingMiddlegame = 0;
+        int kingEndgame = 0;
+        int whiteBishops = 0;
+        int blackBishops = 0;
+
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(square);
+            if (piece == null) continue;
+            int type = piece.getType().ordinal();
+            int sign = piece.isWhite() ? 1 : -1;
+            int index = piece.isWhite() ? square ^ 56 : square;
+
+            phase += PHASE[type];
+            if (type == PieceType.KING.ordinal()) {
+                kingMiddlegame += sign * TABLE[type][index];
+                kingEndgame += sign * KING_ENDGAME[index];
+            } else {
+                score += sign * (VALUE[type] + TABLE[type][index]);
+                if (type == PieceType.BISHOP.ordinal()) {
+                    if (piece.isWhite()) whiteBishops++;
+                    else blackBishops++;
+                }
+            }
+        }
+
+        phase = Math.min(phase, MAX_PHASE);
+        score += (kingMiddlegame * phase + kingEndgame * (MAX_PHASE - phase)) / MAX_PHASE;
+        if (whiteBishops >= 2) score += BISHOP_PAIR;
+        if (blackBishops >= 2) score -= BISHOP_PAIR;
+        return board.getCurrentTurn() == PieceColor.WHITE ? score : -score;
+    }
+}
@@ -0,0 +1,263 @@
+package com.leclowndu93150.guichess.engine.search;
+
+import com.leclowndu93150.guichess.game.core.ChessBoard;
+import com.leclowndu93150.guichess.game.core.IntMoveList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Analysis search that splits the root: every legal move is searched in its own fork-join task,
+ * on its own copy of the board, and the moves come back ranked like UCI MultiPV lines.
+ *
+ * Each iteration first searches the leading moves, one per requested line, with a full window.
+ * The weakest of their scores becomes the shared alpha bound. The remaining moves are then searched
+ * in parallel with a zero window at the bound and re-searched only when they beat it, which raises
+ * the bound for every task that starts later. A move that fails low keeps its upper bound as its
+ * score and ranks below the exact ones. All tasks share one {@link TranspositionTable}.
+ *
+ * The pool is shared by every analysis; size it with {@code -Dchess.search.threads=<n>}.
+ */
+public final class RootSplitSearch {
+    private static final int THREADS = Integer.getInteger("chess.search.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    private static final ForkJoinPool POOL = new ForkJoinPool(THREADS, pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("Chess-Search-Root-" + thread.getPoolIndex());
+        return thread;
+    }, null, false);
+
+    private final List<RootMove> roots = new ArrayList<>();
+    private final TranspositionTable table;
+    private final AtomicInteger alpha = new AtomicInteger(-Search.INFINITY);
+    // Scores of the best exact moves so far this iteration, highest first; guarded by this
+    private int[] lineScores = new int[0];
+    private volatile boolean cancelled = false;
+
+    /**
+     * @param board copied once per root move, and not changed
+     */
+    public RootSplitSearch(ChessBoard board, TranspositionTable table) {
+        this.table = table;
+        IntMoveList moves = new IntMoveList();
+        board.getLegalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            roots.add(new RootMove(moves.get(i), new Search(board.copy(), table)));
+        }
+    }
+
+    /**
+     * Stops a running search from another thread; it returns its last finished iteration.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (RootMove root : roots) {
+            root.search.cancel();
+        }
+    }
+
+    /**
+     * Deepens until a limit is reached and returns every legal move, best first. The first iteration
+     * always finishes. Empty if the side to move has no legal move.
+     *
+     * @param maxDepth deepest iteration, at most {@link Search#MAX_DEPTH}
+     * @param timeMs time limit, 0 for none
+     * @param lines how many moves need an exact score, like UCI's MultiPV
+     * @param onIteration given the ranking after each finished iteration, on a pool thread; may be null
+     */
+    public List<Line> run(int maxDepth, long timeMs, int lines, Consumer<List<Line>> onIteration) {
+        long start = System.currentTimeMillis();
+        long deadline = timeMs > 0 ? start + timeMs : Long.MAX_VALUE;
+        int shown = Math.max(1, Math.min(lines, roots.size()));
+        List<Line> ranking = new ArrayList<>();
+        table.newSearch();
+
+        for (int depth = 1; depth <= Math.min(maxDepth, Search.MAX_DEPTH) && !roots.isEmpty(); depth++) {
+            if (!iterate(depth, shown, deadline, depth > 1)) break;
+
+            roots.sort(Comparator.comparing((RootMove root) -> !root.exact).thenComparing(root -> -root.score));
+            ranking = new ArrayList<>(roots.size());
+            long nodes = 0;
+            for (RootMove root : roots) {
+                nodes += root.search.getNodes();
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            for (RootMove root : roots) {
+                ranking.add(new Line(root.score, root.exact, depth, nodes, elapsed, root.line));
+            }
+            if (onIteration != null) {
+                onIteration.accept(ranking);
+            }
+
+            int best = roots.get(0).score;
+            // A forced mate inside the horizon will not change with more depth
+            if (Search.isMateScore(best) && Search.MATE - Math.abs(best) <= depth) break;
+            // The next iteration takes several times as long as this one, so do not start one that cannot finish
+            if (timeMs > 0 && elapsed > timeMs / 2) break;
+        }
+        return ranking;
+    }
+
+    /**
+     * Searches every root move to the depth; false if the iteration was stopped before it finished.
+     */
+    private boolean iterate(int depth, int shown, long deadline, boolean mayStop) {
+        alpha.set(-Search.INFINITY);
+        synchronized (this) {
+            lineScores = new int[0];
+        }
+        for (RootMove root : roots) {
+            root.search.startSlice(deadline, mayStop);
+        }
+
+        // The leading moves set the bound, so they run before the rest rather than alongside them
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < roots.size(); i++) {
+            RootMove root = roots.get(i);
+            boolean leading = i < shown;
+            tasks.add(POOL.submit(() -> {
+                if (leading) searchLeading(root, depth, shown);
+                else searchRest(root, depth, shown);
+            }));
+            if (i == shown - 1 || i == roots.size() - 1) {
+                for (ForkJoinTask<?> task : tasks) {
+                    task.join();
+                }
+                tasks.clear();
+                if (stopped()) return false;
+            }
+        }
+
+        for (RootMove root : roots) {
+            root.publish();
+        }
+        return true;
+    }
+
+    private boolean stopped() {
+        if (cancelled) return true;
+        for (RootMove root : roots) {
+            if (root.search.isStopped()) return true;
+        }
+        return false;
+    }
+
+    private void searchLeading(RootMove root, int depth, int shown) {
+        int score = root.search.searchMove(root.move, depth, -Search.INFINITY, Search.INFINITY);
+        if (root.search.isStopped()) return;
+        root.found(score, true);
+        raise(score, shown);
+    }
+
+    private void searchRest(RootMove root, int depth, int shown) {
+        int bound = alpha.get();
+        int score = root.search.searchMove(root.move, depth, bound, bound + 1);
+        if (root.search.isStopped()) return;
+        if (score <= bound) {
+            root.found(score, false);
+            return;
+        }
+        // It beat the bound it started with; the bound may have risen since, so search above the current one
+        bound = alpha.get();
+        score = root.search.searchMove(root.move, depth, bound, Search.INFINITY);
+        if (root.search.isStopped()) return;
+        root.found(score, score > bound);
+        if (score > bound) raise(score, shown);
+    }
+
+    /**
+     * Records an exact score and moves the bound up to the weakest of the best {@code shown}.
+     */
+    private synchronized void raise(int score, int shown) {
+        if (lineScores.length == shown && score <= lineScores[shown - 1]) return;
+        // Insertion into a copy, dropping the weakest once there are more than shown
+        int[] scores = Arrays.copyOf(lineScores, Math.min(shown, lineScores.length + 1));
+        int index = scores.length - 1;
+        while (index > 0 && scores[index - 1] < score) {
+            scores[index] = scores[index - 1];
+            index--;
+        }
+        scores[index] = score;
+        lineScores = scores;
+        if (scores.length == shown) {
+            alpha.set(scores[shown - 1]);
+        }
+    }
+
+    private static final class RootMove {
+        final int move;
+        final Search search;
+        // Published results of the last finished iteration
+        int score = -Search.INFINITY;
+        boolean exact = false;
+        int[] line;
+        // Results of the iteration in progress, kept apart until it finishes
+        private int pendingScore;
+        private boolean pendingExact;
+        private int[] pendingLine;
+
+        RootMove(int move, Search search) {
+            this.move = move;
+            this.search = search;
+            this.line = new int[]{move};
+        }
+
+        void found(int score, boolean exact) {
+            pendingScore = score;
+            pendingExact = exact;
+            pendingLine = exact ? search.lineAfter(move) : new int[]{move};
+        }
+
+        void publish() {
+            score = pendingScore;
+            exact = pendingExact;
+            line = pendingLine;
+        }
+    }
+
+    /**
+     * One ranked root move. Scores are in centipawns for the side to move.
+     */
+    public static final class Line {
+        public final int score;
+        // False if the move only proved worse than the shown lines, and score is an upper bound
+        public final boolean exact;
+        public final int depth;
+        // Nodes and time of the whole search, not of this move alone
+        public final long nodes;
+        public final long elapsedMs;
+        // Starts with the move itself
+        public final int[] principalVariation;
+
+        Line(int score, boolean exact, int depth, long nodes, long elapsedMs, int[] principalVariation) {
+            this.score = score;
+            this.exact = exact;
+            this.depth = depth;
+            this.nodes = nodes;
+            this.elapsedMs = elapsedMs;
+            this.principalVariation = principalVariation;
+        }
+
+        public int move() {
+            return principalVariation[0];
+        }
+
+        public boolean isMate() {
+            return Search.isMateScore(score);
+        }
+
+        /**
+         * Moves until mate, positive when the side to move gives it. Only meaningful if {@link #isMate()}.
+         */
+        public int mateIn() {
+            return Search.mateIn(score);
+        }
+    }
+}
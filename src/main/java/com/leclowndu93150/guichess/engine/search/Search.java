@@ -0,0 +1,469 @@
+package com.leclowndu93150.guichess.engine.search;
+
+import com.leclowndu93150.guichess.chess.pieces.ChessPiece;
+import com.leclowndu93150.guichess.chess.pieces.PieceType;
+import com.leclowndu93150.guichess.game.core.ChessBoard;
+import com.leclowndu93150.guichess.game.core.IntMoveList;
+import com.leclowndu93150.guichess.game.core.PackedMove;
+
+import java.util.Arrays;
+
+/**
+ * Iterative deepening alpha-beta search on a {@link ChessBoard}, for bots that do not need Stockfish.
+ *
+ * Negamax with a principal variation window, a {@link TranspositionTable}, check extensions and a
+ * quiescence search over captures and promotions. Moves are tried in the order table move,
+ * captures by most valuable victim, promotions, killer moves, then the rest.
+ *
+ * For weaker play every root move gets a fixed random bonus of up to the noise margin, so the
+ * search picks among moves its evaluation cannot tell apart by that much. The reported score is
+ * the move's own, without the bonus. One instance searches one board on the calling thread.
+ */
+public final class Search {
+    public static final int MAX_DEPTH = 64;
+    public static final int MATE = 30000;
+    private static final int MAX_PLY = 128;
+    // Scores beyond this are forced mates
+    private static final int MATE_BOUND = MATE - MAX_PLY;
+    static final int INFINITY = MATE + 1;
+    // Nodes between checks of the time and node limits
+    private static final int CHECK_INTERVAL = 2048;
+
+    private final ChessBoard board;
+    private final TranspositionTable table;
+    private final IntMoveList[] moveLists = new IntMoveList[MAX_PLY];
+    private final int[][] moveScores = new int[MAX_PLY][];
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+
+    private int noiseCp = 0;
+    private long noiseSeed = 0;
+
+    private long nodes;
+    private long deadline;
+    private long nodeLimit;
+    // Only set once a first iteration has finished, so there is always a move to return
+    private boolean mayStop;
+    private boolean stopped;
+    private volatile boolean cancelled = false;
+
+    /**
+     * @param board searched in place with makeUnchecked and unmake, and left as it was
+     * @param table usually {@link TranspositionTable#getShared()}; safe to share with concurrent searches
+     */
+    public Search(ChessBoard board, TranspositionTable table) {
+        this.board = board;
+        this.table = table;
+    }
+
+    /**
+     * @param noiseCp largest bonus a root move can get, 0 for the best move every time
+     * @param seed picks the bonuses; the same seed gives the same choice for the same search
+     */
+    public void setNoise(int noiseCp, long seed) {
+        this.noiseCp = Math.max(0, noiseCp);
+        this.noiseSeed = seed;
+    }
+
+    /**
+     * Stops a running search from another thread; it returns its last finished iteration.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Searches one more ply per iteration until a limit is reached. The first iteration always finishes.
+     *
+     * @param maxDepth deepest iteration, at most {@link #MAX_DEPTH}
+     * @param timeMs time limit, 0 for none
+     * @param nodeLimit node limit, 0 for none
+     */
+    public Result run(int maxDepth, long timeMs, long nodeLimit) {
+        long start = System.currentTimeMillis();
+        this.deadline = timeMs > 0 ? start + timeMs : Long.MAX_VALUE;
+        this.nodeLimit = nodeLimit > 0 ? nodeLimit : Long.MAX_VALUE;
+        nodes = 0;
+        mayStop = false;
+        table.newSearch();
+        stopped = false;
+        for (int[] killer : killers) {
+            Arrays.fill(killer, 0);
+        }
+
+        IntMoveList rootMoves = new IntMoveList();
+        board.getLegalMoves(rootMoves);
+        if (rootMoves.isEmpty()) {
+            int score = board.isInCheck(board.getCurrentTurn()) ? -MATE : 0;
+            return new Result(0, score, 0, 0, System.currentTimeMillis() - start, new int[0]);
+        }
+        int[] scores = orderMoves(rootMoves, 0, 0);
+        for (int i = 0; i < rootMoves.size(); i++) {
+            pickNext(rootMoves, scores, i);
+        }
+
+        int bestScore = 0;
+        int completedDepth = 0;
+        int[] bestLine = {rootMoves.get(0)};
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_DEPTH); depth++) {
+            int score = searchRoot(rootMoves, depth);
+            if (stopped) break;
+
+            completedDepth = depth;
+            bestScore = score;
+            bestLine = Arrays.copyOf(pv[0], pvLength[0]);
+            mayStop = true;
+
+            // A forced mate inside the horizon will not change with more depth
+            if (Math.abs(score) >= MATE_BOUND && MATE - Math.abs(score) <= depth) break;
+            // The next iteration takes several times as long as this one, so do not start one that cannot finish
+            if (timeMs > 0 && System.currentTimeMillis() - start > timeMs / 2) break;
+        }
+        return new Result(bestLine[0], bestScore, completedDepth, nodes, System.currentTimeMillis() - start, bestLine);
+    }
+
+    /**
+     * Searches every root move and moves the best one to the front for the next iteration.
+     */
+    private int searchRoot(IntMoveList moves, int depth) {
+        pvLength[0] = 0;
+        int bestNoisy = -INFINITY;
+        int bestScore = -INFINITY;
+        int bestIndex = 0;
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int noise = noise(move);
+            // A move only matters if it beats the best once both carry their bonus
+            int alpha = i == 0 ? -INFINITY : Math.max(-INFINITY, bestNoisy - noise);
+
+            board.makeUnchecked(move);
+            int score;
+            if (i == 0) {
+                score = -search(depth - 1, 1, -INFINITY, INFINITY);
+            } else {
+                score = -search(depth - 1, 1, -alpha - 1, -alpha);
+                if (score > alpha && !stopped) {
+                    score = -search(depth - 1, 1, -INFINITY, -alpha);
+                }
+            }
+            board.unmake(move);
+            if (stopped) break;
+
+            if (i == 0 || score > alpha) {
+                bestNoisy = score + noise;
+                bestScore = score;
+                bestIndex = i;
+                updatePv(0, move);
+            }
+        }
+
+        int best = moves.get(bestIndex);
+        for (int i = bestIndex; i > 0; i--) {
+            moves.set(i, moves.get(i - 1));
+        }
+        moves.set(0, best);
+        return bestScore;
+    }
+
+    /**
+     * Sets the limits for a series of {@link #searchMove} calls made by {@link RootSplitSearch}.
+     *
+     * @param mayStop false to let the calls finish whatever the limits, as the first iteration must
+     */
+    void startSlice(long deadline, boolean mayStop) {
+        this.deadline = deadline;
+        this.nodeLimit = Long.MAX_VALUE;
+        this.mayStop = mayStop;
+        this.stopped = false;
+    }
+
+    /**
+     * Searches one root move within the window and returns its score for the side to move at the root.
+     * Meaningless once {@link #isStopped()}.
+     */
+    int searchMove(int move, int depth, int alpha, int beta) {
+        board.makeUnchecked(move);
+        int score = -search(depth - 1, 1, -beta, -alpha);
+        board.unmake(move);
+        return score;
+    }
+
+    /**
+     * The move followed by the line found after it by the last {@link #searchMove} call.
+     */
+    int[] lineAfter(int move) {
+        int[] line = new int[Math.max(1, pvLength[1])];
+        line[0] = move;
+        for (int i = 1; i < line.length; i++) {
+            line[i] = pv[1][i];
+        }
+        return line;
+    }
+
+    boolean isStopped() {
+        return stopped;
+    }
+
+    long getNodes() {
+        return nodes;
+    }
+
+    private int search(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if (board.getHalfMoveClock() >= 100 || board.isRepetition()) return 0;
+        if (ply >= MAX_PLY - 1) return Evaluation.evaluate(board);
+
+        boolean inCheck = board.isInCheck(board.getCurrentTurn());
+        if (inCheck) depth++;
+        if (depth <= 0) return quiesce(ply, alpha, beta);
+
+        if ((++nodes & (CHECK_INTERVAL - 1)) == 0) checkLimits();
+        if (stopped) return 0;
+
+        long key = board.getZobristKey();
+        long entry = table.probe(key);
+        int tableMove = 0;
+        if (entry != 0) {
+            tableMove = TranspositionTable.move(entry);
+            // Cutting off in principal variation nodes would truncate the reported line
+            if (beta - alpha == 1 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && score >= beta
+                        || bound == TranspositionTable.UPPER && score <= alpha) {
+                    return score;
+                }
+            }
+        }
+
+        IntMoveList moves = moveList(ply);
+        board.getLegalMoves(moves);
+        if (moves.isEmpty()) {
+            return inCheck ? -(MATE - ply) : 0;
+        }
+        int[] scores = orderMoves(moves, ply, tableMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = pickNext(moves, scores, i);
+            board.makeUnchecked(move);
+            int score;
+            if (i == 0) {
+                score = -search(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                score = -search(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta && !stopped) {
+                    score = -search(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            board.unmake(move);
+            if (stopped) return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        if (!PackedMove.isCapture(move)) storeKiller(ply, move);
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.LOWER
+                : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    /**
+     * Resolves captures and promotions until the position is quiet, so the evaluation is not
+     * taken in the middle of an exchange. The side to move may always stand pat.
+     */
+    private int quiesce(int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if ((++nodes & (CHECK_INTERVAL - 1)) == 0) checkLimits();
+        if (stopped) return 0;
+
+        int standPat = Evaluation.evaluate(board);
+        if (standPat >= beta || ply >= MAX_PLY - 1) return standPat;
+        if (standPat > alpha) alpha = standPat;
+
+        IntMoveList moves = moveList(ply);
+        board.getLegalMoves(moves);
+        int tactical = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (PackedMove.isCapture(move) || PackedMove.isPromotion(move)) {
+                moves.set(tactical++, move);
+            }
+        }
+        moves.truncate(tactical);
+        int[] scores = orderMoves(moves, ply, 0);
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = pickNext(moves, scores, i);
+            board.makeUnchecked(move);
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            board.unmake(move);
+            if (stopped) return 0;
+
+            if (score >= beta) return score;
+            if (score > alpha) {
+                alpha = score;
+                updatePv(ply, move);
+            }
+        }
+        return alpha;
+    }
+
+    private int[] orderMoves(IntMoveList moves, int ply, int tableMove) {
+        int[] scores = moveScores[ply];
+        if (scores == null || scores.length < moves.size()) {
+            scores = new int[Math.max(256, moves.size())];
+            moveScores[ply] = scores;
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int score = 0;
+            if (tableMove != 0 && PackedMove.sameMove(move, tableMove)) {
+                score = 1_000_000;
+            } else if (PackedMove.isCapture(move)) {
+                ChessPiece victim = PackedMove.isEnPassant(move) ? null : board.getPiece(PackedMove.to(move));
+                int victimValue = victim != null ? Evaluation.value(victim.getType()) : Evaluation.value(PieceType.PAWN);
+                int attackerValue = Evaluation.value(board.getPiece(PackedMove.from(move)).getType());
+                score = 100_000 + victimValue * 10 - attackerValue;
+            } else if (PackedMove.isPromotion(move)) {
+                score = 90_000 + Evaluation.value(PackedMove.promotion(move));
+            } else if (PackedMove.sameMove(move, killers[ply][0])) {
+                score = 80_000;
+            } else if (PackedMove.sameMove(move, killers[ply][1])) {
+                score = 79_000;
+            }
+            scores[i] = score;
+        }
+        return scores;
+    }
+
+    /**
+     * Selection step: swaps the best remaining move into {@code index} and returns it.
+     */
+    private static int pickNext(IntMoveList moves, int[] scores, int index) {
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (scores[i] > scores[best]) best = i;
+        }
+        if (best != index) {
+            moves.swap(index, best);
+            int score = scores[index];
+            scores[index] = scores[best];
+            scores[best] = score;
+        }
+        return moves.get(index);
+    }
+
+    private void storeKiller(int ply, int move) {
+        if (PackedMove.sameMove(move, killers[ply][0])) return;
+        killers[ply][1] = killers[ply][0];
+        killers[ply][0] = move;
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        int childLength = ply + 1 < MAX_PLY ? pvLength[ply + 1] : ply + 1;
+        for (int i = ply + 1; i < childLength; i++) {
+            pv[ply][i] = pv[ply + 1][i];
+        }
+        pvLength[ply] = Math.max(ply + 1, childLength);
+    }
+
+    private IntMoveList moveList(int ply) {
+        IntMoveList list = moveLists[ply];
+        if (list == null) {
+            list = new IntMoveList();
+            moveLists[ply] = list;
+        }
+        return list;
+    }
+
+    private void checkLimits() {
+        if (!mayStop) return;
+        if (cancelled || nodes >= nodeLimit || System.currentTimeMillis() >= deadline
+                || Thread.currentThread().isInterrupted()) {
+            stopped = true;
+        }
+    }
+
+    private int noise(int move) {
+        if (noiseCp == 0) return 0;
+        // splitmix64 finaliser over the seed and the move's squares and promotion
+        long z = noiseSeed + (move & 0x7FFF) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (int) Long.remainderUnsigned(z, noiseCp + 1);
+    }
+
+    static boolean isMateScore(int score) {
+        return Math.abs(score) >= MATE_BOUND;
+    }
+
+    static int mateIn(int score) {
+        int plies = MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2;
+    }
+
+    // Mate scores are stored relative to the node so they stay correct wherever the position recurs
+    private static int toTable(int score, int ply) {
+        if (score >= MATE_BOUND) return score + ply;
+        if (score <= -MATE_BOUND) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE_BOUND) return score - ply;
+        if (score <= -MATE_BOUND) return score + ply;
+        return score;
+    }
+
+    /**
+     * Outcome of one search. Scores are in centipawns for the side to move.
+     */
+    public static final class Result {
+        // Packed move, 0 if the side to move has no legal move
+        public final int bestMove;
+        public final int score;
+        public final int depth;
+        public final long nodes;
+        public final long elapsedMs;
+        public final int[] principalVariation;
+
+        Result(int bestMove, int score, int depth, long nodes, long elapsedMs, int[] principalVariation) {
+            this.bestMove = bestMove;
+            this.score = score;
+            this.depth = depth;
+            this.nodes = nodes;
+            this.elapsedMs = elapsedMs;
+            this.principalVariation = principalVariation;
+        }
+
+        public boolean isMate() {
+            return isMateScore(score);
+        }
+
+        /**
+         * Moves until mate, positive when the side to move gives it. Only meaningful if {@link #isMate()}.
+         */
+        public int mateIn() {
+            return Search.mateIn(score);
+        }
+    }
+}
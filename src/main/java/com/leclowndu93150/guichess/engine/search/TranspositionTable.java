@@ -0,0 +1,155 @@
+package com.leclowndu93150.guichess.engine.search;
+
+/**
+ * Fixed-size, lock-free table of search results keyed by Zobrist key, shared by every search.
+ *
+ * The table is one flat {@code long[]} of two-slot buckets. The first slot keeps the deepest
+ * result and is only overwritten by a search at least as deep, by the same position or by an
+ * entry gone stale. Generations follow a {@link #GENERATION_MS} clock rather than counting searches,
+ * so however many searches run at once, an entry only goes stale more than {@link #STALE_AGE}
+ * generations, at least 15 seconds, after the search that stored it started. That outlasts the
+ * longest search the mod runs, the 10-second live analysis, so running searches keep their entries.
+ * Everything else goes to the second slot, which always takes the latest entry. Each slot stores
+ * {@code key ^ data} next to {@code data}. Threads read and write without locks, and a slot torn by
+ * two concurrent writers fails the XOR check and reads as a miss.
+ *
+ * Data is one long: the best move (bits 0-17, as a packed move), the bound (18-19), the depth
+ * (20-27), the score (32-47) and the generation (48-63). The 16-bit generation wraps after about
+ * four days, so an abandoned entry only reads as fresh again for a few seconds in that cycle.
+ * Stored data is never 0, so 0 means a miss. Size the shared table with {@code -Dchess.search.hash=<MB>}.
+ */
+public final class TranspositionTable {
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+    public static final int EXACT = 3;
+
+    private static final int DEFAULT_SIZE_MB = 16;
+    // Two slots of two longs
+    private static final int BUCKET_LONGS = 4;
+    private static final int BUCKET_BYTES = BUCKET_LONGS * Long.BYTES;
+    // Buckets sampled for the usage estimate
+    private static final int USAGE_SAMPLE = 1000;
+    // Length of one generation, and how many an entry survives in the depth-preferred slot
+    private static final long GENERATION_MS = 5000;
+    private static final int STALE_AGE = 3;
+
+    private static TranspositionTable shared;
+
+    private final long[] table;
+    private final int bucketMask;
+    private volatile int generation = clockGeneration();
+
+    /**
+     * @param sizeMb rounded down to a power of two number of buckets
+     */
+    public TranspositionTable(int sizeMb) {
+        long buckets = Math.max(1, (long) sizeMb * 1024 * 1024 / BUCKET_BYTES);
+        // Java arrays are int-indexed, which caps the table at 2^28 buckets (8 GB)
+        int bucketCount = Integer.highestOneBit((int) Math.min(buckets, 1 << 28));
+        table = new long[bucketCount * BUCKET_LONGS];
+        bucketMask = bucketCount - 1;
+    }
+
+    /**
+     * The table used by bots and analysis alike, created on first use.
+     */
+    public static TranspositionTable getShared() {
+        if (shared == null) {
+            synchronized (TranspositionTable.class) {
+                if (shared == null) {
+                    shared = new TranspositionTable(Integer.getInteger("chess.search.hash", DEFAULT_SIZE_MB));
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Moves the table to the current generation of the clock; the search's entries are stored with it.
+     */
+    public void newSearch() {
+        generation = clockGeneration();
+    }
+
+    /**
+     * The data stored for the key, or 0 if there is none.
+     */
+    public long probe(long key) {
+        int base = bucket(key);
+        long data = table[base + 1];
+        if ((table[base] ^ data) == key && data != 0) return data;
+        data = table[base + 3];
+        if ((table[base + 2] ^ data) == key && data != 0) return data;
+        return 0L;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        int base = bucket(key);
+        long data = (move & 0x3FFFFL) | (long) bound << 18 | (long) Math.min(Math.max(depth, 0), 0xFF) << 20
+                | (score & 0xFFFFL) << 32 | (long) generation << 48;
+
+        long deepest = table[base + 1];
+        boolean samePosition = (table[base] ^ deepest) == key;
+        if (deepest == 0 || samePosition || depth >= depth(deepest) || age(deepest, generation) > STALE_AGE) {
+            table[base] = key ^ data;
+            table[base + 1] = data;
+        } else {
+            table[base + 2] = key ^ data;
+            table[base + 3] = data;
+        }
+    }
+
+    /**
+     * Permille of sampled slots holding an entry that is not stale yet, like UCI's hashfull.
+     */
+    public int getUsagePermille() {
+        int sampled = Math.min(USAGE_SAMPLE, bucketMask + 1);
+        int used = 0;
+        for (int bucket = 0; bucket < sampled; bucket++) {
+            for (int slot = 1; slot < BUCKET_LONGS; slot += 2) {
+                long data = table[bucket * BUCKET_LONGS + slot];
+                if (data != 0 && age(data, clockGeneration()) <= STALE_AGE) used++;
+            }
+        }
+        return used * 1000 / (sampled * 2);
+    }
+
+    public long getSizeBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    private int bucket(long key) {
+        return ((int) key & bucketMask) * BUCKET_LONGS;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0x3FFFF);
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 18) & 0x3;
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 20) & 0xFF;
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 32);
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> 48) & 0xFFFF;
+    }
+
+    /**
+     * How many generations before {@code now} the entry was stored, modulo the 16-bit generation.
+     */
+    private static int age(long data, int now) {
+        return (now - generation(data)) & 0xFFFF;
+    }
+
+    private static int clockGeneration() {
+        return (int) (System.nanoTime() / 1_000_000 / GENERATION_MS) & 0xFFFF;
+    }
+}
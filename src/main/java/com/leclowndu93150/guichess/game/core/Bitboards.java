@@ -0,0 +1,189 @@
+package com.leclowndu93150.guichess.game.core;
+
+/**
+ * Precomputed attack tables for the bitboard board representation.
+ *
+ * Squares use the same indexing as ChessPosition (a1=0, h8=63), so bit {@code n}
+ * of a bitboard is the square with index {@code n}. Leaper attacks are plain table
+ * lookups; sliding attacks use magic bitboards whose multipliers are searched once
+ * at class load with a fixed seed, so the tables are identical on every run.
+ */
+public final class Bitboards {
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_2 = RANK_1 << 8;
+    public static final long RANK_7 = RANK_1 << 48;
+    public static final long RANK_8 = RANK_1 << 56;
+    public static final long DARK_SQUARES = 0xAA55AA55AA55AA55L;
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final long[][] ROOK_TABLE = new long[64][];
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final long[][] BISHOP_TABLE = new long[64][];
+
+    // Per-rank PRNG seeds known to reach a working magic quickly (the same ones Stockfish uses)
+    private static final long[] MAGIC_SEEDS = {728, 10316, 55013, 32803, 12281, 15100, 16645, 255};
+
+    private static final int[][] ROOK_DIRECTIONS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+    private static final int[][] KNIGHT_OFFSETS = {{1, 2}, {1, -2}, {-1, 2}, {-1, -2}, {2, 1}, {2, -1}, {-2, 1}, {-2, -1}};
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            int file = square & 7;
+            int rank = square >>> 3;
+
+            for (int[] offset : KNIGHT_OFFSETS) {
+                KNIGHT_ATTACKS[square] |= bitAt(file + offset[0], rank + offset[1]);
+            }
+            for (int df = -1; df <= 1; df++) {
+                for (int dr = -1; dr <= 1; dr++) {
+                    if (df != 0 || dr != 0) KING_ATTACKS[square] |= bitAt(file + df, rank + dr);
+                }
+            }
+            PAWN_ATTACKS[0][square] = bitAt(file - 1, rank + 1) | bitAt(file + 1, rank + 1);
+            PAWN_ATTACKS[1][square] = bitAt(file - 1, rank - 1) | bitAt(file + 1, rank - 1);
+        }
+
+        for (int square = 0; square < 64; square++) {
+            initMagic(square, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_TABLE);
+            initMagic(square, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_TABLE);
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * Squares attacked by a pawn of the given color standing on {@code square}.
+     *
+     * @param colorIndex 0 for white, 1 for black (PieceColor ordinal)
+     */
+    public static long pawnAttacks(int colorIndex, int square) {
+        return PAWN_ATTACKS[colorIndex][square];
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_TABLE[square][(int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_TABLE[square][(int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    private static long bitAt(int file, int rank) {
+        if (file < 0 || file > 7 || rank < 0 || rank > 7) return 0L;
+        return 1L << (rank * 8 + file);
+    }
+
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] d : directions) {
+            int file = (square & 7) + d[0];
+            int rank = (square >>> 3) + d[1];
+            while (file >= 0 && file < 8 && rank >= 0 && rank < 8) {
+                long bit = 1L << (rank * 8 + file);
+                attacks |= bit;
+                if ((occupied & bit) != 0) break;
+                file += d[0];
+                rank += d[1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Relevant occupancy mask: every square a slider could be blocked on, excluding
+     * the last square of each ray since a piece there cannot hide anything behind it.
+     */
+    private static long relevantMask(int square, int[][] directions) {
+        long mask = 0L;
+        for (int[] d : directions) {
+            int file = (square & 7) + d[0];
+            int rank = (square >>> 3) + d[1];
+            while (file + d[0] >= 0 && file + d[0] < 8 && rank + d[1] >= 0 && rank + d[1] < 8) {
+                mask |= 1L << (rank * 8 + file);
+                file += d[0];
+                rank += d[1];
+            }
+        }
+        return mask;
+    }
+
+    private static void initMagic(int square, int[][] directions, long[] masks, long[] magics,
+                                  int[] shifts, long[][] tables) {
+        long mask = relevantMask(square, directions);
+        int bits = Long.bitCount(mask);
+        int size = 1 << bits;
+
+        long[] occupancies = new long[size];
+        long[] attacks = new long[size];
+        long subset = 0L;
+        for (int i = 0; i < size; i++) {
+            occupancies[i] = subset;
+            attacks[i] = slidingAttacks(square, subset, directions);
+            subset = (subset - mask) & mask;
+        }
+
+        long[] table = new long[size];
+        int[] epoch = new int[size];
+        int attempt = 0;
+        long[] state = {MAGIC_SEEDS[square >>> 3]};
+        while (true) {
+            long magic = nextRandom(state) & nextRandom(state) & nextRandom(state);
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) continue;
+
+            attempt++;
+            boolean collision = false;
+            for (int i = 0; i < size && !collision; i++) {
+                int index = (int) ((occupancies[i] * magic) >>> (64 - bits));
+                if (epoch[index] != attempt) {
+                    epoch[index] = attempt;
+                    table[index] = attacks[i];
+                } else if (table[index] != attacks[i]) {
+                    collision = true;
+                }
+            }
+
+            if (!collision) {
+                masks[square] = mask;
+                magics[square] = magic;
+                shifts[square] = 64 - bits;
+                tables[square] = table;
+                return;
+            }
+        }
+    }
+
+    // xorshift64* generator
+    private static long nextRandom(long[] state) {
+        long x = state[0];
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        state[0] = x;
+        return x * 2685821657736338717L;
+    }
+}
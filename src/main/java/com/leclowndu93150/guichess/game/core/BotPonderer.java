@@ -0,0 +1,121 @@
+package com.leclowndu93150.guichess.game.core;
+
+import com.leclowndu93150.guichess.engine.analysis.AnalysisJobManager;
+import com.leclowndu93150.guichess.engine.integration.AnalysisUpdate;
+import com.leclowndu93150.guichess.engine.integration.EnginePriority;
+import com.leclowndu93150.guichess.engine.integration.EngineRequest;
+import com.leclowndu93150.guichess.engine.integration.EvaluationCache;
+import com.leclowndu93150.guichess.engine.integration.StockfishIntegration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prepares a bot's answers while its opponent is thinking.
+ *
+ * After the bot moves, a short full-strength search picks the opponent's most likely replies,
+ * and the bot's own search is run for the position after each of them. When the opponent plays
+ * one of those replies, the bot answers from the prepared result instead of starting a search.
+ * All of it runs at {@link EnginePriority#PONDER}, so any live request may preempt it.
+ * Disabled with {@code -Dchess.bot.ponder=false}.
+ */
+final class BotPonderer {
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("chess.bot.ponder", "true"));
+    // Weaker bots search too briefly for the extra engine work to pay off
+    static final int MIN_ELO = 2100;
+    private static final int CANDIDATE_REPLIES = 3;
+    private static final EngineRequest CANDIDATE_SEARCH = EngineRequest.defaults()
+            .withDepth(10).withMoveTime(500).withMultiPv(CANDIDATE_REPLIES).withPriority(EnginePriority.PONDER);
+
+    private final Map<String, CompletableFuture<StockfishIntegration.AnalysisResult>> prepared = new HashMap<>();
+    private CompletableFuture<StockfishIntegration.AnalysisResult> candidateSearch;
+    private int generation = 0;
+
+    /**
+     * Starts preparing answers for the position after the bot's move.
+     *
+     * @param botRequest the search the bot would run for its next move
+     */
+    synchronized void ponder(String fen, EngineRequest botRequest) {
+        clear();
+        int ponderGeneration = generation;
+        EngineRequest ponderRequest = botRequest.withDeadline(0).withPriority(EnginePriority.PONDER);
+
+        candidateSearch = AnalysisJobManager.getInstance().analyze(fen, CANDIDATE_SEARCH);
+        candidateSearch.thenAccept(candidates -> {
+            if (candidates.error != null) return;
+            for (String replyFen : replyPositions(fen, candidates)) {
+                synchronized (this) {
+                    // The opponent already moved, or the game moved on
+                    if (generation != ponderGeneration) return;
+                    prepared.computeIfAbsent(EvaluationCache.normalizeFen(replyFen),
+                            key -> AnalysisJobManager.getInstance().analyze(replyFen, ponderRequest));
+                }
+            }
+        });
+    }
+
+    /**
+     * The prepared answer for the position the opponent's move reached, or null if that reply was not
+     * anticipated. A search still running is waited for, but no longer than the bot's own search may
+     * take and never past half the time left before its deadline; the future completes with null if the
+     * answer is not ready by then or failed, and the search is given up. Drops every other prepared answer.
+     *
+     * @param botRequest the search the bot would run for this position
+     */
+    synchronized CompletableFuture<StockfishIntegration.AnalysisResult> take(String fen, EngineRequest botRequest) {
+        CompletableFuture<StockfishIntegration.AnalysisResult> future = prepared.remove(EvaluationCache.normalizeFen(fen));
+        clear();
+        if (future == null) return null;
+
+        long waitMs = botRequest.getMoveTimeMs() > 0 ? botRequest.getMoveTimeMs() : EngineRequest.DEFAULT_MOVE_TIME_MS;
+        if (botRequest.hasDeadline()) {
+            waitMs = Math.min(waitMs, Math.max(0, (botRequest.getDeadline() - System.currentTimeMillis()) / 2));
+        }
+        CompletableFuture<StockfishIntegration.AnalysisResult> answer = future
+                .handle((result, throwable) -> throwable == null && result.error == null && result.bestMove != null ? result : null)
+                .completeOnTimeout(null, waitMs, TimeUnit.MILLISECONDS);
+        answer.whenComplete((result, throwable) -> future.cancel(false));
+        return answer;
+    }
+
+    /**
+     * Forgets all prepared answers and the pending candidate search. Queued searches are dropped and
+     * running ones stopped.
+     */
+    synchronized void clear() {
+        generation++;
+        if (candidateSearch != null) {
+            candidateSearch.cancel(false);
+            candidateSearch = null;
+        }
+        for (CompletableFuture<StockfishIntegration.AnalysisResult> future : prepared.values()) {
+            future.cancel(false);
+        }
+        prepared.clear();
+    }
+
+    private static List<String> replyPositions(String fen, StockfishIntegration.AnalysisResult candidates) {
+        List<String> positions = new ArrayList<>();
+        for (AnalysisUpdate line : candidates.variations) {
+            String reply = line != null ? line.getBestMove() : null;
+            if (reply == null) continue;
+
+            ChessBoard board = new ChessBoard(fen);
+            IntMoveList moves = new IntMoveList();
+            board.getLegalMoves(moves);
+            for (int i = 0; i < moves.size(); i++) {
+                if (PackedMove.toUci(moves.get(i)).equals(reply)) {
+                    board.makeMove(PackedMove.toChessMove(moves.get(i)));
+                    positions.add(board.toFEN());
+                    break;
+                }
+            }
+        }
+        return positions;
+    }
+}
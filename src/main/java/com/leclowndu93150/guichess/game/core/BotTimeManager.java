@@ -0,0 +1,87 @@
+package com.leclowndu93150.guichess.game.core;
+
+import com.leclowndu93150.guichess.engine.integration.EngineRequest;
+import com.leclowndu93150.guichess.util.time.TimeControl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits a bot's clock into a time budget for its next move.
+ *
+ * The budget is the remaining time spread over the moves still expected, plus most of the
+ * increment, and never more than a quarter of what is left above a safety reserve. Clocks tick
+ * in whole seconds, so the reserve also covers the tick a move may lose while it is played.
+ * Both the engine search and the humanising delay fit inside the budget, so a bot cannot flag
+ * however short the time control is.
+ */
+final class BotTimeManager {
+    private static final int MAX_MOVES_TO_GO = 40;
+    private static final int MIN_MOVES_TO_GO = 15;
+    private static final long SAFETY_RESERVE_MS = 1500;
+    private static final long MIN_THINK_MS = 100;
+
+    private BotTimeManager() {}
+
+    /**
+     * @param secondsLeft the bot's remaining clock
+     * @param movesPlayed half-moves played so far in the game
+     */
+    static MoveBudget allocate(TimeControl timeControl, int secondsLeft, int movesPlayed) {
+        if (timeControl.initialSeconds == -1) {
+            return new MoveBudget(0);
+        }
+
+        long remaining = secondsLeft * 1000L;
+        long increment = timeControl.incrementSeconds * 1000L;
+        int movesToGo = Math.max(MIN_MOVES_TO_GO, MAX_MOVES_TO_GO - movesPlayed / 4);
+
+        long target = remaining / movesToGo + increment * 3 / 4;
+        long ceiling = Math.max(0, remaining - SAFETY_RESERVE_MS) / 4;
+        return new MoveBudget(Math.max(MIN_THINK_MS, Math.min(target, ceiling)));
+    }
+
+    /**
+     * Runs the task on the executor once the given wall-clock time is reached, without holding a thread meanwhile.
+     */
+    static CompletableFuture<Void> runAt(long epochMs, Executor executor, Runnable task) {
+        long wait = Math.max(0, epochMs - System.currentTimeMillis());
+        return CompletableFuture.runAsync(task, CompletableFuture.delayedExecutor(wait, TimeUnit.MILLISECONDS, executor));
+    }
+
+    /**
+     * Time a bot may spend on one move, from the moment its turn starts until the move is played.
+     */
+    static final class MoveBudget {
+        // 0 in untimed games
+        final long thinkMs;
+
+        private MoveBudget(long thinkMs) {
+            this.thinkMs = thinkMs;
+        }
+
+        boolean isTimed() {
+            return thinkMs > 0;
+        }
+
+        /**
+         * Caps the request's search time at the budget and sets the budget as its deadline, so time
+         * spent waiting for an engine counts against it too. Untimed games keep the request as it is.
+         */
+        EngineRequest limit(EngineRequest request) {
+            if (!isTimed()) return request;
+            int moveTime = request.getMoveTimeMs() > 0
+                    ? (int) Math.min(request.getMoveTimeMs(), thinkMs)
+                    : (int) Math.min(Integer.MAX_VALUE, thinkMs);
+            return request.withMoveTime(moveTime).withDeadlineIn(thinkMs);
+        }
+
+        /**
+         * The delay before the move is shown, shortened to fit the budget.
+         */
+        long humanDelay(long preferredMs) {
+            return isTimed() ? Math.min(preferredMs, thinkMs) : preferredMs;
+        }
+    }
+}
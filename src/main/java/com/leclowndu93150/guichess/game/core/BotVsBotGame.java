@@ -10,7 +10,9 @@ import com.leclowndu93150.guichess.game.players.GameParticipant;
 import com.leclowndu93150.guichess.data.models.BotProfile;
 import com.leclowndu93150.guichess.util.audio.ChessSoundManager;
 import com.leclowndu93150.guichess.util.time.TimeControl;
-import com.leclowndu93150.guichess.engine.integration.StockfishEngineManager;
+import com.leclowndu93150.guichess.engine.analysis.AnalysisJobManager;
+import com.leclowndu93150.guichess.engine.book.OpeningBook;
+import com.leclowndu93150.guichess.engine.integration.EngineRequest;
 import com.leclowndu93150.guichess.engine.integration.StockfishIntegration;
 import com.leclowndu93150.guichess.gui.game.ChessGUI;
 import com.leclowndu93150.guichess.gui.game.SpectatorGUI;
@@ -79,75 +81,77 @@ public class BotVsBotGame extends ChessGame {
         }
         
         String fen = board.toFEN();
-        configureStockfishForElo(currentBot.getTargetElo());
+        PieceColor botColor = currentBot == whiteBot ? PieceColor.WHITE : PieceColor.BLACK;
+        long turnStarted = System.currentTimeMillis();
+        int secondsLeft = botColor == PieceColor.WHITE ? getWhiteTimeLeft() : getBlackTimeLeft();
+        BotTimeManager.MoveBudget budget = BotTimeManager.allocate(getTimeControl(), secondsLeft, board.getMoveHistory().size());
         
-        currentBotMove = CompletableFuture
-            .runAsync(() -> {
-                try {
-                    // Simulate thinking time based on ELO
-                    int thinkingTime = calculateThinkingTime(currentBot.getTargetElo());
-                    Thread.sleep(thinkingTime);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return;
-                }
-                
-                StockfishEngineManager.getInstance().analyzePosition(fen)
-                    .thenAccept(result -> {
-                        if (!isGameActive() || board.getCurrentTurn() != (currentBot == whiteBot ? PieceColor.WHITE : PieceColor.BLACK)) {
-                            isThinking = false;
-                            return;
+        EngineRequest request = budget.limit(EngineRequest.forElo(currentBot.getTargetElo()));
+        // Simulate thinking time based on ELO, while the engine searches
+        long humanDelay = budget.humanDelay(calculateThinkingTime(currentBot.getTargetElo()));
+        
+        // Book positions are answered from the opening book without a search; looked up on a copy, since
+        // legal move generation makes and unmakes moves and this runs off the server thread
+        StockfishIntegration.AnalysisResult bookMove = OpeningBook.getInstance().pickResult(new ChessBoard(fen));
+        CompletableFuture<StockfishIntegration.AnalysisResult> search = bookMove != null
+            ? CompletableFuture.completedFuture(bookMove)
+            : AnalysisJobManager.getInstance().analyze(fen, request);
+        
+        currentBotMove = search
+            .thenCompose(result -> BotTimeManager.runAt(turnStarted + humanDelay,
+                GameManager.getInstance().getServer()::execute, () -> playBotMove(result, currentBot, botColor)))
+            .exceptionally(throwable -> {
+                broadcastToSpectators(Component.literal("§cBot error: " + throwable.getMessage()));
+                throwable.printStackTrace();
+                isThinking = false;
+                return null;
+            });
+    }
+    
+    private void playBotMove(StockfishIntegration.AnalysisResult result, BotPlayer currentBot, PieceColor botColor) {
+        if (!isGameActive() || board.getCurrentTurn() != botColor) {
+            isThinking = false;
+            return;
+        }
+        
+        if (result.bestMove != null) {
+            ChessMove move = parseUCIMove(result.bestMove);
+            
+            if (move != null) {
+                if (isValidBotMove(move, currentBot)) {
+                    if (board.makeMove(move)) {
+                        updateTimersAfterMove();
+                        
+                        // Play sound for initiator
+                        if (initiator != null) {
+                            ChessSoundManager.playMoveSound(initiator, board.getLastMove(), board.getGameState());
                         }
                         
-                        if (result.bestMove != null) {
-                            ChessMove move = parseUCIMove(result.bestMove);
-                            
-                            if (move != null) {
-                                GameManager.getInstance().getServer().execute(() -> {
-                                    if (isValidBotMove(move, currentBot)) {
-                                        if (board.makeMove(move)) {
-                                            updateTimersAfterMove();
-                                            
-                                            // Play sound for initiator
-                                            if (initiator != null) {
-                                                ChessSoundManager.playMoveSound(initiator, move, board.getGameState());
-                                            }
-                                            
-                                            // Update all GUIs
-                                            updateAllGUIs();
-                                            
-                                            GameState currentState = board.getGameState();
-                                            if (currentState != GameState.WHITE_TURN && currentState != GameState.BLACK_TURN &&
-                                                currentState != GameState.CHECK_WHITE && currentState != GameState.CHECK_BLACK) {
-                                                endGame(currentState);
-                                            } else {
-                                                // Schedule next move
-                                                isThinking = false;
-                                                scheduler.schedule(this::makeNextBotMove, 1, TimeUnit.SECONDS);
-                                            }
-                                        }
-                                    }
-                                    isThinking = false;
-                                });
-                            } else {
-                                broadcastToSpectators(Component.literal("§c" + currentBot.getName() + " failed to parse move!"));
-                                isThinking = false;
-                            }
+                        // Update all GUIs
+                        updateAllGUIs();
+                        
+                        GameState currentState = board.getGameState();
+                        if (currentState != GameState.WHITE_TURN && currentState != GameState.BLACK_TURN &&
+                            currentState != GameState.CHECK_WHITE && currentState != GameState.CHECK_BLACK) {
+                            endGame(currentState);
                         } else {
-                            broadcastToSpectators(Component.literal("§c" + currentBot.getName() + " failed to find a move!"));
-                            if (result.error != null) {
-                                broadcastToSpectators(Component.literal("§cError: " + result.error));
-                            }
+                            // Schedule next move; on the clock the humanising delay already spaces the moves out
                             isThinking = false;
+                            long pause = getTimeControl().initialSeconds == -1 ? 1000 : 0;
+                            scheduler.schedule(this::makeNextBotMove, pause, TimeUnit.MILLISECONDS);
                         }
-                    })
-                    .exceptionally(throwable -> {
-                        broadcastToSpectators(Component.literal("§cBot error: " + throwable.getMessage()));
-                        throwable.printStackTrace();
-                        isThinking = false;
-                        return null;
-                    });
-            });
+                    }
+                }
+            } else {
+                broadcastToSpectators(Component.literal("§c" + currentBot.getName() + " failed to parse move!"));
+            }
+        } else {
+            broadcastToSpectators(Component.literal("§c" + currentBot.getName() + " failed to find a move!"));
+            if (result.error != null) {
+                broadcastToSpectators(Component.literal("§cError: " + result.error));
+            }
+        }
+        isThinking = false;
     }
     
     private int calculateThinkingTime(int elo) {
@@ -158,50 +162,6 @@ public class BotVsBotGame extends ChessGame {
         return 2000 + (int)(Math.random() * 2000);
     }
     
-    private void configureStockfishForElo(int targetElo) {
-        StockfishEngineManager stockfish = StockfishEngineManager.getInstance();
-        
-        int depth;
-        int analysisTime;
-        
-        if (targetElo < 400) {
-            stockfish.setSkillLevel(-9);
-            depth = 5;
-            analysisTime = 1000;
-        } else if (targetElo < 650) {
-            stockfish.setSkillLevel(-5);
-            depth = 5;
-            analysisTime = 1000;
-        } else if (targetElo < 950) {
-            stockfish.setSkillLevel(-1);
-            depth = 5;
-            analysisTime = 1000;
-        } else if (targetElo < 1300) {
-            stockfish.setSkillLevel(3);
-            depth = 5;
-            analysisTime = 1000;
-        } else if (targetElo < 1700) {
-            stockfish.setSkillLevel(7);
-            depth = 5;
-            analysisTime = 1000;
-        } else if (targetElo < 2100) {
-            stockfish.setSkillLevel(11);
-            depth = 8;
-            analysisTime = 1500;
-        } else if (targetElo < 2550) {
-            stockfish.setSkillLevel(15);
-            depth = 13;
-            analysisTime = 2000;
-        } else {
-            stockfish.setSkillLevel(20);
-            depth = 22;
-            analysisTime = 3000;
-        }
-        
-        stockfish.setAnalysisDepth(depth);
-        stockfish.setAnalysisTime(analysisTime);
-    }
-    
     private ChessMove parseUCIMove(String uciMove) {
         Matcher matcher = UCI_MOVE_PATTERN.matcher(uciMove.toLowerCase());
         if (!matcher.matches()) {
@@ -245,7 +205,7 @@ public class BotVsBotGame extends ChessGame {
             return null;
         }
         
-        return new ChessPosition(file - 'a', rank - '1');
+        return ChessPosition.of(file - 'a', rank - '1');
     }
     
     private PieceType parsePromotion(String promotion) {
@@ -20,39 +20,206 @@ import java.util.*;
  * - Move history tracking
  */
 public class ChessBoard {
+    private static final long WHITE_KING_SIDE_PATH = 0x60L;
+    private static final long WHITE_QUEEN_SIDE_PATH = 0x0EL;
+    private static final long BLACK_KING_SIDE_PATH = WHITE_KING_SIDE_PATH << 56;
+    private static final long BLACK_QUEEN_SIDE_PATH = WHITE_QUEEN_SIDE_PATH << 56;
+
+    private static final int WHITE_KING_SIDE = 1;
+    private static final int WHITE_QUEEN_SIDE = 2;
+    private static final int BLACK_KING_SIDE = 4;
+    private static final int BLACK_QUEEN_SIDE = 8;
+    // Castling rights that survive a move touching each square (king or rook home squares clear theirs)
+    private static final int[] CASTLING_KEEP = new int[64];
+    private static final ChessPiece[] PIECES = ChessPiece.values();
+    private static final long UNDO_CASTLING = 1L << 15;
+    private static final long UNDO_EN_PASSANT = 1L << 16;
+
+    static {
+        Arrays.fill(CASTLING_KEEP, 0xF);
+        CASTLING_KEEP[0] = ~WHITE_QUEEN_SIDE & 0xF;
+        CASTLING_KEEP[4] = ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE) & 0xF;
+        CASTLING_KEEP[7] = ~WHITE_KING_SIDE & 0xF;
+        CASTLING_KEEP[56] = ~BLACK_QUEEN_SIDE & 0xF;
+        CASTLING_KEEP[60] = ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE) & 0xF;
+        CASTLING_KEEP[63] = ~BLACK_KING_SIDE & 0xF;
+    }
+
+    // Mailbox kept in sync with the bitboards so getPiece stays a single array read
     private ChessPiece[] board = new ChessPiece[64];
+    // One bitboard per ChessPiece, indexed by ordinal, plus per-color and total occupancy
+    private long[] pieceBitboards = new long[12];
+    private long[] colorOccupancy = new long[2];
+    private long occupied = 0L;
+    // Piece counts by ChessPiece ordinal and dark-square bishops by color, kept in step with the board
+    private int[] pieceCounts = new int[12];
+    private int[] darkSquareBishops = new int[2];
+    private int totalPieces = 0;
     private PieceColor currentTurn = PieceColor.WHITE;
     private GameState gameState = GameState.WHITE_TURN;
 
-    private boolean whiteKingSideCastle = true;
-    private boolean whiteQueenSideCastle = true;
-    private boolean blackKingSideCastle = true;
-    private boolean blackQueenSideCastle = true;
-
-    private ChessPosition enPassantTarget = null;
+    private int castlingRights = WHITE_KING_SIDE | WHITE_QUEEN_SIDE | BLACK_KING_SIDE | BLACK_QUEEN_SIDE;
+    private int enPassantSquare = -1;
     private List<ChessMove> moveHistory = new ArrayList<>();
-    private List<String> positionHistoryFenOnly = new ArrayList<>();
     private List<String> fullFenHistory = new ArrayList<>();
 
     private int halfMoveClock = 0;
     private int fullMoveNumber = 1;
 
+    private long zobristKey = 0L;
+    // Key of every position reached so far, the current one last
+    private long[] keyHistory = new long[128];
+    private int keyHistorySize = 0;
+
+    // Undo records for makeUnchecked/unmake, see applyMove for the bit layout
+    private long[] undoStack = new long[32];
+    private int undoSize = 0;
+    private IntMoveList[] scratchMoveLists = new IntMoveList[8];
+
     public ChessBoard() {
         setupInitialPosition();
     }
 
+    /**
+     * Creates a board from a FEN string.
+     * Missing trailing fields default to white to move, no castling, no en passant, clocks 0 and 1.
+     *
+     * @param fen position in Forsyth-Edwards Notation
+     * @throws IllegalArgumentException if the FEN is malformed or a side does not have exactly one king
+     */
+    public ChessBoard(String fen) {
+        loadFEN(fen);
+    }
+
     private void setupInitialPosition() {
-        Arrays.fill(board, null);
+        clearBoard();
 
-        board[0] = ChessPiece.WHITE_ROOK; board[1] = ChessPiece.WHITE_KNIGHT; board[2] = ChessPiece.WHITE_BISHOP; board[3] = ChessPiece.WHITE_QUEEN; board[4] = ChessPiece.WHITE_KING; board[5] = ChessPiece.WHITE_BISHOP; board[6] = ChessPiece.WHITE_KNIGHT; board[7] = ChessPiece.WHITE_ROOK;
-        for (int i = 8; i < 16; i++) board[i] = ChessPiece.WHITE_PAWN;
-        for (int i = 48; i < 56; i++) board[i] = ChessPiece.BLACK_PAWN;
-        board[56] = ChessPiece.BLACK_ROOK; board[57] = ChessPiece.BLACK_KNIGHT; board[58] = ChessPiece.BLACK_BISHOP; board[59] = ChessPiece.BLACK_QUEEN; board[60] = ChessPiece.BLACK_KING; board[61] = ChessPiece.BLACK_BISHOP; board[62] = ChessPiece.BLACK_KNIGHT; board[63] = ChessPiece.BLACK_ROOK;
+        placePiece(0, ChessPiece.WHITE_ROOK); placePiece(1, ChessPiece.WHITE_KNIGHT); placePiece(2, ChessPiece.WHITE_BISHOP); placePiece(3, ChessPiece.WHITE_QUEEN); placePiece(4, ChessPiece.WHITE_KING); placePiece(5, ChessPiece.WHITE_BISHOP); placePiece(6, ChessPiece.WHITE_KNIGHT); placePiece(7, ChessPiece.WHITE_ROOK);
+        for (int i = 8; i < 16; i++) placePiece(i, ChessPiece.WHITE_PAWN);
+        for (int i = 48; i < 56; i++) placePiece(i, ChessPiece.BLACK_PAWN);
+        placePiece(56, ChessPiece.BLACK_ROOK); placePiece(57, ChessPiece.BLACK_KNIGHT); placePiece(58, ChessPiece.BLACK_BISHOP); placePiece(59, ChessPiece.BLACK_QUEEN); placePiece(60, ChessPiece.BLACK_KING); placePiece(61, ChessPiece.BLACK_BISHOP); placePiece(62, ChessPiece.BLACK_KNIGHT); placePiece(63, ChessPiece.BLACK_ROOK);
 
-        positionHistoryFenOnly.add(boardToFENBoardPart());
+        zobristKey ^= Zobrist.castling(castlingRights);
+        pushKey();
         fullFenHistory.add(toFEN()); // Store initial position FEN
     }
 
+    private void loadFEN(String fen) {
+        if (fen == null || fen.isBlank()) throw new IllegalArgumentException("empty FEN");
+        String[] parts = fen.trim().split("\\s+");
+        clearBoard();
+
+        String[] ranks = parts[0].split("/");
+        if (ranks.length != 8) throw new IllegalArgumentException("expected 8 ranks but found " + ranks.length);
+        for (int i = 0; i < 8; i++) {
+            int rank = 7 - i;
+            int file = 0;
+            for (char c : ranks[i].toCharArray()) {
+                if (c >= '1' && c <= '8') {
+                    file += c - '0';
+                } else {
+                    ChessPiece piece = fenCharToPiece(c);
+                    if (piece == null) throw new IllegalArgumentException("unknown piece '" + c + "'");
+                    if (file > 7) throw new IllegalArgumentException("rank " + (rank + 1) + " has more than 8 squares");
+                    placePiece(rank * 8 + file, piece);
+                    file++;
+                }
+            }
+            if (file != 8) throw new IllegalArgumentException("rank " + (rank + 1) + " does not have 8 squares");
+        }
+        if (Long.bitCount(pieceBitboards[ChessPiece.WHITE_KING.ordinal()]) != 1 || Long.bitCount(pieceBitboards[ChessPiece.BLACK_KING.ordinal()]) != 1) {
+            throw new IllegalArgumentException("each side must have exactly one king");
+        }
+        if (((pieceBitboards[ChessPiece.WHITE_PAWN.ordinal()] | pieceBitboards[ChessPiece.BLACK_PAWN.ordinal()]) & (Bitboards.RANK_1 | Bitboards.RANK_8)) != 0) {
+            throw new IllegalArgumentException("pawns cannot stand on the first or last rank");
+        }
+
+        String turnPart = parts.length > 1 ? parts[1] : "w";
+        if (turnPart.equals("w")) currentTurn = PieceColor.WHITE;
+        else if (turnPart.equals("b")) currentTurn = PieceColor.BLACK;
+        else throw new IllegalArgumentException("invalid side to move '" + turnPart + "'");
+
+        String castlingPart = parts.length > 2 ? parts[2] : "-";
+        castlingRights = 0;
+        if (castlingPart.indexOf('K') >= 0) castlingRights |= WHITE_KING_SIDE;
+        if (castlingPart.indexOf('Q') >= 0) castlingRights |= WHITE_QUEEN_SIDE;
+        if (castlingPart.indexOf('k') >= 0) castlingRights |= BLACK_KING_SIDE;
+        if (castlingPart.indexOf('q') >= 0) castlingRights |= BLACK_QUEEN_SIDE;
+
+        String enPassantPart = parts.length > 3 ? parts[3] : "-";
+        if (enPassantPart.equals("-")) {
+            enPassantSquare = -1;
+        } else {
+            if (enPassantPart.length() != 2) throw new IllegalArgumentException("invalid en passant square '" + enPassantPart + "'");
+            ChessPosition enPassantTarget = new ChessPosition(enPassantPart);
+            if (!enPassantTarget.isValid()) throw new IllegalArgumentException("invalid en passant square '" + enPassantPart + "'");
+            enPassantSquare = enPassantTarget.toIndex();
+        }
+
+        try {
+            halfMoveClock = parts.length > 4 ? Integer.parseInt(parts[4]) : 0;
+            fullMoveNumber = parts.length > 5 ? Integer.parseInt(parts[5]) : 1;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid move counters", e);
+        }
+
+        zobristKey ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+        if (currentTurn == PieceColor.BLACK) zobristKey ^= Zobrist.blackToMove();
+        pushKey();
+        fullFenHistory.add(toFEN());
+        updateGameState();
+    }
+
+    private void clearBoard() {
+        Arrays.fill(board, null);
+        Arrays.fill(pieceBitboards, 0L);
+        Arrays.fill(colorOccupancy, 0L);
+        occupied = 0L;
+        Arrays.fill(pieceCounts, 0);
+        Arrays.fill(darkSquareBishops, 0);
+        totalPieces = 0;
+        zobristKey = 0L;
+    }
+
+    private void placePiece(int square, ChessPiece piece) {
+        removePiece(square);
+        if (piece == null) return;
+        long bit = 1L << square;
+        board[square] = piece;
+        pieceBitboards[piece.ordinal()] |= bit;
+        colorOccupancy[piece.isWhite() ? 0 : 1] |= bit;
+        occupied |= bit;
+        pieceCounts[piece.ordinal()]++;
+        totalPieces++;
+        if (piece.getType() == PieceType.BISHOP && (Bitboards.DARK_SQUARES & bit) != 0) darkSquareBishops[piece.isWhite() ? 0 : 1]++;
+        zobristKey ^= Zobrist.piece(piece.ordinal(), square);
+    }
+
+    private void removePiece(int square) {
+        ChessPiece piece = board[square];
+        if (piece == null) return;
+        long keep = ~(1L << square);
+        board[square] = null;
+        pieceBitboards[piece.ordinal()] &= keep;
+        colorOccupancy[piece.isWhite() ? 0 : 1] &= keep;
+        occupied &= keep;
+        pieceCounts[piece.ordinal()]--;
+        totalPieces--;
+        if (piece.getType() == PieceType.BISHOP && (Bitboards.DARK_SQUARES & ~keep) != 0) darkSquareBishops[piece.isWhite() ? 0 : 1]--;
+        zobristKey ^= Zobrist.piece(piece.ordinal(), square);
+    }
+
+    private void pushKey() {
+        if (keyHistorySize == keyHistory.length) {
+            keyHistory = Arrays.copyOf(keyHistory, keyHistorySize * 2);
+        }
+        keyHistory[keyHistorySize++] = zobristKey;
+    }
+
+    private long pieces(PieceColor color, PieceType type) {
+        return pieceBitboards[color.ordinal() * 6 + type.ordinal()];
+    }
+
     public ChessPiece getPiece(ChessPosition pos) {
         if (pos == null || !pos.isValid()) return null;
         return board[pos.toIndex()];
@@ -65,7 +232,7 @@ public class ChessBoard {
 
     public void setPiece(ChessPosition pos, ChessPiece piece) {
         if (pos != null && pos.isValid()) {
-            board[pos.toIndex()] = piece;
+            placePiece(pos.toIndex(), piece);
         }
     }
 
@@ -77,121 +244,193 @@ public class ChessBoard {
      * @return true if move was executed successfully
      */
     public boolean makeMove(ChessMove move) {
-        ChessPiece movingPiece = getPiece(move.from);
         ChessPiece capturedPiece = getPiece(move.to);
 
         if (capturedPiece != null && capturedPiece.getType() == PieceType.KING) {
             throw new IllegalStateException("Illegal move: Cannot capture the king! This should never happen in legal chess.");
         }
 
-        if (move.isEnPassant) {
-            ChessPosition capturedPawnPos = new ChessPosition(move.to.file, move.from.rank);
-            setPiece(capturedPawnPos, null);
-        }
+        long undo = applyMove(PackedMove.fromChessMove(move));
+        fullFenHistory.add(toFEN()); // Store complete FEN after move
+        updateGameState();
 
-        setPiece(move.to, movingPiece);
-        setPiece(move.from, null);
+        // Generated moves are bare, so the recorded move gets its flags from the resulting position
+        boolean isCheck = isInCheck(currentTurn);
+        boolean isCheckmate = gameState == GameState.CHECKMATE_WHITE_WINS || gameState == GameState.CHECKMATE_BLACK_WINS;
+        moveHistory.add(new ChessMove(move.from, move.to, move.promotionPiece,
+                (undo & 0xF) != 0, (undo & UNDO_EN_PASSANT) != 0, (undo & UNDO_CASTLING) != 0,
+                isCheck, isCheckmate));
+        return true;
+    }
 
-        if (move.isCastling) {
-            if (move.to.file == 6) {
-                ChessPosition rookFrom = new ChessPosition(7, move.from.rank);
-                ChessPosition rookTo = new ChessPosition(5, move.from.rank);
-                setPiece(rookTo, getPiece(rookFrom));
-                setPiece(rookFrom, null);
-            } else {
-                ChessPosition rookFrom = new ChessPosition(0, move.from.rank);
-                ChessPosition rookTo = new ChessPosition(3, move.from.rank);
-                setPiece(rookTo, getPiece(rookFrom));
-                setPiece(rookFrom, null);
-            }
+    /**
+     * Returns the move with its check and checkmate flags filled in for this position.
+     * Use this when a move that has not been played yet needs to be rendered as notation.
+     *
+     * @param move a legal move for the side to move
+     * @return a copy of the move with isCheck and isCheckmate set
+     */
+    public ChessMove annotate(ChessMove move) {
+        int packed = PackedMove.fromChessMove(move);
+        PieceColor mover = currentTurn;
+        makeUnchecked(packed);
+        boolean isCheck = isInCheck(mover.opposite());
+        boolean isCheckmate = isCheck && !hasAnyLegalMove();
+        unmake(packed);
+        return new ChessMove(move.from, move.to, move.promotionPiece,
+                move.isCapture, move.isEnPassant, move.isCastling, isCheck, isCheckmate);
+    }
+
+    /**
+     * Plays a move in place without legality checks, history or game state updates.
+     * Every call must be paired with {@link #unmake(ChessMove)} for the same move, in
+     * reverse order, before the board is used for anything else.
+     *
+     * @param move a pseudo-legal move for the side to move
+     */
+    public void makeUnchecked(ChessMove move) {
+        makeUnchecked(PackedMove.fromChessMove(move));
+    }
+
+    /**
+     * Packed-move form of {@link #makeUnchecked(ChessMove)}; pair with {@link #unmake(int)}.
+     */
+    public void makeUnchecked(int move) {
+        if (undoSize == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoSize * 2);
         }
+        undoStack[undoSize++] = applyMove(move);
+    }
+
+    /**
+     * Takes back the last move played with {@link #makeUnchecked(ChessMove)}.
+     *
+     * @param move the same move that was passed to makeUnchecked
+     */
+    public void unmake(ChessMove move) {
+        unmake(PackedMove.fromChessMove(move));
+    }
 
-        if (move.promotionPiece != null) {
-            setPiece(move.to, ChessPiece.fromColorAndType(currentTurn, move.promotionPiece));
+    public void unmake(int move) {
+        long undo = undoStack[--undoSize];
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+
+        keyHistorySize--;
+        zobristKey ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare) ^ Zobrist.blackToMove();
+        currentTurn = currentTurn.opposite();
+        if (currentTurn == PieceColor.BLACK) {
+            fullMoveNumber--;
         }
 
-        updateCastlingRights(move, movingPiece);
-        updateEnPassantTarget(move, movingPiece);
+        ChessPiece movedPiece = board[to];
+        if (PackedMove.isPromotion(move) && movedPiece != null) {
+            movedPiece = ChessPiece.fromColorAndType(currentTurn, PieceType.PAWN);
+        }
+        removePiece(to);
+        placePiece(from, movedPiece);
 
-        if (capturedPiece != null || (movingPiece != null && movingPiece.getType() == PieceType.PAWN)) {
-            halfMoveClock = 0;
-        } else {
-            halfMoveClock++;
+        if ((undo & UNDO_CASTLING) != 0) {
+            int rankBase = from & ~7;
+            if ((to & 7) == 6) {
+                placePiece(rankBase + 7, board[rankBase + 5]);
+                removePiece(rankBase + 5);
+            } else {
+                placePiece(rankBase, board[rankBase + 3]);
+                removePiece(rankBase + 3);
+            }
         }
 
-        if (currentTurn == PieceColor.BLACK) {
-            fullMoveNumber++;
+        int captured = (int) (undo & 0xF);
+        if (captured != 0) {
+            int capturedSquare = (undo & UNDO_EN_PASSANT) != 0 ? (from & ~7) | (to & 7) : to;
+            placePiece(capturedSquare, PIECES[captured - 1]);
         }
 
-        currentTurn = currentTurn.opposite();
-        moveHistory.add(move);
-        positionHistoryFenOnly.add(boardToFENBoardPart());
-        fullFenHistory.add(toFEN()); // Store complete FEN after move
-        updateGameState();
-        return true;
+        castlingRights = (int) (undo >>> 4) & 0xF;
+        enPassantSquare = (int) ((undo >>> 8) & 0x7F) - 1;
+        halfMoveClock = (int) (undo >>> 32);
+        zobristKey ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
     }
 
+    /**
+     * Moves the pieces and updates castling rights, en passant, clocks and turn.
+     * Castling and en passant are recognised from the board rather than the move flags,
+     * so plain from/to moves behave the same as generated ones.
+     *
+     * @return the undo record: captured piece ordinal + 1 (bits 0-3), previous castling
+     *         rights (4-7), previous en passant square + 1 (8-14), castling and en passant
+     *         flags (15, 16) and the previous half-move clock (32-63)
+     */
+    private long applyMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessPiece movingPiece = board[from];
+        PieceType movingType = movingPiece != null ? movingPiece.getType() : null;
+
+        boolean isCastling = movingType == PieceType.KING && Math.abs((to & 7) - (from & 7)) == 2;
+        boolean isEnPassant = movingType == PieceType.PAWN && (from & 7) != (to & 7) && board[to] == null;
+        int capturedSquare = isEnPassant ? (from & ~7) | (to & 7) : to;
+        ChessPiece capturedPiece = board[capturedSquare];
+
+        long undo = (capturedPiece != null ? capturedPiece.ordinal() + 1 : 0)
+                | (long) castlingRights << 4
+                | (long) (enPassantSquare + 1) << 8
+                | (isCastling ? UNDO_CASTLING : 0)
+                | (isEnPassant ? UNDO_EN_PASSANT : 0)
+                | (long) halfMoveClock << 32;
+
+        removePiece(capturedSquare);
+        removePiece(from);
+        PieceType promotion = PackedMove.promotion(move);
+        if (promotion != null && movingPiece != null) {
+            placePiece(to, ChessPiece.fromColorAndType(movingPiece.isWhite() ? PieceColor.WHITE : PieceColor.BLACK, promotion));
+        } else {
+            placePiece(to, movingPiece);
+        }
 
-    private void updateCastlingRights(ChessMove move, ChessPiece movingPiece) {
-        if (movingPiece == null) return;
-
-        if (movingPiece.getType() == PieceType.KING) {
-            if (movingPiece.isWhite()) {
-                whiteKingSideCastle = false;
-                whiteQueenSideCastle = false;
+        if (isCastling) {
+            int rankBase = from & ~7;
+            if ((to & 7) == 6) {
+                placePiece(rankBase + 5, board[rankBase + 7]);
+                removePiece(rankBase + 7);
             } else {
-                blackKingSideCastle = false;
-                blackQueenSideCastle = false;
+                placePiece(rankBase + 3, board[rankBase]);
+                removePiece(rankBase);
             }
         }
 
-        if (movingPiece.getType() == PieceType.ROOK) {
-            if (movingPiece.isWhite()) {
-                if (move.from.equals(new ChessPosition(0, 0))) whiteQueenSideCastle = false;
-                if (move.from.equals(new ChessPosition(7, 0))) whiteKingSideCastle = false;
-            } else {
-                if (move.from.equals(new ChessPosition(0, 7))) blackQueenSideCastle = false;
-                if (move.from.equals(new ChessPosition(7, 7))) blackKingSideCastle = false;
+        zobristKey ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+        castlingRights &= CASTLING_KEEP[from] & CASTLING_KEEP[to];
+
+        // Only record an en passant square when an enemy pawn is actually able to take
+        enPassantSquare = -1;
+        if (movingType == PieceType.PAWN && Math.abs(to - from) == 16) {
+            long toBit = 1L << to;
+            long adjacent = ((toBit << 1) & ~Bitboards.FILE_A) | ((toBit >>> 1) & ~Bitboards.FILE_H);
+            if ((adjacent & pieces(currentTurn.opposite(), PieceType.PAWN)) != 0) {
+                enPassantSquare = (from + to) / 2;
             }
         }
 
-        // If a rook is captured on its starting square
-        if (move.to.equals(new ChessPosition(0,0))) whiteQueenSideCastle = false;
-        if (move.to.equals(new ChessPosition(7,0))) whiteKingSideCastle = false;
-        if (move.to.equals(new ChessPosition(0,7))) blackQueenSideCastle = false;
-        if (move.to.equals(new ChessPosition(7,7))) blackKingSideCastle = false;
-    }
-
-    private void updateEnPassantTarget(ChessMove move, ChessPiece movingPiece) {
-        enPassantTarget = null; // Reset en passant target by default
-        if (movingPiece != null && movingPiece.getType() == PieceType.PAWN && Math.abs(move.to.rank - move.from.rank) == 2) {
-            // Only set en passant target if there's an enemy pawn that can capture
-            ChessPosition potentialEnPassant = new ChessPosition(move.from.file, (move.from.rank + move.to.rank) / 2);
-            boolean canBeCapturedEnPassant = false;
-            
-            // Check left side
-            if (move.to.file > 0) {
-                ChessPiece leftPiece = getPiece(new ChessPosition(move.to.file - 1, move.to.rank));
-                if (leftPiece != null && leftPiece.getType() == PieceType.PAWN && leftPiece.isWhite() != movingPiece.isWhite()) {
-                    canBeCapturedEnPassant = true;
-                }
-            }
-            
-            // Check right side
-            if (!canBeCapturedEnPassant && move.to.file < 7) {
-                ChessPiece rightPiece = getPiece(new ChessPosition(move.to.file + 1, move.to.rank));
-                if (rightPiece != null && rightPiece.getType() == PieceType.PAWN && rightPiece.isWhite() != movingPiece.isWhite()) {
-                    canBeCapturedEnPassant = true;
-                }
-            }
-            
-            if (canBeCapturedEnPassant) {
-                enPassantTarget = potentialEnPassant;
-            }
+        if (capturedPiece != null || movingType == PieceType.PAWN) {
+            halfMoveClock = 0;
+        } else {
+            halfMoveClock++;
+        }
+
+        if (currentTurn == PieceColor.BLACK) {
+            fullMoveNumber++;
         }
+
+        zobristKey ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare) ^ Zobrist.blackToMove();
+        currentTurn = currentTurn.opposite();
+        pushKey();
+        return undo;
     }
 
     public boolean isLegalMove(ChessMove move) {
+        if (move.from == null || move.to == null || !move.to.isValid()) return false;
         ChessPiece piece = getPiece(move.from);
         if (piece == null) return false;
         if ((piece.isWhite() && currentTurn != PieceColor.WHITE) || (piece.isBlack() && currentTurn != PieceColor.BLACK)) return false;
@@ -201,18 +440,20 @@ public class ChessBoard {
         if (move.isCastling) {
             int rank = move.from.rank;
             int kingFile = move.from.file;
-            int rookFile = (move.to.file == 6) ? 7 : 0;
             int kingToFile = move.to.file;
             int kingPassFile = (kingFile + kingToFile) / 2;
 
-            if (isSquareAttacked(new ChessPosition(kingFile, rank), currentTurn.opposite())) return false;
-            if (isSquareAttacked(new ChessPosition(kingPassFile, rank), currentTurn.opposite())) return false;
+            if (isSquareAttacked(rank * 8 + kingFile, currentTurn.opposite())) return false;
+            if (isSquareAttacked(rank * 8 + kingPassFile, currentTurn.opposite())) return false;
         }
 
 
-        ChessBoard tempBoard = this.copy();
-        tempBoard.makeUncheckedMove(move);
-        return !tempBoard.isInCheck(currentTurn);
+        int packed = PackedMove.fromChessMove(move);
+        PieceColor mover = currentTurn;
+        makeUnchecked(packed);
+        boolean legal = !isInCheck(mover);
+        unmake(packed);
+        return legal;
     }
 
     private boolean isPseudoLegalMove(ChessMove move, ChessPiece piece) {
@@ -227,13 +468,15 @@ public class ChessBoard {
             return false;
         }
 
+        int from = move.from.toIndex();
+        long toBit = 1L << move.to.toIndex();
 
         return switch (piece.getType()) {
             case PAWN -> isValidPawnMove(move, piece);
-            case ROOK -> isValidRookMove(move);
-            case KNIGHT -> isValidKnightMove(move);
-            case BISHOP -> isValidBishopMove(move);
-            case QUEEN -> isValidQueenMove(move);
+            case ROOK -> (Bitboards.rookAttacks(from, occupied) & toBit) != 0;
+            case KNIGHT -> (Bitboards.knightAttacks(from) & toBit) != 0;
+            case BISHOP -> (Bitboards.bishopAttacks(from, occupied) & toBit) != 0;
+            case QUEEN -> (Bitboards.queenAttacks(from, occupied) & toBit) != 0;
             case KING -> isValidKingMove(move, piece);
         };
     }
@@ -248,70 +491,35 @@ public class ChessBoard {
         if (fileDiff == 0) {
             if (getPiece(move.to) != null) return false;
             if (rankDiff == direction) return true;
-            if (rankDiff == 2 * direction && move.from.rank == startRank && getPiece(new ChessPosition(move.from.file, move.from.rank + direction)) == null) return true;
+            if (rankDiff == 2 * direction && move.from.rank == startRank && getPiece(move.from.toIndex() + 8 * direction) == null) return true;
         } else if (Math.abs(fileDiff) == 1 && rankDiff == direction) {
             if (getPiece(move.to) != null && getPiece(move.to).isWhite() != piece.isWhite()) return true;
-            if (move.to.equals(enPassantTarget)) return true;
+            if (move.to.toIndex() == enPassantSquare) return true;
         }
         return false;
     }
 
-    private boolean isValidRookMove(ChessMove move) {
-        return (move.from.file == move.to.file || move.from.rank == move.to.rank) && isPathClear(move.from, move.to);
-    }
-
-    private boolean isValidKnightMove(ChessMove move) {
-        int fileDiff = Math.abs(move.to.file - move.from.file);
-        int rankDiff = Math.abs(move.to.rank - move.from.rank);
-        return (fileDiff == 1 && rankDiff == 2) || (fileDiff == 2 && rankDiff == 1);
-    }
-
-    private boolean isValidBishopMove(ChessMove move) {
-        return Math.abs(move.to.file - move.from.file) == Math.abs(move.to.rank - move.from.rank) && isPathClear(move.from, move.to);
-    }
-
-    private boolean isValidQueenMove(ChessMove move) {
-        return isValidRookMove(move) || isValidBishopMove(move);
-    }
-
     private boolean isValidKingMove(ChessMove move, ChessPiece piece) {
-        int fileDiff = Math.abs(move.to.file - move.from.file);
-        int rankDiff = Math.abs(move.to.rank - move.from.rank);
+        int from = move.from.toIndex();
+        int to = move.to.toIndex();
 
-        if (fileDiff <= 1 && rankDiff <= 1) return true; // Normal move
+        if ((Bitboards.kingAttacks(from) & (1L << to)) != 0) return true; // Normal move
 
-        if (rankDiff == 0 && fileDiff == 2 && !isInCheck(piece.isWhite() ? PieceColor.WHITE : PieceColor.BLACK)) {
-            boolean kingSide = move.to.file == 6;
-            boolean queenSide = move.to.file == 2;
+        PieceColor color = piece.isWhite() ? PieceColor.WHITE : PieceColor.BLACK;
+        int homeRank = piece.isWhite() ? 0 : 7;
+        if (from != homeRank * 8 + 4 || move.to.rank != homeRank || isInCheck(color)) return false;
 
-            if (piece.isWhite() && move.from.rank == 0) {
-                if (kingSide && whiteKingSideCastle && isPathClear(move.from, new ChessPosition(7, 0))) return true;
-                if (queenSide && whiteQueenSideCastle && isPathClear(move.from, new ChessPosition(0, 0))) return true;
-            } else if (piece.isBlack() && move.from.rank == 7) {
-                if (kingSide && blackKingSideCastle && isPathClear(move.from, new ChessPosition(7, 7))) return true;
-                if (queenSide && blackQueenSideCastle && isPathClear(move.from, new ChessPosition(0, 7))) return true;
-            }
+        if (move.to.file == 6) {
+            boolean rights = (castlingRights & (piece.isWhite() ? WHITE_KING_SIDE : BLACK_KING_SIDE)) != 0;
+            long path = piece.isWhite() ? WHITE_KING_SIDE_PATH : BLACK_KING_SIDE_PATH;
+            return rights && (occupied & path) == 0;
         }
-        return false;
-    }
-
-
-    private boolean isPathClear(ChessPosition from, ChessPosition to) {
-        int dFile = Integer.compare(to.file, from.file);
-        int dRank = Integer.compare(to.rank, from.rank);
-        int currentFile = from.file + dFile;
-        int currentRank = from.rank + dRank;
-
-        while (currentFile != to.file || currentRank != to.rank) {
-            ChessPosition checkPos = new ChessPosition(currentFile, currentRank);
-            ChessPiece blockingPiece = getPiece(checkPos);
-            if (blockingPiece != null) {
-                return false;
-            }
-            currentFile += dFile;
-            currentRank += dRank;
+        if (move.to.file == 2) {
+            boolean rights = (castlingRights & (piece.isWhite() ? WHITE_QUEEN_SIDE : BLACK_QUEEN_SIDE)) != 0;
+            long path = piece.isWhite() ? WHITE_QUEEN_SIDE_PATH : BLACK_QUEEN_SIDE_PATH;
+            return rights && (occupied & path) == 0;
         }
-        return true;
+        return false;
     }
 
     /**
@@ -321,308 +529,250 @@ public class ChessBoard {
      * @return true if the king is under attack
      */
     public boolean isInCheck(PieceColor color) {
-        ChessPosition kingPos = findKing(color);
-        if (kingPos == null) {
-            return true;
-        }
-        
-        PieceColor attackingColor = color.opposite();
-        
-        if (isAttackedByPawn(kingPos, attackingColor)) {
-            return true;
-        }
-        
-        if (isAttackedByKnight(kingPos, attackingColor)) {
-            return true;
-        }
-        
-        if (isAttackedBySlidingPiece(kingPos, attackingColor)) {
-            return true;
-        }
-        
-        if (isAttackedByKing(kingPos, attackingColor)) {
+        long king = pieces(color, PieceType.KING);
+        if (king == 0L) {
             return true;
         }
-        
-        return false;
+        return isSquareAttacked(Long.numberOfTrailingZeros(king), color.opposite());
     }
 
     public boolean isSquareAttacked(ChessPosition pos, PieceColor attackingColor) {
-        return isAttackedByPawn(pos, attackingColor) ||
-               isAttackedByKnight(pos, attackingColor) ||
-               isAttackedBySlidingPiece(pos, attackingColor) ||
-               isAttackedByKing(pos, attackingColor);
-    }
-    
-    private boolean isAttackedByPawn(ChessPosition pos, PieceColor attackingColor) {
-        int direction = attackingColor == PieceColor.WHITE ? -1 : 1;
-        
-        ChessPosition[] attackSquares = {
-            new ChessPosition(pos.file - 1, pos.rank + direction),
-            new ChessPosition(pos.file + 1, pos.rank + direction)
-        };
-        
-        for (ChessPosition attackFrom : attackSquares) {
-            if (!attackFrom.isValid()) continue;
-            
-            ChessPiece piece = getPiece(attackFrom);
-            if (piece != null && piece.getType() == PieceType.PAWN && 
-                ((attackingColor == PieceColor.WHITE && piece.isWhite()) || 
-                 (attackingColor == PieceColor.BLACK && piece.isBlack()))) {
-                return true;
-            }
-        }
-        return false;
+        if (pos == null || !pos.isValid()) return false;
+        return isSquareAttacked(pos.toIndex(), attackingColor);
     }
-    
-    private boolean isAttackedByKnight(ChessPosition pos, PieceColor attackingColor) {
-        int[][] knightMoves = {
-            {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2},
-            {1, -2}, {1, 2}, {2, -1}, {2, 1}
-        };
-        
-        for (int[] move : knightMoves) {
-            ChessPosition attackFrom = new ChessPosition(pos.file + move[0], pos.rank + move[1]);
-            if (!attackFrom.isValid()) continue;
-            
-            ChessPiece piece = getPiece(attackFrom);
-            if (piece != null && piece.getType() == PieceType.KNIGHT && 
-                ((attackingColor == PieceColor.WHITE && piece.isWhite()) || 
-                 (attackingColor == PieceColor.BLACK && piece.isBlack()))) {
-                return true;
-            }
-        }
-        return false;
-    }
-    
-    private boolean isAttackedBySlidingPiece(ChessPosition pos, PieceColor attackingColor) {
-        int[][] directions = {
-            {-1, -1}, {-1, 0}, {-1, 1}, {0, -1},
-            {0, 1}, {1, -1}, {1, 0}, {1, 1}
-        };
-        
-        for (int[] dir : directions) {
-            ChessPosition current = new ChessPosition(pos.file + dir[0], pos.rank + dir[1]);
-            
-            while (current.isValid()) {
-                ChessPiece piece = getPiece(current);
-                if (piece != null) {
-                    if ((attackingColor == PieceColor.WHITE && piece.isWhite()) || 
-                        (attackingColor == PieceColor.BLACK && piece.isBlack())) {
-                        boolean isDiagonal = (dir[0] != 0 && dir[1] != 0);
-                        boolean isStraight = (dir[0] == 0 || dir[1] == 0);
-                        
-                        if ((piece.getType() == PieceType.BISHOP && isDiagonal) ||
-                            (piece.getType() == PieceType.ROOK && isStraight) ||
-                            (piece.getType() == PieceType.QUEEN)) {
-                            return true;
-                        }
-                    }
-                    break;
-                }
-                current = new ChessPosition(current.file + dir[0], current.rank + dir[1]);
-            }
-        }
-        return false;
-    }
-    
-    private boolean isAttackedByKing(ChessPosition pos, PieceColor attackingColor) {
-        for (int dFile = -1; dFile <= 1; dFile++) {
-            for (int dRank = -1; dRank <= 1; dRank++) {
-                if (dFile == 0 && dRank == 0) continue;
-                
-                ChessPosition attackFrom = new ChessPosition(pos.file + dFile, pos.rank + dRank);
-                if (!attackFrom.isValid()) continue;
-                
-                ChessPiece piece = getPiece(attackFrom);
-                if (piece != null && piece.getType() == PieceType.KING && 
-                    ((attackingColor == PieceColor.WHITE && piece.isWhite()) || 
-                     (attackingColor == PieceColor.BLACK && piece.isBlack()))) {
-                    return true;
-                }
-            }
-        }
-        return false;
+
+    /**
+     * Attack test against the bitboards: looks from the target square outwards with
+     * each piece's attack pattern and intersects with the attacker's pieces.
+     *
+     * @param square square index, a1=0 to h8=63
+     */
+    public boolean isSquareAttacked(int square, PieceColor attackingColor) {
+        int attacker = attackingColor.ordinal();
+        int offset = attacker * 6;
+
+        if ((Bitboards.pawnAttacks(attacker ^ 1, square) & pieceBitboards[offset + PieceType.PAWN.ordinal()]) != 0) return true;
+        if ((Bitboards.knightAttacks(square) & pieceBitboards[offset + PieceType.KNIGHT.ordinal()]) != 0) return true;
+        if ((Bitboards.kingAttacks(square) & pieceBitboards[offset + PieceType.KING.ordinal()]) != 0) return true;
+
+        long queens = pieceBitboards[offset + PieceType.QUEEN.ordinal()];
+        long diagonal = pieceBitboards[offset + PieceType.BISHOP.ordinal()] | queens;
+        if (diagonal != 0 && (Bitboards.bishopAttacks(square, occupied) & diagonal) != 0) return true;
+        long straight = pieceBitboards[offset + PieceType.ROOK.ordinal()] | queens;
+        return straight != 0 && (Bitboards.rookAttacks(square, occupied) & straight) != 0;
     }
 
 
     public ChessPosition findKing(PieceColor color) {
-        ChessPiece kingToFind = (color == PieceColor.WHITE) ? ChessPiece.WHITE_KING : ChessPiece.BLACK_KING;
-        for (int i = 0; i < 64; i++) {
-            if (board[i] == kingToFind) return ChessPosition.fromIndex(i);
-        }
-        return null;
+        long king = pieces(color, PieceType.KING);
+        if (king == 0L) return null;
+        return ChessPosition.ofIndex(Long.numberOfTrailingZeros(king));
     }
 
     /**
      * Generates all legal moves for the current player.
      * Includes full validation - moves that would leave king in check are excluded.
+     * Moves are returned bare: isCheck and isCheckmate are left unset, see {@link #annotate(ChessMove)}.
      * 
      * @return list of all legal moves available to current player
      */
     public List<ChessMove> getLegalMoves() {
-        List<ChessMove> allPseudoLegalMoves = new ArrayList<>();
-        for (int i = 0; i < 64; i++) {
-            ChessPiece piece = board[i];
-            if (piece != null && ((currentTurn == PieceColor.WHITE && piece.isWhite()) || (currentTurn == PieceColor.BLACK && piece.isBlack()))) {
-                ChessPosition from = ChessPosition.fromIndex(i);
-                generatePseudoLegalMovesForPiece(from, piece, allPseudoLegalMoves);
-            }
-        }
-
-        List<ChessMove> legalMoves = new ArrayList<>();
-        for (ChessMove pseudoMove : allPseudoLegalMoves) {
-            ChessBoard tempBoard = this.copy();
-            tempBoard.makeUncheckedMove(pseudoMove);
+        IntMoveList packedMoves = new IntMoveList();
+        getLegalMoves(packedMoves);
 
-            if (!tempBoard.isInCheck(currentTurn)) {
-                boolean isCheck = tempBoard.isInCheck(currentTurn.opposite());
-                boolean isCheckmate = false;
-                if (isCheck) {
-                    tempBoard.currentTurn = currentTurn.opposite();
-                    if (tempBoard.getLegalMoves().isEmpty()) {
-                        isCheckmate = true;
-                    }
-                }
+        List<ChessMove> legalMoves = new ArrayList<>(packedMoves.size());
+        for (int i = 0; i < packedMoves.size(); i++) {
+            legalMoves.add(PackedMove.toChessMove(packedMoves.get(i)));
+        }
+        return legalMoves;
+    }
 
-                ChessMove finalMove = new ChessMove(
-                        pseudoMove.from, pseudoMove.to, pseudoMove.promotionPiece,
-                        pseudoMove.isCapture, pseudoMove.isEnPassant, pseudoMove.isCastling,
-                        isCheck, isCheckmate
-                );
-                legalMoves.add(finalMove);
+    /**
+     * Allocation-free form of {@link #getLegalMoves()} that writes packed moves into a caller-owned list.
+     *
+     * @param moves cleared, then filled with the legal moves for the current player
+     */
+    public void getLegalMoves(IntMoveList moves) {
+        moves.clear();
+        generatePseudoLegalMoves(moves);
+
+        PieceColor mover = currentTurn;
+        int legalCount = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            makeUnchecked(move);
+            boolean legal = !isInCheck(mover);
+            unmake(move);
+            if (legal) {
+                moves.set(legalCount++, move);
             }
         }
-        return legalMoves;
+        moves.truncate(legalCount);
     }
 
+    /**
+     * Whether the side to move has any legal move. Stops at the first one found
+     * instead of building the full list.
+     */
+    public boolean hasAnyLegalMove() {
+        IntMoveList pseudoLegalMoves = scratchMoveList();
+        pseudoLegalMoves.clear();
+        generatePseudoLegalMoves(pseudoLegalMoves);
+
+        PieceColor mover = currentTurn;
+        for (int i = 0; i < pseudoLegalMoves.size(); i++) {
+            int move = pseudoLegalMoves.get(i);
+            makeUnchecked(move);
+            boolean legal = !isInCheck(mover);
+            unmake(move);
+            if (legal) return true;
+        }
+        return false;
+    }
 
-    private void generatePseudoLegalMovesForPiece(ChessPosition from, ChessPiece piece, List<ChessMove> moves) {
-        switch (piece.getType()) {
-            case PAWN: generatePawnMoves(from, piece, moves); break;
-            case ROOK: generateSlidingPieceMoves(from, piece, new int[][]{{0, 1}, {0, -1}, {1, 0}, {-1, 0}}, 7, moves); break;
-            case KNIGHT: generateKnightMoves(from, piece, moves); break;
-            case BISHOP: generateSlidingPieceMoves(from, piece, new int[][]{{1, 1}, {1, -1}, {-1, 1}, {-1, -1}}, 7, moves); break;
-            case QUEEN: generateSlidingPieceMoves(from, piece, new int[][]{{0, 1}, {0, -1}, {1, 0}, {-1, 0}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}}, 7, moves); break;
-            case KING: generateKingMoves(from, piece, moves); break;
+    /**
+     * Move buffer for the current make/unmake depth, so nested generation never shares a list.
+     */
+    private IntMoveList scratchMoveList() {
+        if (undoSize >= scratchMoveLists.length) {
+            scratchMoveLists = Arrays.copyOf(scratchMoveLists, undoSize + 8);
         }
+        IntMoveList list = scratchMoveLists[undoSize];
+        if (list == null) {
+            list = new IntMoveList();
+            scratchMoveLists[undoSize] = list;
+        }
+        return list;
     }
 
-    private void generatePawnMoves(ChessPosition from, ChessPiece piece, List<ChessMove> moves) {
-        int direction = piece.isWhite() ? 1 : -1;
-        int startRank = piece.isWhite() ? 1 : 6;
-        int promotionRank = piece.isWhite() ? 7 : 0;
-
-        // Forward one square
-        ChessPosition to1 = new ChessPosition(from.file, from.rank + direction);
-        if (to1.isValid() && getPiece(to1) == null) {
-            addPawnMove(from, to1, piece, null, false, false, moves, promotionRank);
-            // Forward two squares
-            if (from.rank == startRank) {
-                ChessPosition to2 = new ChessPosition(from.file, from.rank + 2 * direction);
-                if (to2.isValid() && getPiece(to2) == null) {
-                    moves.add(new ChessMove(from, to2));
-                }
-            }
+
+    private void generatePseudoLegalMoves(IntMoveList moves) {
+        int us = currentTurn.ordinal();
+        long enemies = colorOccupancy[us ^ 1];
+        // Kings are never capturable, so the enemy king's square is excluded from every target set
+        long targets = ~colorOccupancy[us] & ~pieces(currentTurn.opposite(), PieceType.KING);
+
+        generatePawnMoves(moves);
+
+        long knights = pieces(currentTurn, PieceType.KNIGHT);
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            addMoves(from, Bitboards.knightAttacks(from) & targets, enemies, moves);
         }
-        // Captures
-        for (int fileOffset : new int[]{-1, 1}) {
-            ChessPosition toCapture = new ChessPosition(from.file + fileOffset, from.rank + direction);
-            if (toCapture.isValid()) {
-                ChessPiece target = getPiece(toCapture);
-                if (target != null && target.isWhite() != piece.isWhite()) {
-                    if (target.getType() != PieceType.KING) {
-                        addPawnMove(from, toCapture, piece, target, true, false, moves, promotionRank);
-                    }
-                } else if (toCapture.equals(enPassantTarget)) {
-                    addPawnMove(from, toCapture, piece, null, true, true, moves, promotionRank);
-                }
-            }
+        long bishops = pieces(currentTurn, PieceType.BISHOP);
+        while (bishops != 0) {
+            int from = Long.numberOfTrailingZeros(bishops);
+            bishops &= bishops - 1;
+            addMoves(from, Bitboards.bishopAttacks(from, occupied) & targets, enemies, moves);
+        }
+        long rooks = pieces(currentTurn, PieceType.ROOK);
+        while (rooks != 0) {
+            int from = Long.numberOfTrailingZeros(rooks);
+            rooks &= rooks - 1;
+            addMoves(from, Bitboards.rookAttacks(from, occupied) & targets, enemies, moves);
         }
+        long queens = pieces(currentTurn, PieceType.QUEEN);
+        while (queens != 0) {
+            int from = Long.numberOfTrailingZeros(queens);
+            queens &= queens - 1;
+            addMoves(from, Bitboards.queenAttacks(from, occupied) & targets, enemies, moves);
+        }
+
+        generateKingMoves(targets, enemies, moves);
     }
 
-    private void addPawnMove(ChessPosition from, ChessPosition to, ChessPiece piece, ChessPiece captured, boolean isCapture, boolean isEnPassant, List<ChessMove> moves, int promotionRank) {
-        if (to.rank == promotionRank) {
-            moves.add(new ChessMove(from, to, PieceType.QUEEN, isCapture, isEnPassant, false, false, false));
-            moves.add(new ChessMove(from, to, PieceType.ROOK, isCapture, isEnPassant, false, false, false));
-            moves.add(new ChessMove(from, to, PieceType.BISHOP, isCapture, isEnPassant, false, false, false));
-            moves.add(new ChessMove(from, to, PieceType.KNIGHT, isCapture, isEnPassant, false, false, false));
-        } else {
-            moves.add(new ChessMove(from, to, null, isCapture, isEnPassant, false, false, false));
+    private void addMoves(int from, long targets, long enemies, IntMoveList moves) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves.add(PackedMove.encode(from, to, null, (enemies & (1L << to)) != 0 ? PackedMove.CAPTURE : 0));
         }
     }
 
+    private void generatePawnMoves(IntMoveList moves) {
+        boolean white = currentTurn == PieceColor.WHITE;
+        int direction = white ? 8 : -8;
+        long startRank = white ? Bitboards.RANK_2 : Bitboards.RANK_7;
+        long enemies = colorOccupancy[currentTurn.ordinal() ^ 1] & ~pieces(currentTurn.opposite(), PieceType.KING);
+        long enPassantBit = enPassantSquare >= 0 ? 1L << enPassantSquare : 0L;
 
-    private void generateSlidingPieceMoves(ChessPosition from, ChessPiece piece, int[][] directions, int maxDistance, List<ChessMove> moves) {
-        for (int[] d : directions) {
-            for (int i = 1; i <= maxDistance; i++) {
-                ChessPosition to = new ChessPosition(from.file + d[0] * i, from.rank + d[1] * i);
-                if (!to.isValid()) break;
-                ChessPiece target = getPiece(to);
-                if (target == null) {
-                    moves.add(new ChessMove(from, to));
-                } else {
-                    if (target.isWhite() != piece.isWhite() && target.getType() != PieceType.KING) {
-                        moves.add(new ChessMove(from, to, null, true, false, false, false, false));
-                    }
-                    break;
+        long pawns = pieces(currentTurn, PieceType.PAWN);
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            long fromBit = pawns & -pawns;
+            pawns &= pawns - 1;
+
+            // Forward one square, then two from the start rank
+            int to1 = from + direction;
+            if ((occupied & (1L << to1)) == 0) {
+                addPawnMove(from, to1, 0, moves);
+                int to2 = to1 + direction;
+                if ((fromBit & startRank) != 0 && (occupied & (1L << to2)) == 0) {
+                    moves.add(PackedMove.encode(from, to2, null, 0));
                 }
             }
+
+            // Captures
+            long attacks = Bitboards.pawnAttacks(currentTurn.ordinal(), from);
+            long captures = attacks & enemies;
+            while (captures != 0) {
+                int to = Long.numberOfTrailingZeros(captures);
+                captures &= captures - 1;
+                addPawnMove(from, to, PackedMove.CAPTURE, moves);
+            }
+            if ((attacks & enPassantBit) != 0 && (occupied & enPassantBit) == 0) {
+                addPawnMove(from, enPassantSquare, PackedMove.CAPTURE | PackedMove.EN_PASSANT, moves);
+            }
         }
     }
 
-    private void generateKnightMoves(ChessPosition from, ChessPiece piece, List<ChessMove> moves) {
-        int[][] offsets = {{1, 2}, {1, -2}, {-1, 2}, {-1, -2}, {2, 1}, {2, -1}, {-2, 1}, {-2, -1}};
-        for (int[] offset : offsets) {
-            ChessPosition to = new ChessPosition(from.file + offset[0], from.rank + offset[1]);
-            if (to.isValid()) {
-                ChessPiece target = getPiece(to);
-                if (target == null || (target.isWhite() != piece.isWhite() && target.getType() != PieceType.KING)) {
-                    moves.add(new ChessMove(from, to, null, target != null, false, false, false, false));
-                }
-            }
+    private void addPawnMove(int from, int to, int flags, IntMoveList moves) {
+        if (to < 8 || to >= 56) {
+            moves.add(PackedMove.encode(from, to, PieceType.QUEEN, flags));
+            moves.add(PackedMove.encode(from, to, PieceType.ROOK, flags));
+            moves.add(PackedMove.encode(from, to, PieceType.BISHOP, flags));
+            moves.add(PackedMove.encode(from, to, PieceType.KNIGHT, flags));
+        } else {
+            moves.add(PackedMove.encode(from, to, null, flags));
         }
     }
 
-    private void generateKingMoves(ChessPosition from, ChessPiece piece, List<ChessMove> moves) {
+    private void generateKingMoves(long targets, long enemies, IntMoveList moves) {
+        long king = pieces(currentTurn, PieceType.KING);
+        if (king == 0L) return;
+        int from = Long.numberOfTrailingZeros(king);
+
         // Normal moves
-        for (int df = -1; df <= 1; df++) {
-            for (int dr = -1; dr <= 1; dr++) {
-                if (df == 0 && dr == 0) continue;
-                ChessPosition to = new ChessPosition(from.file + df, from.rank + dr);
-                if (to.isValid()) {
-                    ChessPiece target = getPiece(to);
-                    if (target == null || (target.isWhite() != piece.isWhite() && target.getType() != PieceType.KING)) {
-                        moves.add(new ChessMove(from, to, null, target != null, false, false, false, false));
-                    }
-                }
-            }
-        }
-        if (isInCheck(currentTurn)) return;
+        addMoves(from, Bitboards.kingAttacks(from) & targets, enemies, moves);
 
-        int rank = piece.isWhite() ? 0 : 7;
-        if (from.file == 4 && from.rank == rank) {
-            boolean canKingSide = piece.isWhite() ? whiteKingSideCastle : blackKingSideCastle;
-            if (canKingSide && getPiece(new ChessPosition(5, rank)) == null && getPiece(new ChessPosition(6, rank)) == null) {
-                if (!isSquareAttacked(new ChessPosition(5, rank), piece.isWhite() ? PieceColor.BLACK : PieceColor.WHITE)) {
-                    moves.add(new ChessMove(from, new ChessPosition(6, rank), null, false, false, true, false, false));
-                }
+        boolean white = currentTurn == PieceColor.WHITE;
+        int rank = white ? 0 : 7;
+        if (from != rank * 8 + 4 || isInCheck(currentTurn)) return;
+
+        PieceColor enemy = currentTurn.opposite();
+        long ownRooks = pieces(currentTurn, PieceType.ROOK);
+
+        boolean canKingSide = (castlingRights & (white ? WHITE_KING_SIDE : BLACK_KING_SIDE)) != 0;
+        long kingSidePath = white ? WHITE_KING_SIDE_PATH : BLACK_KING_SIDE_PATH;
+        if (canKingSide && (occupied & kingSidePath) == 0 && (ownRooks & (1L << (rank * 8 + 7))) != 0) {
+            if (!isSquareAttacked(rank * 8 + 5, enemy)) {
+                moves.add(PackedMove.encode(from, rank * 8 + 6, null, PackedMove.CASTLING));
             }
-            boolean canQueenSide = piece.isWhite() ? whiteQueenSideCastle : blackQueenSideCastle;
-            if (canQueenSide && getPiece(new ChessPosition(3, rank)) == null && getPiece(new ChessPosition(2, rank)) == null && getPiece(new ChessPosition(1, rank)) == null) {
-                if (!isSquareAttacked(new ChessPosition(3, rank), piece.isWhite() ? PieceColor.BLACK : PieceColor.WHITE)) {
-                    moves.add(new ChessMove(from, new ChessPosition(2, rank), null, false, false, true, false, false));
-                }
+        }
+        boolean canQueenSide = (castlingRights & (white ? WHITE_QUEEN_SIDE : BLACK_QUEEN_SIDE)) != 0;
+        long queenSidePath = white ? WHITE_QUEEN_SIDE_PATH : BLACK_QUEEN_SIDE_PATH;
+        if (canQueenSide && (occupied & queenSidePath) == 0 && (ownRooks & (1L << (rank * 8))) != 0) {
+            if (!isSquareAttacked(rank * 8 + 3, enemy)) {
+                moves.add(PackedMove.encode(from, rank * 8 + 2, null, PackedMove.CASTLING));
             }
         }
     }
 
     private void updateGameState() {
         boolean inCheck = isInCheck(currentTurn);
-        List<ChessMove> legalMovesCurrentPlayer = getLegalMovesForColor(currentTurn);
-
 
-        if (legalMovesCurrentPlayer.isEmpty()) {
+        if (!hasAnyLegalMove()) {
             if (inCheck) {
                 gameState = (currentTurn == PieceColor.WHITE) ? GameState.CHECKMATE_BLACK_WINS : GameState.CHECKMATE_WHITE_WINS;
             } else {
@@ -641,94 +791,85 @@ public class ChessBoard {
         }
     }
 
-    private List<ChessMove> getLegalMovesForColor(PieceColor color) {
-        PieceColor originalTurn = this.currentTurn;
-        this.currentTurn = color;
-        List<ChessMove> legalMoves = getLegalMoves();
-        this.currentTurn = originalTurn;
-        return legalMoves;
-    }
-
-
+    /**
+     * Counts earlier occurrences of the current key. Only positions with the same side to
+     * move since the last capture or pawn move can repeat, so the scan stops there.
+     */
     private boolean isThreefoldRepetition() {
-        String currentBoardFen = boardToFENBoardPart();
-        long count = positionHistoryFenOnly.stream().filter(fen -> fen.equals(currentBoardFen)).count();
-        return count >= 3;
+        int count = 1;
+        int oldest = Math.max(0, keyHistorySize - 1 - halfMoveClock);
+        for (int i = keyHistorySize - 3; i >= oldest; i -= 2) {
+            if (keyHistory[i] == zobristKey && ++count >= 3) return true;
+        }
+        return false;
     }
 
-    private boolean isInsufficientMaterial() {
-        List<ChessPiece> piecesOnBoard = new ArrayList<>();
-        for (ChessPiece p : board) {
-            if (p != null) piecesOnBoard.add(p);
+    /**
+     * Whether the current position already occurred since the last capture or pawn move, counting
+     * positions reached with {@link #makeUnchecked(int)}. Searches score a single repetition as a draw.
+     */
+    public boolean isRepetition() {
+        int oldest = Math.max(0, keyHistorySize - 1 - halfMoveClock);
+        for (int i = keyHistorySize - 3; i >= oldest; i -= 2) {
+            if (keyHistory[i] == zobristKey) return true;
         }
+        return false;
+    }
 
-        if (piecesOnBoard.size() <= 2) return true; // K vs K
-
-        long whiteKnights = piecesOnBoard.stream().filter(p -> p == ChessPiece.WHITE_KNIGHT).count();
-        long blackKnights = piecesOnBoard.stream().filter(p -> p == ChessPiece.BLACK_KNIGHT).count();
-        long whiteBishops = piecesOnBoard.stream().filter(p -> p == ChessPiece.WHITE_BISHOP).count();
-        long blackBishops = piecesOnBoard.stream().filter(p -> p == ChessPiece.BLACK_BISHOP).count();
-        long whiteHeavy = piecesOnBoard.stream().filter(p -> p == ChessPiece.WHITE_QUEEN || p == ChessPiece.WHITE_ROOK || p == ChessPiece.WHITE_PAWN).count();
-        long blackHeavy = piecesOnBoard.stream().filter(p -> p == ChessPiece.BLACK_QUEEN || p == ChessPiece.BLACK_ROOK || p == ChessPiece.BLACK_PAWN).count();
+    /**
+     * Decided from the incremental piece counters, no board scan needed.
+     */
+    private boolean isInsufficientMaterial() {
+        if (totalPieces <= 2) return true; // K vs K
 
-        if (whiteHeavy > 0 || blackHeavy > 0) return false;
+        int white = PieceColor.WHITE.ordinal() * 6;
+        int black = PieceColor.BLACK.ordinal() * 6;
+        int heavy = pieceCounts[white + PieceType.QUEEN.ordinal()] + pieceCounts[white + PieceType.ROOK.ordinal()] + pieceCounts[white + PieceType.PAWN.ordinal()]
+                + pieceCounts[black + PieceType.QUEEN.ordinal()] + pieceCounts[black + PieceType.ROOK.ordinal()] + pieceCounts[black + PieceType.PAWN.ordinal()];
+        if (heavy > 0) return false;
 
+        int whiteKnights = pieceCounts[white + PieceType.KNIGHT.ordinal()];
+        int blackKnights = pieceCounts[black + PieceType.KNIGHT.ordinal()];
+        int whiteBishops = pieceCounts[white + PieceType.BISHOP.ordinal()];
+        int blackBishops = pieceCounts[black + PieceType.BISHOP.ordinal()];
 
         if (whiteKnights + whiteBishops <= 1 && blackKnights + blackBishops == 0) return true;
         if (blackKnights + blackBishops <= 1 && whiteKnights + whiteBishops == 0) return true;
 
+        // One bishop each on the same square colour
         if (whiteBishops == 1 && blackBishops == 1 && whiteKnights == 0 && blackKnights == 0) {
-            ChessPosition wBishopPos = null, bBishopPos = null;
-            for(int i=0; i<64; ++i) {
-                if (board[i] == ChessPiece.WHITE_BISHOP) wBishopPos = ChessPosition.fromIndex(i);
-                if (board[i] == ChessPiece.BLACK_BISHOP) bBishopPos = ChessPosition.fromIndex(i);
-            }
-            if (wBishopPos != null && bBishopPos != null) {
-                boolean wBishopLight = (wBishopPos.file + wBishopPos.rank) % 2 == 0;
-                boolean bBishopLight = (bBishopPos.file + bBishopPos.rank) % 2 == 0;
-                if (wBishopLight == bBishopLight) return true;
-            }
+            return darkSquareBishops[0] == darkSquareBishops[1];
         }
-
-
         return false;
     }
 
-    private void makeUncheckedMove(ChessMove move) {
-        ChessPiece piece = getPiece(move.from);
-        setPiece(move.to, piece);
-        setPiece(move.from, null);
-        if (move.isEnPassant) setPiece(new ChessPosition(move.to.file, move.from.rank), null);
-        if (move.isCastling) {
-            if (move.to.file == 6) {
-                setPiece(new ChessPosition(5, move.from.rank), getPiece(new ChessPosition(7, move.from.rank)));
-                setPiece(new ChessPosition(7, move.from.rank), null);
-            } else {
-                setPiece(new ChessPosition(3, move.from.rank), getPiece(new ChessPosition(0, move.from.rank)));
-                setPiece(new ChessPosition(0, move.from.rank), null);
-            }
-        }
-        if (move.promotionPiece != null && piece != null) {
-            setPiece(move.to, ChessPiece.fromColorAndType(piece.isWhite() ? PieceColor.WHITE : PieceColor.BLACK, move.promotionPiece));
-        }
-    }
-
+    /**
+     * Independent copy of this board including its move and position history.
+     * Legality checks play moves in place, so this is only for callers that need a second board.
+     */
     public ChessBoard copy() {
-        ChessBoard copy = new ChessBoard();
-        System.arraycopy(this.board, 0, copy.board, 0, 64);
-        copy.currentTurn = this.currentTurn;
-        copy.gameState = this.gameState;
-        copy.whiteKingSideCastle = this.whiteKingSideCastle;
-        copy.whiteQueenSideCastle = this.whiteQueenSideCastle;
-        copy.blackKingSideCastle = this.blackKingSideCastle;
-        copy.blackQueenSideCastle = this.blackQueenSideCastle;
-        copy.enPassantTarget = this.enPassantTarget;
-        copy.halfMoveClock = this.halfMoveClock;
-        copy.fullMoveNumber = this.fullMoveNumber;
-        copy.moveHistory = new ArrayList<>(this.moveHistory);
-        copy.positionHistoryFenOnly = new ArrayList<>(this.positionHistoryFenOnly);
-        copy.fullFenHistory = new ArrayList<>(this.fullFenHistory);
-        return copy;
+        return new ChessBoard(this);
+    }
+
+    private ChessBoard(ChessBoard source) {
+        System.arraycopy(source.board, 0, board, 0, 64);
+        System.arraycopy(source.pieceBitboards, 0, pieceBitboards, 0, 12);
+        System.arraycopy(source.colorOccupancy, 0, colorOccupancy, 0, 2);
+        occupied = source.occupied;
+        System.arraycopy(source.pieceCounts, 0, pieceCounts, 0, 12);
+        System.arraycopy(source.darkSquareBishops, 0, darkSquareBishops, 0, 2);
+        totalPieces = source.totalPieces;
+        currentTurn = source.currentTurn;
+        gameState = source.gameState;
+        castlingRights = source.castlingRights;
+        enPassantSquare = source.enPassantSquare;
+        halfMoveClock = source.halfMoveClock;
+        fullMoveNumber = source.fullMoveNumber;
+        moveHistory = new ArrayList<>(source.moveHistory);
+        zobristKey = source.zobristKey;
+        keyHistory = Arrays.copyOf(source.keyHistory, source.keyHistory.length);
+        keyHistorySize = source.keyHistorySize;
+        fullFenHistory = new ArrayList<>(source.fullFenHistory);
     }
 
     private String boardToFENBoardPart() {
@@ -736,7 +877,7 @@ public class ChessBoard {
         for (int rank = 7; rank >= 0; rank--) {
             int emptyCount = 0;
             for (int file = 0; file < 8; file++) {
-                ChessPiece piece = getPiece(new ChessPosition(file, rank));
+                ChessPiece piece = board[rank * 8 + file];
                 if (piece == null) {
                     emptyCount++;
                 } else {
@@ -760,17 +901,31 @@ public class ChessBoard {
         String boardPart = boardToFENBoardPart();
         String turnPart = (currentTurn == PieceColor.WHITE ? "w" : "b");
         String castlingPart = "";
-        if (whiteKingSideCastle) castlingPart += "K";
-        if (whiteQueenSideCastle) castlingPart += "Q";
-        if (blackKingSideCastle) castlingPart += "k";
-        if (blackQueenSideCastle) castlingPart += "q";
+        if ((castlingRights & WHITE_KING_SIDE) != 0) castlingPart += "K";
+        if ((castlingRights & WHITE_QUEEN_SIDE) != 0) castlingPart += "Q";
+        if ((castlingRights & BLACK_KING_SIDE) != 0) castlingPart += "k";
+        if ((castlingRights & BLACK_QUEEN_SIDE) != 0) castlingPart += "q";
         if (castlingPart.isEmpty()) castlingPart = "-";
-        String enPassantPart = (enPassantTarget != null ? enPassantTarget.toNotation() : "-");
+        String enPassantPart = (enPassantSquare >= 0 ? ChessPosition.ofIndex(enPassantSquare).toNotation() : "-");
 
         return String.format("%s %s %s %s %d %d", boardPart, turnPart, castlingPart, enPassantPart, halfMoveClock, fullMoveNumber);
     }
 
 
+    private ChessPiece fenCharToPiece(char c) {
+        PieceType type = switch (Character.toLowerCase(c)) {
+            case 'k' -> PieceType.KING;
+            case 'q' -> PieceType.QUEEN;
+            case 'r' -> PieceType.ROOK;
+            case 'b' -> PieceType.BISHOP;
+            case 'n' -> PieceType.KNIGHT;
+            case 'p' -> PieceType.PAWN;
+            default -> null;
+        };
+        if (type == null) return null;
+        return ChessPiece.fromColorAndType(Character.isUpperCase(c) ? PieceColor.WHITE : PieceColor.BLACK, type);
+    }
+
     private char pieceToFENChar(ChessPiece piece) {
         if (piece == null) return ' ';
         char c = switch (piece.getType()) {
@@ -785,13 +940,24 @@ public class ChessBoard {
     }
 
     public PieceColor getCurrentTurn() { return currentTurn; }
-    public void setCurrentTurn(PieceColor turn) { this.currentTurn = turn; }
+    public void setCurrentTurn(PieceColor turn) {
+        if (turn != currentTurn) zobristKey ^= Zobrist.blackToMove();
+        this.currentTurn = turn;
+    }
     public GameState getGameState() { return gameState; }
     public void setGameState(GameState gameState) { this.gameState = gameState; }
     public List<ChessMove> getMoveHistory() { return Collections.unmodifiableList(moveHistory); }
+    public ChessMove getLastMove() { return moveHistory.isEmpty() ? null : moveHistory.get(moveHistory.size() - 1); }
     public List<String> getFenHistory() { return Collections.unmodifiableList(fullFenHistory); }
     public int getHalfMoveClock() { return halfMoveClock; }
     public int getFullMoveNumber() { return fullMoveNumber; }
-    public ChessPosition getEnPassantTarget() { return enPassantTarget; }
+    public int getPieceCount(ChessPiece piece) { return pieceCounts[piece.ordinal()]; }
+
+    /**
+     * 64-bit Zobrist key of the current position (pieces, side to move, castling rights and
+     * en passant file). Cheap position identity for caches, repetition checks and the opening book.
+     */
+    public long getZobristKey() { return zobristKey; }
+    public ChessPosition getEnPassantTarget() { return enPassantSquare >= 0 ? ChessPosition.ofIndex(enPassantSquare) : null; }
 
 }
\ No newline at end of file
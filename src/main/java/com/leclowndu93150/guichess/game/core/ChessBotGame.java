@@ -9,7 +9,9 @@ import com.leclowndu93150.guichess.game.players.BotPlayer;
 import com.leclowndu93150.guichess.game.players.GameParticipant;
 import com.leclowndu93150.guichess.util.audio.ChessSoundManager;
 import com.leclowndu93150.guichess.util.time.TimeControl;
-import com.leclowndu93150.guichess.engine.integration.StockfishEngineManager;
+import com.leclowndu93150.guichess.engine.analysis.AnalysisJobManager;
+import com.leclowndu93150.guichess.engine.book.OpeningBook;
+import com.leclowndu93150.guichess.engine.integration.EngineRequest;
 import com.leclowndu93150.guichess.engine.integration.StockfishIntegration;
 import com.leclowndu93150.guichess.gui.game.ChessGUI;
 import net.minecraft.network.chat.Component;
@@ -24,6 +26,7 @@ public class ChessBotGame extends ChessGame {
     private final PieceColor botColor;
     private boolean isThinking = false;
     private CompletableFuture<Void> currentBotMove = null;
+    private final BotPonderer ponderer = new BotPonderer();
     
     private static final Pattern UCI_MOVE_PATTERN = Pattern.compile("([a-h][1-8])([a-h][1-8])([qrbn])?");
     
@@ -73,134 +76,118 @@ public class ChessBotGame extends ChessGame {
         }
         
         String fen = board.toFEN();
+        long turnStarted = System.currentTimeMillis();
+        int secondsLeft = botColor == PieceColor.WHITE ? getWhiteTimeLeft() : getBlackTimeLeft();
+        BotTimeManager.MoveBudget budget = BotTimeManager.allocate(getTimeControl(), secondsLeft, board.getMoveHistory().size());
         
-        configureStockfishForElo(botPlayer.getTargetElo());
+        EngineRequest request = budget.limit(EngineRequest.forElo(botPlayer.getTargetElo()));
+        // Book positions need no search; an anticipated reply is answered from the search prepared while the human was
+        // thinking, and only searched now if that search does not finish in time
+        StockfishIntegration.AnalysisResult bookMove = OpeningBook.getInstance().pickResult(board);
+        CompletableFuture<StockfishIntegration.AnalysisResult> prepared = null;
+        if (bookMove != null) {
+            ponderer.clear();
+        } else {
+            prepared = ponderer.take(fen, request);
+        }
+        long humanDelay = budget.humanDelay(bookMove != null || prepared != null
+            ? 300 + (long)(Math.random() * 400)
+            : 500 + (long)(Math.random() * 1500));
+        CompletableFuture<StockfishIntegration.AnalysisResult> search;
+        if (bookMove != null) {
+            search = CompletableFuture.completedFuture(bookMove);
+        } else if (prepared != null) {
+            search = prepared.thenCompose(result -> result != null
+                ? CompletableFuture.completedFuture(result)
+                : AnalysisJobManager.getInstance().analyze(fen, request));
+        } else {
+            search = AnalysisJobManager.getInstance().analyze(fen, request);
+        }
         
-        currentBotMove = CompletableFuture
-            .runAsync(() -> {
-                try {
-                    Thread.sleep(500 + (int)(Math.random() * 1500));
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return;
+        // The engine searches during the humanising delay; the move is played once both are over
+        currentBotMove = search
+            .thenCompose(result -> BotTimeManager.runAt(turnStarted + humanDelay,
+                GameManager.getInstance().getServer()::execute, () -> playBotMove(result, humanPlayer)))
+            .exceptionally(throwable -> {
+                if (humanPlayer != null) {
+                    humanPlayer.sendSystemMessage(Component.literal("§cBot error: " + throwable.getMessage()));
+                    throwable.printStackTrace();
                 }
-                
-                StockfishEngineManager.getInstance().analyzePosition(fen)
-                    .thenAccept(result -> {
-                        if (!isGameActive() || board.getCurrentTurn() != botColor) {
-                            isThinking = false;
-                            return;
-                        }
-                        
-                        if (result.bestMove != null) {
-                            ChessMove move = parseUCIMove(result.bestMove);
-                            
-                            if (move != null) {
-                                GameManager.getInstance().getServer().execute(() -> {
-                                    if (isValidBotMove(move)) {
-                                        if (board.makeMove(move)) {
-                                            updateTimersAfterMove();
-                                            
-                                            if (!timerStarted && board.getCurrentTurn() == PieceColor.BLACK) {
-                                                timerStarted = true;
-                                            }
-                                            ServerPlayer human = getHumanPlayer();
-                                            if (human != null) {
-                                                ChessSoundManager.playMoveSound(
-                                                    human, move, board.getGameState());
-                                            }
-                                            
-                                            ServerPlayer whitePlayer = getWhitePlayer();
-                                            ServerPlayer blackPlayer = getBlackPlayer();
-                                            
-                                            ChessGUI whiteGUI = whitePlayer != null ? GameManager.getInstance().getPlayerGUI(whitePlayer) : null;
-                                            ChessGUI blackGUI = blackPlayer != null ? GameManager.getInstance().getPlayerGUI(blackPlayer) : null;
-                                            
-                                            if (whiteGUI != null && whiteGUI.isOpen()) whiteGUI.updateBoard();
-                                            if (blackGUI != null && blackGUI.isOpen()) blackGUI.updateBoard();
-                                            
-                                            GameState currentState = board.getGameState();
-                                            if (currentState != GameState.WHITE_TURN && currentState != GameState.BLACK_TURN &&
-                                                currentState != GameState.CHECK_WHITE && currentState != GameState.CHECK_BLACK) {
-                                                endGame(currentState);
-                                            }
-                                        } else {
-                                            if (humanPlayer != null) humanPlayer.sendSystemMessage(Component.literal("§cBot move failed to execute!"));
-                                        }
-                                    } else {
-                                        if (humanPlayer != null) humanPlayer.sendSystemMessage(Component.literal("§cBot made invalid move!"));
-                                    }
-                                    isThinking = false;
-                                });
-                            } else {
-                                if (humanPlayer != null) {
-                                    humanPlayer.sendSystemMessage(Component.literal("§cBot failed to parse move: " + result.bestMove));
-                                }
-                                isThinking = false;
-                            }
-                        } else {
-                            if (humanPlayer != null) {
-                                humanPlayer.sendSystemMessage(Component.literal("§cBot failed to find a move!"));
-                                if (result.error != null) {
-                                    humanPlayer.sendSystemMessage(Component.literal("§cError: " + result.error));
-                                }
-                            }
-                            isThinking = false;
-                        }
-                    })
-                    .exceptionally(throwable -> {
-                        if (humanPlayer != null) {
-                            humanPlayer.sendSystemMessage(Component.literal("§cBot error: " + throwable.getMessage()));
-                            throwable.printStackTrace();
-                        }
-                        isThinking = false;
-                        return null;
-                    });
+                isThinking = false;
+                return null;
             });
     }
     
-    private void configureStockfishForElo(int targetElo) {
-        StockfishEngineManager stockfish = StockfishEngineManager.getInstance();
-        
-        int depth;
-        int analysisTime;
+    private void playBotMove(StockfishIntegration.AnalysisResult result, ServerPlayer humanPlayer) {
+        if (!isGameActive() || board.getCurrentTurn() != botColor) {
+            isThinking = false;
+            return;
+        }
         
-        if (targetElo < 400) {
-            stockfish.setSkillLevel(-9);
-            depth = 5;
-            analysisTime = 1000;
-        } else if (targetElo < 650) {
-            stockfish.setSkillLevel(-5);
-            depth = 5;
-            analysisTime = 1000;
-        } else if (targetElo < 950) {
-            stockfish.setSkillLevel(-1);
-            depth = 5;
-            analysisTime = 1000;
-        } else if (targetElo < 1300) {
-            stockfish.setSkillLevel(3);
-            depth = 5;
-            analysisTime = 1000;
-        } else if (targetElo < 1700) {
-            stockfish.setSkillLevel(7);
-            depth = 5;
-            analysisTime = 1000;
-        } else if (targetElo < 2100) {
-            stockfish.setSkillLevel(11);
-            depth = 8;
-            analysisTime = 1500;
-        } else if (targetElo < 2550) {
-            stockfish.setSkillLevel(15);
-            depth = 13;
-            analysisTime = 2000;
+        if (result.bestMove != null) {
+            ChessMove move = parseUCIMove(result.bestMove);
+            
+            if (move != null) {
+                if (isValidBotMove(move)) {
+                    if (board.makeMove(move)) {
+                        updateTimersAfterMove();
+                        
+                        if (!timerStarted && board.getCurrentTurn() == PieceColor.BLACK) {
+                            timerStarted = true;
+                        }
+                        ServerPlayer human = getHumanPlayer();
+                        if (human != null) {
+                            ChessSoundManager.playMoveSound(
+                                human, board.getLastMove(), board.getGameState());
+                        }
+                        
+                        ServerPlayer whitePlayer = getWhitePlayer();
+                        ServerPlayer blackPlayer = getBlackPlayer();
+                        
+                        ChessGUI whiteGUI = whitePlayer != null ? GameManager.getInstance().getPlayerGUI(whitePlayer) : null;
+                        ChessGUI blackGUI = blackPlayer != null ? GameManager.getInstance().getPlayerGUI(blackPlayer) : null;
+                        
+                        if (whiteGUI != null && whiteGUI.isOpen()) whiteGUI.updateBoard();
+                        if (blackGUI != null && blackGUI.isOpen()) blackGUI.updateBoard();
+                        
+                        GameState currentState = board.getGameState();
+                        if (currentState != GameState.WHITE_TURN && currentState != GameState.BLACK_TURN &&
+                            currentState != GameState.CHECK_WHITE && currentState != GameState.CHECK_BLACK) {
+                            endGame(currentState);
+                        } else {
+                            startPondering();
+                        }
+                    } else {
+                        if (humanPlayer != null) humanPlayer.sendSystemMessage(Component.literal("§cBot move failed to execute!"));
+                    }
+                } else {
+                    if (humanPlayer != null) humanPlayer.sendSystemMessage(Component.literal("§cBot made invalid move!"));
+                }
+            } else {
+                if (humanPlayer != null) {
+                    humanPlayer.sendSystemMessage(Component.literal("§cBot failed to parse move: " + result.bestMove));
+                }
+            }
         } else {
-            stockfish.setSkillLevel(20);
-            depth = 22;
-            analysisTime = 3000;
+            if (humanPlayer != null) {
+                humanPlayer.sendSystemMessage(Component.literal("§cBot failed to find a move!"));
+                if (result.error != null) {
+                    humanPlayer.sendSystemMessage(Component.literal("§cError: " + result.error));
+                }
+            }
         }
+        isThinking = false;
+    }
+    
+    /**
+     * Prepares answers to the human's likely replies while they think, for bots strong enough to benefit.
+     */
+    private void startPondering() {
+        if (!BotPonderer.ENABLED || botPlayer.getTargetElo() < BotPonderer.MIN_ELO) return;
         
-        stockfish.setAnalysisDepth(depth);
-        stockfish.setAnalysisTime(analysisTime);
+        int secondsLeft = botColor == PieceColor.WHITE ? getWhiteTimeLeft() : getBlackTimeLeft();
+        BotTimeManager.MoveBudget budget = BotTimeManager.allocate(getTimeControl(), secondsLeft, board.getMoveHistory().size() + 1);
+        ponderer.ponder(board.toFEN(), budget.limit(EngineRequest.forElo(botPlayer.getTargetElo())));
     }
     
     private ChessMove parseUCIMove(String uciMove) {
@@ -246,7 +233,7 @@ public class ChessBotGame extends ChessGame {
             return null;
         }
         
-        return new ChessPosition(file - 'a', rank - '1');
+        return ChessPosition.of(file - 'a', rank - '1');
     }
     
     private PieceType parsePromotion(String promotion) {
@@ -274,6 +261,7 @@ public class ChessBotGame extends ChessGame {
         if (currentBotMove != null && !currentBotMove.isDone()) {
             currentBotMove.cancel(true);
         }
+        ponderer.clear();
         isThinking = false;
         
         super.endGame(finalState);
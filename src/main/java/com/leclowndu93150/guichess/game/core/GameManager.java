@@ -1188,6 +1188,13 @@ public class GameManager {
         return matchHistoryManager;
     }
 
+    /**
+     * World-specific data directory ({@code <world>/chess_data}); null before {@link #initialize}.
+     */
+    public Path getDataDirectory() {
+        return dataDirectory;
+    }
+
     public Map<UUID, ChessGame> getActiveGames() { return activeGames; }
     public Map<UUID, ChessChallenge> getPendingChallenges() { return pendingChallenges; }
 }
\ No newline at end of file
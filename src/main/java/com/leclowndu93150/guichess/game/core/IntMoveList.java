@@ -0,0 +1,59 @@
+package com.leclowndu93150.guichess.game.core;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of packed moves backed by an int array, meant to be cleared and reused.
+ */
+public final class IntMoveList {
+    private int[] moves;
+    private int size;
+
+    public IntMoveList() {
+        this(64);
+    }
+
+    public IntMoveList(int capacity) {
+        this.moves = new int[capacity];
+    }
+
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Drops every move from {@code newSize} onwards.
+     */
+    public void truncate(int newSize) {
+        size = newSize;
+    }
+
+    public void swap(int i, int j) {
+        int tmp = moves[i];
+        moves[i] = moves[j];
+        moves[j] = tmp;
+    }
+}
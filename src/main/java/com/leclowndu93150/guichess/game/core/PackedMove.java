@@ -0,0 +1,97 @@
+package com.leclowndu93150.guichess.game.core;
+
+import com.leclowndu93150.guichess.chess.board.ChessMove;
+import com.leclowndu93150.guichess.chess.board.ChessPosition;
+import com.leclowndu93150.guichess.chess.pieces.PieceType;
+
+/**
+ * Moves packed into a single int for allocation-free move generation.
+ *
+ * Layout: from square (bits 0-5), to square (6-11), promotion piece as PieceType
+ * ordinal + 1 with 0 for none (12-14), then the capture, en passant and castling flags.
+ * ChessMove objects are only built at the API boundary through {@link #toChessMove(int)}.
+ */
+public final class PackedMove {
+    public static final int CAPTURE = 1 << 15;
+    public static final int EN_PASSANT = 1 << 16;
+    public static final int CASTLING = 1 << 17;
+
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private PackedMove() {
+    }
+
+    public static int encode(int from, int to, PieceType promotion, int flags) {
+        return from | to << 6 | (promotion != null ? promotion.ordinal() + 1 : 0) << 12 | flags;
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * @return the promotion piece, or null if the move is not a promotion
+     */
+    public static PieceType promotion(int move) {
+        int code = (move >>> 12) & 0x7;
+        return code == 0 ? null : TYPES[code - 1];
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & 0x7000) != 0;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastling(int move) {
+        return (move & CASTLING) != 0;
+    }
+
+    /**
+     * Same comparison as ChessMove.equals: from, to and promotion piece, ignoring flags.
+     */
+    public static boolean sameMove(int a, int b) {
+        return ((a ^ b) & 0x7FFF) == 0;
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(ChessPosition.ofIndex(from(move)), ChessPosition.ofIndex(to(move)), promotion(move),
+                isCapture(move), isEnPassant(move), isCastling(move), false, false);
+    }
+
+    public static int fromChessMove(ChessMove move) {
+        int flags = (move.isCapture ? CAPTURE : 0) | (move.isEnPassant ? EN_PASSANT : 0) | (move.isCastling ? CASTLING : 0);
+        return encode(move.from.toIndex(), move.to.toIndex(), move.promotionPiece, flags);
+    }
+
+    /**
+     * Long algebraic notation as used by UCI, e.g. "e2e4" or "e7e8q".
+     */
+    public static String toUci(int move) {
+        StringBuilder sb = new StringBuilder(5);
+        int from = from(move);
+        int to = to(move);
+        sb.append((char) ('a' + (from & 7))).append((char) ('1' + (from >>> 3)));
+        sb.append((char) ('a' + (to & 7))).append((char) ('1' + (to >>> 3)));
+        PieceType promotion = promotion(move);
+        if (promotion != null) {
+            sb.append(switch (promotion) {
+                case QUEEN -> 'q';
+                case ROOK -> 'r';
+                case BISHOP -> 'b';
+                default -> 'n';
+            });
+        }
+        return sb.toString();
+    }
+}
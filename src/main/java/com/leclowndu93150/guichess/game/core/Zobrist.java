@@ -0,0 +1,72 @@
+package com.leclowndu93150.guichess.game.core;
+
+/**
+ * Random keys for Zobrist position hashing.
+ *
+ * A position key is the XOR of one key per (piece, square), one per castling-rights
+ * mask, one per en passant file and a side key when black is to move. The keys come
+ * from a fixed seed so a position hashes to the same value across restarts, which lets
+ * keys be persisted by caches.
+ */
+public final class Zobrist {
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        long[] state = {0x9E3779B97F4A7C15L};
+        for (int piece = 0; piece < 12; piece++) {
+            for (int square = 0; square < 64; square++) {
+                PIECE_SQUARE[piece][square] = nextRandom(state);
+            }
+        }
+        // Castling keys are per right and combined, so a mask key is the XOR of its bits
+        long[] rights = new long[4];
+        for (int i = 0; i < 4; i++) rights[i] = nextRandom(state);
+        for (int mask = 0; mask < 16; mask++) {
+            for (int i = 0; i < 4; i++) {
+                if ((mask & (1 << i)) != 0) CASTLING[mask] ^= rights[i];
+            }
+        }
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT_FILE[file] = nextRandom(state);
+        }
+        BLACK_TO_MOVE = nextRandom(state);
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @param piece ChessPiece ordinal
+     */
+    public static long piece(int piece, int square) {
+        return PIECE_SQUARE[piece][square];
+    }
+
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    /**
+     * @param square en passant target square, or -1 for none
+     */
+    public static long enPassant(int square) {
+        return square < 0 ? 0L : EN_PASSANT_FILE[square & 7];
+    }
+
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+
+    // xorshift64* generator
+    private static long nextRandom(long[] state) {
+        long x = state[0];
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        state[0] = x;
+        return x * 2685821657736338717L;
+    }
+}
@@ -7,8 +7,8 @@ import com.leclowndu93150.guichess.chess.pieces.ChessPiece;
 import com.leclowndu93150.guichess.chess.pieces.PieceColor;
 import com.leclowndu93150.guichess.chess.rules.GameUtility;
 import com.leclowndu93150.guichess.data.models.GameHistory;
-import com.leclowndu93150.guichess.engine.integration.StockfishEngineManager;
-import com.leclowndu93150.guichess.engine.integration.StockfishIntegration;
+import com.leclowndu93150.guichess.engine.analysis.AnalysisJobManager;
+import com.leclowndu93150.guichess.engine.analysis.GameReviewJob;
 import com.leclowndu93150.guichess.game.core.ChessBoard;
 import com.leclowndu93150.guichess.game.core.GameManager;
 import com.leclowndu93150.guichess.util.audio.ChessSoundManager;
@@ -23,7 +23,7 @@ import net.minecraft.world.item.Items;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Post-game analysis with Stockfish evaluation.
@@ -36,7 +36,8 @@ public class MatchAnalysisGUI extends SimpleGui {
     private ChessBoard analysisBoard;
     private int currentMoveIndex = -1; // -1 = starting position
     private boolean isAnalyzing = false;
-    private CompletableFuture<Void> analysisTask;
+    private GameReviewJob reviewJob;
+    private final Consumer<GameReviewJob> reviewProgressListener = this::onReviewProgress;
 
     private final List<String> moveEvaluations = new ArrayList<>();
     private final List<String> bestMoves = new ArrayList<>();
@@ -80,149 +81,61 @@ public class MatchAnalysisGUI extends SimpleGui {
     }
 
     /**
-     * Starts asynchronous Stockfish analysis of all moves in the game.
-     * Calculates evaluations, best moves, and centipawn losses for each position.
+     * Shows the stored computer review of this game, or starts one in the background.
+     *
+     * <p>The review runs in the {@link AnalysisJobManager} behind live hints and bot moves. It keeps
+     * going if this GUI is closed and its results are saved with the game, so reopening the
+     * analysis later shows them without searching again.
      */
     private void startStockfishAnalysis() {
         if (isAnalyzing || analysisCompleted) return;
         
+        if (gameHistory.isAnalyzed()) {
+            loadAnalysisFromHistory();
+            return;
+        }
+        
         isAnalyzing = true;
         player.sendSystemMessage(Component.literal("§eStarting computer analysis..."));
         
-        analysisTask = CompletableFuture.runAsync(() -> {
-            ChessBoard tempBoard = new ChessBoard();
-            String currentFen = tempBoard.toFEN();
-            
-            for (int i = 0; i < gameHistory.moves.size(); i++) {
-                final int moveIndex = i;
-                GameHistory.MoveRecord moveRecord = gameHistory.moves.get(i);
-                
-                try {
-                    StockfishIntegration.AnalysisResult analysis = 
-                        StockfishEngineManager.getInstance().analyzePosition(currentFen).get();
-                    
-                    moveEvaluations.add(analysis.evaluation != null ? analysis.evaluation : "0.00");
-                    bestMoves.add(analysis.bestMove != null ? analysis.bestMove : "");
-                    
-                    int currentEval = parseEvaluation(analysis.evaluation);
-                    tempBoard.makeMove(moveRecord.move);
-                    String nextFen = tempBoard.toFEN();
-                    
-                    StockfishIntegration.AnalysisResult nextAnalysis = 
-                        StockfishEngineManager.getInstance().analyzePosition(nextFen).get();
-                    int nextEval = parseEvaluation(nextAnalysis.evaluation);
-                    
-                    if (moveIndex % 2 == 1) {
-                        currentEval = -currentEval;
-                        nextEval = -nextEval;
-                    }
-                    
-                    int centipawnLoss = Math.max(0, currentEval - nextEval);
-                    centipawnLosses.add(centipawnLoss);
-                    
-                    classifyMove(gameHistory.moves.get(moveIndex), centipawnLoss);
-                    
-                    currentFen = nextFen;
-                    
-                    if ((i + 1) % 5 == 0) {
-                        int progress = (int) ((i + 1) * 100.0 / gameHistory.moves.size());
-                        player.sendSystemMessage(Component.literal("§eAnalysis progress: " + progress + "%"));
-                    }
-                    
-                } catch (Exception e) {
-                    moveEvaluations.add("Error");
-                    bestMoves.add("");
-                    centipawnLosses.add(0);
-                }
-            }
-            
-            isAnalyzing = false;
-            analysisCompleted = true;
+        reviewJob = AnalysisJobManager.getInstance().reviewGame(gameHistory);
+        reviewJob.addProgressListener(reviewProgressListener);
+        reviewJob.getCompletion().thenAccept(job -> GameManager.getInstance().getServer().execute(() -> {
+            if (!isOpen()) return;
+            loadAnalysisFromHistory();
             player.sendSystemMessage(Component.literal("§aAnalysis completed!"));
-            
-            getPlayer().server.execute(this::updateAnalysisInfo);
-        });
+        }));
     }
 
-    /**
-     * Parses a Stockfish evaluation string into normalized centipawns.
-     * 
-     * <p>Handles both traditional centipawn values and the new normalized evaluation format
-     * where 1.0 pawn = 50% win probability. Also processes tablebase scores and mate values.
-     * 
-     * @param evaluation the evaluation string (e.g., "+1.25", "Mate 3", "-0.50", "199.50")
-     * @return the evaluation in normalized centipawns, or 0 if parsing fails
-     */
-    private int parseEvaluation(String evaluation) {
-        if (evaluation == null || evaluation.equals("Error")) return 0;
+    private void onReviewProgress(GameReviewJob job) {
+        int completed = job.getCompletedPositions();
+        if (completed % 5 != 0 || completed >= job.getTotalPositions()) return;
         
-        try {
-            if (evaluation.contains("Mate")) {
-                return evaluation.contains("-") ? -10000 : 10000;
-            }
-            
-            double evalValue = Double.parseDouble(evaluation.replace("+", ""));
-            
-            // Handle tablebase scores (SF16+): values around 200.00 indicate tablebase wins
-            if (Math.abs(evalValue) >= 199.0) {
-                return evalValue > 0 ? 15000 : -15000; // Tablebase win/loss
-            }
-            
-            // Convert normalized evaluation to centipawns
-            // In new format: 1.0 pawn = 50% win probability
-            // We'll use a modified scale for move classification
-            return (int) (evalValue * 100);
-            
-        } catch (NumberFormatException e) {
-            return 0;
-        }
+        int progress = job.getProgressPercent();
+        GameManager.getInstance().getServer().execute(() -> {
+            player.sendSystemMessage(Component.literal("§eAnalysis progress: " + progress + "%"));
+            updateAnalysisInfo();
+        });
     }
 
     /**
-     * Classifies a move based on its centipawn loss and special characteristics.
-     * Uses updated thresholds for Stockfish's normalized evaluation system.
-     * 
-     * <p>Classification thresholds adjusted for the new evaluation format where
-     * 1.0 pawn = 50% win probability. Thresholds are more sensitive to reflect
-     * the probabilistic nature of modern engine evaluation.
-     * 
-     * @param move the move record to classify
-     * @param centipawnLoss the centipawn loss caused by this move
+     * Fills the per-move displays from the review stored in the move records.
      */
-    private void classifyMove(GameHistory.MoveRecord move, int centipawnLoss) {
-        move.centipawnLoss = centipawnLoss;
+    private void loadAnalysisFromHistory() {
+        moveEvaluations.clear();
+        bestMoves.clear();
+        centipawnLosses.clear();
         
-        move.isBrilliant = false;
-        move.isGood = false;
-        move.isInaccuracy = false;
-        move.isMistake = false;
-        move.isBlunder = false;
-        
-        if (move.wasCheckmate) {
-            move.isBrilliant = true;
-            move.centipawnLoss = 0;
-            return;
+        for (GameHistory.MoveRecord move : gameHistory.moves) {
+            moveEvaluations.add(move.stockfishEvaluation != null ? move.stockfishEvaluation : "Error");
+            bestMoves.add(move.bestMove != null ? move.bestMove : "");
+            centipawnLosses.add(move.centipawnLoss);
         }
         
-        // Brilliant moves: significant improvement or tactical genius
-        if (centipawnLoss < -25 || 
-            (move.wasCapture && centipawnLoss < -10) ||
-            (move.wasPromotion && centipawnLoss <= 0)) {
-            move.isBrilliant = true;
-            return;
-        }
-
-        if (centipawnLoss <= 10) {
-            move.isGood = true; // Best move or near-best
-        } else if (centipawnLoss <= 25) {
-            move.isGood = true; // Good move 
-        } else if (centipawnLoss <= 50) {
-            move.isInaccuracy = true; // Minor error (~5% win probability loss)
-        } else if (centipawnLoss <= 100) {
-            move.isMistake = true; // Significant error (~10% win probability loss)
-        } else {
-            move.isBlunder = true; // Major error (>10% win probability loss)
-        }
+        isAnalyzing = false;
+        analysisCompleted = true;
+        updateSidebarMoveInfo();
+        updateAnalysisInfo();
     }
 
     /**
@@ -326,8 +239,8 @@ public class MatchAnalysisGUI extends SimpleGui {
                 chessFile = 7 - col;
             }
 
-            ChessPosition position = new ChessPosition(chessFile, chessRank);
-            ChessPiece piece = displayBoard.getPiece(position);
+            ChessPosition position = ChessPosition.of(chessFile, chessRank);
+            ChessPiece piece = displayBoard.getPiece(position.toIndex());
 
             int slotIndex = i + i / 8;
             if (slotIndex >= 72) continue;
@@ -529,6 +442,7 @@ public class MatchAnalysisGUI extends SimpleGui {
             setSlot(26, new GuiElementBuilder(Items.CLOCK)
                     .setName(Component.literal("§eAnalyzing..."))
                     .addLoreLine(Component.literal("§7Computer analysis in progress"))
+                    .addLoreLine(Component.literal("§7" + (reviewJob != null ? reviewJob.getProgressPercent() : 0) + "% complete"))
                     .glow());
         } else if (analysisCompleted) {
             setSlot(26, new GuiElementBuilder(Items.EMERALD)
@@ -709,7 +623,7 @@ public class MatchAnalysisGUI extends SimpleGui {
                     .setLore(analysisLore)
                     .setCallback((index, type, action, gui) -> {
                         if (!isAnalyzing && !analysisCompleted) {
-                            startAnalysis();
+                            startStockfishAnalysis();
                         }
                     }));
         } else {
@@ -719,7 +633,7 @@ public class MatchAnalysisGUI extends SimpleGui {
                     .addLoreLine(Component.literal(analysisCompleted ? "§aAnalysis completed" : "§7Click to analyze"))
                     .setCallback((index, type, action, gui) -> {
                         if (!isAnalyzing && !analysisCompleted) {
-                            startAnalysis();
+                            startStockfishAnalysis();
                         }
                     }));
         }
@@ -750,6 +664,10 @@ public class MatchAnalysisGUI extends SimpleGui {
     }
     
     private String getMoveQuality(GameHistory.MoveRecord move) {
+        if (move.isBook) {
+            return "§7✓ Book Move";
+        }
+        
         // Priority order: brilliant > checkmate > other classifications
         if (move.isBrilliant) {
             if (move.wasCheckmate) {
@@ -788,23 +706,6 @@ public class MatchAnalysisGUI extends SimpleGui {
         return getMoveQuality(move.centipawnLoss);
     }
     
-    private void startAnalysis() {
-        if (isAnalyzing || analysisCompleted) return;
-        
-        isAnalyzing = true;
-        updateAnalysisInfo();
-        
-        player.sendSystemMessage(Component.literal("§eStarting position analysis..."));
-        
-        // For now, just mark as completed since we don't have real Stockfish integration here
-        // In a real implementation, this would analyze each position with Stockfish
-        analysisCompleted = true;
-        isAnalyzing = false;
-        updateAnalysisInfo();
-        
-        player.sendSystemMessage(Component.literal("§aAnalysis completed!"));
-    }
-
     /**
      * Exports the game to PGN format with clipboard copy and Chess.com integration.
      */
@@ -858,9 +759,9 @@ public class MatchAnalysisGUI extends SimpleGui {
 
     @Override
     public void onClose() {
-        // Cancel analysis if still running
-        if (analysisTask != null && !analysisTask.isDone()) {
-            analysisTask.cancel(true);
+        // The review keeps running and is saved with the game; this GUI just stops listening
+        if (reviewJob != null) {
+            reviewJob.removeProgressListener(reviewProgressListener);
         }
         
         // Restore player inventory
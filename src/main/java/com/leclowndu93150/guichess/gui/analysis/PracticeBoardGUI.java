@@ -5,6 +5,10 @@ import com.leclowndu93150.guichess.chess.board.ChessPosition;
 import com.leclowndu93150.guichess.chess.pieces.ChessPiece;
 import com.leclowndu93150.guichess.chess.pieces.PieceColor;
 import com.leclowndu93150.guichess.chess.pieces.PieceType;
+import com.leclowndu93150.guichess.engine.integration.AnalysisSubscription;
+import com.leclowndu93150.guichess.engine.integration.AnalysisUpdate;
+import com.leclowndu93150.guichess.engine.integration.EnginePriority;
+import com.leclowndu93150.guichess.engine.integration.EngineRequest;
 import com.leclowndu93150.guichess.engine.integration.StockfishEngineManager;
 import com.leclowndu93150.guichess.game.core.ChessBoard;
 import com.leclowndu93150.guichess.game.core.GameManager;
@@ -31,6 +35,13 @@ public class PracticeBoardGUI extends ChessGUI {
     private boolean showingPromotionDialog = false;
     private ChessPosition promotionFrom;
     private ChessPosition promotionTo;
+    private AnalysisSubscription analysis;
+    private List<AnalysisUpdate> analysisLines = new ArrayList<>();
+    // Bumped whenever the shown analysis is discarded, so late updates from an old search are ignored
+    private int analysisGeneration = 0;
+
+    private static final EngineRequest PRACTICE_ANALYSIS = EngineRequest.defaults().withDepth(20).withMoveTime(5000).withMultiPv(3)
+            .withPriority(EnginePriority.LIVE_ANALYSIS);
 
     /**
      * Creates a new practice board GUI for the specified player.
@@ -45,7 +56,7 @@ public class PracticeBoardGUI extends ChessGUI {
 
     public PracticeBoardGUI(ServerPlayer player, String fen) {
         super(player, null, PieceColor.WHITE);
-        this.practiceBoard = new ChessBoard();
+        this.practiceBoard = new ChessBoard(fen);
         setTitle(Component.literal("§dPosition Analysis"));
     }
 
@@ -82,6 +93,7 @@ public class PracticeBoardGUI extends ChessGUI {
 
     @Override
     public void onClose() {
+        stopAnalysis();
         // Restore player inventory
         GameManager.getInstance().restoreInventoryAfterAnalysis(player);
         super.onClose();
@@ -184,6 +196,7 @@ public class PracticeBoardGUI extends ChessGUI {
         if (moveToMake != null) {
             boolean success = practiceBoard.makeMove(moveToMake);
             if (success) {
+                clearAnalysis();
                 return true;
             }
         }
@@ -246,6 +259,7 @@ public class PracticeBoardGUI extends ChessGUI {
                 .setCallback((index, type, action, gui) -> {
                     ChessSoundManager.playUISound(player, ChessSoundManager.UISound.CLICK);
                     practiceBoard = new ChessBoard();
+                    clearAnalysis();
                     selectedSquare = null;
                     validMoves.clear();
                     updateBoard();
@@ -258,16 +272,7 @@ public class PracticeBoardGUI extends ChessGUI {
                     player.sendSystemMessage(Component.literal("§9Board flipping not implemented yet"));
                 }));
 
-        setSlot(26, new GuiElementBuilder(Items.ENDER_EYE)
-                .setName(Component.literal("§dAnalyze Position"))
-                .setCallback((index, type, action, gui) -> {
-                    ChessSoundManager.playUISound(player, ChessSoundManager.UISound.ANALYSIS);
-                    if (practiceBoard != null) {
-                        StockfishEngineManager.getInstance().analyzePosition(practiceBoard.toFEN(), analysis -> {
-                            player.sendSystemMessage(Component.literal("§dAnalysis: " + analysis));
-                        });
-                    }
-                }));
+        updateAnalyzeButton();
 
         setSlot(35, new GuiElementBuilder(Items.BOOK)
                 .setName(Component.literal("§7Show FEN"))
@@ -295,6 +300,65 @@ public class PracticeBoardGUI extends ChessGUI {
                 }));
     }
 
+    /**
+     * Streams a deepening MultiPV search into the Analyze button and reports the final result in chat.
+     */
+    private void startAnalysis() {
+        clearAnalysis();
+        int generation = analysisGeneration;
+        analysis = StockfishEngineManager.getInstance().subscribeAnalysis(practiceBoard.toFEN(), PRACTICE_ANALYSIS, update ->
+                GameManager.getInstance().getServer().execute(() -> {
+                    // Dropped once the board changed or another analysis started
+                    if (generation != analysisGeneration || !isOpen()) return;
+                    while (analysisLines.size() < update.multiPv) analysisLines.add(null);
+                    analysisLines.set(update.multiPv - 1, update);
+                    updateAnalyzeButton();
+                }));
+        analysis.getResult().thenAccept(result -> GameManager.getInstance().getServer().execute(() -> {
+            if (generation == analysisGeneration) {
+                player.sendSystemMessage(Component.literal("§dAnalysis: " + result));
+            }
+        }));
+    }
+
+    private void clearAnalysis() {
+        stopAnalysis();
+        analysisGeneration++;
+        analysisLines = new ArrayList<>();
+        updateAnalyzeButton();
+    }
+
+    private void stopAnalysis() {
+        if (analysis != null) {
+            analysis.cancel();
+            analysis = null;
+        }
+    }
+
+    private void updateAnalyzeButton() {
+        List<Component> lore = new ArrayList<>();
+        // Null while the ChessGUI constructor lays out the slots
+        if (analysisLines != null) {
+            for (AnalysisUpdate line : analysisLines) {
+                if (line == null) continue;
+                lore.add(Component.literal("§7" + line.multiPv + ". §f" + line.evaluation + " §8d" + line.depth + " §7" + line.principalVariation));
+            }
+        }
+        if (lore.isEmpty()) {
+            lore.add(Component.literal("§8Click to analyze this position"));
+        }
+
+        setSlot(26, new GuiElementBuilder(Items.ENDER_EYE)
+                .setName(Component.literal("§dAnalyze Position"))
+                .setLore(lore)
+                .setCallback((index, type, action, gui) -> {
+                    ChessSoundManager.playUISound(player, ChessSoundManager.UISound.ANALYSIS);
+                    if (practiceBoard != null) {
+                        startAnalysis();
+                    }
+                }));
+    }
+
     private void updatePracticeTurnIndicator() {
         if (practiceBoard == null) return;
 
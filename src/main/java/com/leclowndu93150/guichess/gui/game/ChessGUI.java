@@ -8,8 +8,8 @@ import com.leclowndu93150.guichess.chess.pieces.PieceColor;
 import com.leclowndu93150.guichess.chess.pieces.PieceType;
 import com.leclowndu93150.guichess.chess.util.GameState;
 import com.leclowndu93150.guichess.chess.rules.GameUtility;
+import com.leclowndu93150.guichess.engine.analysis.AnalysisJobManager;
 import com.leclowndu93150.guichess.engine.integration.StockfishIntegration;
-import com.leclowndu93150.guichess.engine.integration.StockfishEngineManager;
 import com.leclowndu93150.guichess.game.core.ChessBoard;
 import com.leclowndu93150.guichess.game.core.ChessBotGame;
 import com.leclowndu93150.guichess.game.core.ChessGame;
@@ -154,8 +154,8 @@ public class ChessGUI extends SimpleGui {
                 chessFile = 7 - col;
             }
 
-            ChessPosition position = new ChessPosition(chessFile, chessRank);
-            ChessPiece piece = board.getPiece(position);
+            ChessPosition position = ChessPosition.of(chessFile, chessRank);
+            ChessPiece piece = board.getPiece(position.toIndex());
 
             int slotIndex = i + i / 8;
             if (slotIndex >= 72) continue;
@@ -642,7 +642,7 @@ public class ChessGUI extends SimpleGui {
         }
         
         ChessSoundManager.playUISound(player, ChessSoundManager.UISound.HINT);
-        StockfishEngineManager.getInstance().requestHint(getBoard().toFEN(), hint -> {
+        AnalysisJobManager.getInstance().requestHint(getBoard().toFEN(), hint -> {
             player.sendSystemMessage(Component.literal("§bHint: " + hint));
             receivedHints.add(hint);
             updateHintButton();
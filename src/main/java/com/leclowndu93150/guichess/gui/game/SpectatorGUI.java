@@ -8,6 +8,11 @@ import com.leclowndu93150.guichess.chess.util.GameState;
 import com.leclowndu93150.guichess.game.core.BotVsBotGame;
 import com.leclowndu93150.guichess.game.core.ChessBoard;
 import com.leclowndu93150.guichess.data.models.PlayerData;
+import com.leclowndu93150.guichess.engine.analysis.AnalysisJobManager;
+import com.leclowndu93150.guichess.engine.integration.AnalysisSubscription;
+import com.leclowndu93150.guichess.engine.integration.AnalysisUpdate;
+import com.leclowndu93150.guichess.engine.integration.EnginePriority;
+import com.leclowndu93150.guichess.engine.integration.EngineRequest;
 import com.leclowndu93150.guichess.engine.integration.StockfishEngineManager;
 import com.leclowndu93150.guichess.game.core.ChessGame;
 import com.leclowndu93150.guichess.game.core.GameManager;
@@ -20,13 +25,21 @@ import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.Items;
 
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Spectator GUI for watching games.
  * Read-only view with perspective switching.
  */
 public class SpectatorGUI extends ChessGUI {
+    // One deepening search per position, shared by everyone spectating the game and shown as it improves
+    private static final EngineRequest LIVE_ANALYSIS = EngineRequest.defaults().withDepth(22).withMoveTime(10000).withMultiPv(1)
+            .withPriority(EnginePriority.LIVE_ANALYSIS);
+
     private PieceColor viewPerspective = PieceColor.WHITE;
+    private AnalysisSubscription liveAnalysis;
+    private String liveAnalysisFen;
+    private String liveEvaluation;
 
     /**
      * Creates a new spectator GUI for the given game.
@@ -62,6 +75,7 @@ public class SpectatorGUI extends ChessGUI {
     }
 
     private void setupSpectatorUtilities() {
+        refreshLiveAnalysis();
         updateSpectatorTimerDisplays();
         updateTurnIndicator();
         setSlot(62, new GuiElementBuilder(Items.BARRIER)
@@ -213,13 +227,69 @@ public class SpectatorGUI extends ChessGUI {
         }
     }
     
+    /**
+     * Restarts the live search when the position changed, and stops it once the game is over.
+     */
+    private void refreshLiveAnalysis() {
+        ChessBoard board = game.getBoard();
+        if (!game.isGameActive()) {
+            stopLiveAnalysis();
+            return;
+        }
+
+        String fen = board.toFEN();
+        if (fen.equals(liveAnalysisFen)) return;
+
+        stopLiveAnalysis();
+        liveAnalysisFen = fen;
+        liveEvaluation = null;
+        boolean whiteToMove = board.getCurrentTurn() == PieceColor.WHITE;
+
+        liveAnalysis = StockfishEngineManager.getInstance().subscribeSharedAnalysis(fen, LIVE_ANALYSIS, update -> {
+            if (update.multiPv != 1) return;
+            String evaluation = formatLiveEvaluation(update, whiteToMove);
+            GameManager.getInstance().getServer().execute(() -> showLiveEvaluation(fen, evaluation));
+        });
+        liveAnalysis.getResult().thenAccept(result -> {
+            if (result.error != null) {
+                GameManager.getInstance().getServer().execute(() -> {
+                    if (liveEvaluation == null) showLiveEvaluation(fen, "Unavailable");
+                });
+            }
+        });
+    }
+
+    private void showLiveEvaluation(String fen, String evaluation) {
+        if (!isOpen() || !fen.equals(liveAnalysisFen)) return;
+        liveEvaluation = evaluation;
+        updateSpectatorTimerDisplays();
+    }
+
+    private void stopLiveAnalysis() {
+        if (liveAnalysis != null) {
+            liveAnalysis.cancel();
+            liveAnalysis = null;
+        }
+        liveAnalysisFen = null;
+    }
+
+    /**
+     * Engine scores are from the side to move; spectators see them from White's side.
+     */
+    private static String formatLiveEvaluation(AnalysisUpdate update, boolean whiteToMove) {
+        if (update.isMate) {
+            int mateIn = whiteToMove ? update.mateIn : -update.mateIn;
+            return (mateIn > 0 ? "White" : "Black") + " mates in " + Math.abs(mateIn) + " §8(depth " + update.depth + ")";
+        }
+        int centipawns = whiteToMove ? update.centipawns : -update.centipawns;
+        return String.format(Locale.ROOT, "%+.2f §8(depth %d)", centipawns / 100.0, update.depth);
+    }
+
     private String getCurrentEvaluation() {
-        // This would ideally get real-time evaluation from engine
-        // For now, return a placeholder based on game state
         GameState state = game.getBoard().getGameState();
         return switch (state) {
-            case WHITE_TURN, CHECK_WHITE -> "Slight advantage";
-            case BLACK_TURN, CHECK_BLACK -> "Slight advantage"; 
+            case WHITE_TURN, CHECK_WHITE, BLACK_TURN, CHECK_BLACK ->
+                    liveEvaluation != null ? liveEvaluation : "Analyzing...";
             case CHECKMATE_WHITE_WINS -> "White wins!";
             case CHECKMATE_BLACK_WINS -> "Black wins!";
             case STALEMATE -> "Draw - Stalemate";
@@ -247,11 +317,9 @@ public class SpectatorGUI extends ChessGUI {
         ChessBoard board = game.getBoard();
         int materialValue = 0;
         
-        for (int i = 0; i < 64; i++) {
-            ChessPiece piece = board.getPiece(ChessPosition.fromIndex(i));
-            if (piece != null && piece.isWhite() == isWhite) {
-                materialValue += getPieceValue(piece.getType());
-            }
+        PieceColor color = isWhite ? PieceColor.WHITE : PieceColor.BLACK;
+        for (PieceType type : PieceType.values()) {
+            materialValue += board.getPieceCount(ChessPiece.fromColorAndType(color, type)) * getPieceValue(type);
         }
         
         return String.valueOf(materialValue);
@@ -280,6 +348,7 @@ public class SpectatorGUI extends ChessGUI {
 
     @Override
     protected void updateUtilitySlots() {
+        refreshLiveAnalysis();
         updateSpectatorTimerDisplays();
         updateTurnIndicator();
     }
@@ -304,6 +373,7 @@ public class SpectatorGUI extends ChessGUI {
 
     @Override
     public void onClose() {
+        stopLiveAnalysis();
         GameManager.getInstance().removeSpectator(game, player);
         player.sendSystemMessage(Component.literal("§7Stopped spectating chess game"));
         // Don't call super.onClose() to avoid "reopening chess board" message
@@ -348,7 +418,7 @@ public class SpectatorGUI extends ChessGUI {
     @Override
     protected void handleHint() {
         ChessSoundManager.playUISound(player, ChessSoundManager.UISound.HINT);
-        StockfishEngineManager.getInstance().requestHint(getBoard().toFEN(), hint -> {
+        AnalysisJobManager.getInstance().requestHint(getBoard().toFEN(), hint -> {
             player.sendSystemMessage(Component.literal("§9Spectator Analysis: " + hint));
         });
     }